@@ -0,0 +1,131 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import com.benjaminsproule.mediaorganiser.dao.MediaDao;
+import com.benjaminsproule.mediaorganiser.domain.DateConstants;
+import com.benjaminsproule.mediaorganiser.domain.OrganiseOptions;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares organising files on fixed pools of platform threads with organising them on virtual threads, when every
+ * write to the output directory has the latency of a remote file system. The files are read from the local disk, and
+ * the output directory is simulated by a dao that waits for the latency instead of moving anything, so the files can be
+ * organised again on every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class MediaServiceBenchmark {
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"16", "256"})
+    public int parallelism;
+
+    @Param({"5"})
+    public long latencyMillis;
+
+    @Param({"500"})
+    public int files;
+
+    private MediaService mediaService;
+
+    @Setup
+    public void setup() throws IOException {
+        Path inputDirectory = Files.createTempDirectory("media-organiser-benchmark");
+        List<Path> paths = new ArrayList<>(files);
+        try (InputStream image = getClass().getClassLoader().getResourceAsStream("image.jpg")) {
+            if (image == null) {
+                throw new IllegalStateException("image.jpg is not on the classpath");
+            }
+            paths.add(inputDirectory.resolve("image0.jpg"));
+            Files.copy(image, paths.get(0));
+        }
+        for (int i = 1; i < files; i++) {
+            paths.add(Files.copy(paths.get(0), inputDirectory.resolve("image" + i + ".jpg")));
+        }
+
+        OrganiseOptions options = OrganiseOptions.builder()
+            .virtualThreads(virtualThreads)
+            .planParallelism(parallelism)
+            .moveParallelism(parallelism)
+            .reportFile(inputDirectory.resolve("report.jsonl"))
+            .build();
+        List<ScannedFile> scannedFiles = new ArrayList<>(files);
+        for (Path path : paths) {
+            scannedFiles.add(ScannedFile.read(path));
+        }
+        mediaService = new MediaService(new HighLatencyMediaDao(scannedFiles, latencyMillis), options);
+    }
+
+    @Benchmark
+    public OutcomeSummary organise() throws IOException {
+        return mediaService.organise("input", "output", DateConstants.YYYY_MM_DD);
+    }
+
+    /**
+     * Finds the given files and waits for the latency on each write to the output directory instead of making it
+     */
+    private static class HighLatencyMediaDao extends MediaDao {
+        private final List<ScannedFile> files;
+        private final long latencyMillis;
+
+        HighLatencyMediaDao(List<ScannedFile> files, long latencyMillis) {
+            this.files = files;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public List<ScannedFile> getFilesToProbe(String inputDirectory) {
+            return files;
+        }
+
+        @Override
+        public void createDirectory(String outputDirectory) throws IOException {
+            waitForLatency();
+        }
+
+        @Override
+        public SavedFile saveFile(String outputDirectory, ScannedFile file) throws IOException {
+            waitForLatency();
+            return new SavedFile(Path.of(outputDirectory).resolve(file.path().getFileName()), true);
+        }
+
+        @Override
+        public List<Path> deleteEmptyDirectories(Collection<Path> directories, Path root) {
+            return List.of();
+        }
+
+        private void waitForLatency() throws IOException {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted whilst waiting for the file system", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the DateTimeOriginal of a JPEG by decoding its metadata with metadata-extractor, as is done for
+ * every other file type, with reading it straight out of the EXIF data. Both read from a header already read from the
+ * file, as the plan stage does, so only the cost of decoding it is measured. Run with
+ * <code>./gradlew jmh -PjmhArgs="JpegExifDateBenchmark -prof gc"</code> to compare how much each allocates too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class JpegExifDateBenchmark {
+    private File file;
+    private FileHeader header;
+
+    @Setup
+    public void setup() throws IOException {
+        Path path = Files.createTempFile("media-organiser-benchmark", ".jpg");
+        try (InputStream image = getClass().getClassLoader().getResourceAsStream("image.jpg")) {
+            if (image == null) {
+                throw new IllegalStateException("image.jpg is not on the classpath");
+            }
+            Files.copy(image, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        file = path.toFile();
+        header = FileHeader.read(path, FileHeader.DEFAULT_HEADER_BYTES);
+    }
+
+    @Benchmark
+    public Date metadataExtractor() {
+        Metadata metadata = BoundedMetadataReader.readMetadata(file, header, FileDateUtil.DEFAULT_MAX_METADATA_BYTES);
+        return metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class).getDateOriginal();
+    }
+
+    @Benchmark
+    public Instant direct() {
+        return JpegExifDateReader.readDateOriginal(file, header, FileDateUtil.DEFAULT_MAX_METADATA_BYTES);
+    }
+}
@@ -1,8 +1,15 @@
 package com.benjaminsproule.mediaorganiser;
 
+import com.benjaminsproule.mediaorganiser.dao.FileMover;
+import com.benjaminsproule.mediaorganiser.dao.FileStoreLimiter;
 import com.benjaminsproule.mediaorganiser.dao.MediaDao;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome.Status;
+import com.benjaminsproule.mediaorganiser.domain.OrganiseOptions;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
 import com.benjaminsproule.mediaorganiser.gui.MainFrame;
 import com.benjaminsproule.mediaorganiser.service.MediaService;
+import com.benjaminsproule.mediaorganiser.service.MediaWatcher;
+import com.benjaminsproule.mediaorganiser.util.FileDateUtil;
 import com.benjaminsproule.mediaorganiser.util.MimeTypesUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.cli.CommandLine;
@@ -10,6 +17,9 @@ import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Options;
 
+import java.io.File;
+import java.io.IOException;
+
 import static javax.swing.SwingUtilities.invokeLater;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
@@ -32,28 +42,160 @@ public class Main {
             options.addOption("od", "outputdirectory", true, "The directory to put the organised media");
             options.addOption("of", "outputformat", true,
                 "The format the output directory should use to put the organised media");
+            options.addOption("dp", "directoryparallelism", true,
+                "The maximum number of directories to list at the same time, defaults to the number of processors");
+            options.addOption("cp", "copyparallelism", true,
+                "The maximum number of files to copy at the same time when the output directory is on a different "
+                    + "file system to the media, defaults to " + FileMover.DEFAULT_COPY_PARALLELISM);
+            options.addOption("fp", "filestoreparallelism", true,
+                "The maximum number of files to check for duplicates or move on each file system at the same time, "
+                    + "defaults to " + FileStoreLimiter.DEFAULT_FILE_STORE_PARALLELISM);
+            options.addOption("pp", "planparallelism", true,
+                "The number of files to read the metadata of at the same time, defaults to the number of processors");
+            options.addOption("mp", "moveparallelism", true,
+                "The number of files to check for duplicates and move at the same time across all file systems, "
+                    + "defaults to " + OrganiseOptions.DEFAULT_MOVE_PARALLELISM);
+            options.addOption("vt", "virtualthreads", false,
+                "Organise each file on its own virtual thread, limited by the plan and move parallelism, which suits "
+                    + "file systems with a high latency");
+            options.addOption("l", "link", false,
+                "Link the media into the output directory, leaving it where it is too, using hard links where the "
+                    + "output directory is on the same file system and copies otherwise");
+            options.addOption("te", "trustextensions", false,
+                "Decide whether a file is media from its extension when it is a known one, without reading the file");
+            options.addOption("s", "streaming", false,
+                "Start organising the media whilst the input directory is still being scanned");
+            options.addOption("qd", "queuedepth", true,
+                "The maximum number of found files waiting to be organised when streaming, defaults to "
+                    + OrganiseOptions.DEFAULT_QUEUE_CAPACITY);
+            options.addOption("uc", "undatablecache", true,
+                "A file to record the media a date could not be found for in, so later runs can skip it");
+            options.addOption("rc", "recheckundatable", false,
+                "Try to find a date for media recorded in the undatable cache again");
+            options.addOption("mb", "maxmetadatabytes", true,
+                "The maximum number of bytes of each file to read when looking for a date in its metadata before "
+                    + "reading all of it, or 0 to always read all of it, defaults to "
+                    + FileDateUtil.DEFAULT_MAX_METADATA_BYTES);
+            options.addOption("w", "watch", false,
+                "Keep running and organise media as it is added to the input directory");
+            options.addOption("wq", "watchquietperiod", true,
+                "How long in milliseconds a file must be unchanged before it is organised when watching, defaults to "
+                    + MediaWatcher.DEFAULT_QUIET_PERIOD_MILLIS);
+            options.addOption("rf", "reportfile", true,
+                "A file to write what happened to each file to, as one JSON object per line, defaults to a "
+                    + "temporary file that is deleted once the run has been summarised");
+            options.addOption("dr", "dryrun", true,
+                "Work out where each file would be moved to and whether it is a duplicate, and write the plan to the "
+                    + "given file without moving anything");
+            options.addOption("ap", "applyplan", true,
+                "Make the moves in a plan written by a dry run, instead of organising an input directory");
             CommandLineParser parser = new DefaultParser();
             CommandLine cmd = parser.parse(options, args);
+            String applyPlan = cmd.getOptionValue("applyplan");
             String inputDirectory = cmd.getOptionValue("inputdirectory");
+            String outputDirectory = cmd.getOptionValue("outputdirectory");
+            String outputFormat = cmd.getOptionValue("outputformat");
+            if (isBlank(applyPlan)) {
+                if (isBlank(inputDirectory)) {
+                    throw new IllegalArgumentException(
+                        "Please provide the directory that contains the media using the -id argument");
+                }
 
-            if (isBlank(inputDirectory)) {
-                throw new IllegalArgumentException(
-                    "Please provide the directory that contains the media using the -id argument");
+                if (isBlank(outputDirectory)) {
+                    throw new IllegalArgumentException(
+                        "Please provide the output directory to put the organised media using the -od argument");
+                }
+
+                if (isBlank(outputFormat)) {
+                    throw new IllegalArgumentException("Please provide the output format to define the output path");
+                }
             }
 
-            String outputDirectory = cmd.getOptionValue("outputdirectory");
-            if (isBlank(outputDirectory)) {
-                throw new IllegalArgumentException(
-                    "Please provide the output directory to put the organised media using the -od argument");
+            MediaDao mediaDao = new MediaDao(getIntOption(cmd, "directoryparallelism",
+                Runtime.getRuntime().availableProcessors()), cmd.hasOption("trustextensions"),
+                getIntOption(cmd, "copyparallelism", FileMover.DEFAULT_COPY_PARALLELISM),
+                getIntOption(cmd, "filestoreparallelism", FileStoreLimiter.DEFAULT_FILE_STORE_PARALLELISM));
+            String undatableCache = cmd.getOptionValue("undatablecache");
+            String reportFile = cmd.getOptionValue("reportfile");
+            OrganiseOptions organiseOptions = OrganiseOptions.builder()
+                .streaming(cmd.hasOption("streaming"))
+                .queueCapacity(getIntOption(cmd, "queuedepth", OrganiseOptions.DEFAULT_QUEUE_CAPACITY))
+                .planParallelism(getIntOption(cmd, "planparallelism", Runtime.getRuntime().availableProcessors()))
+                .moveParallelism(getIntOption(cmd, "moveparallelism", OrganiseOptions.DEFAULT_MOVE_PARALLELISM))
+                .virtualThreads(cmd.hasOption("virtualthreads"))
+                .link(cmd.hasOption("link"))
+                .undatableCacheFile(isBlank(undatableCache) ? null : new File(undatableCache).toPath())
+                .recheckUndatable(cmd.hasOption("recheckundatable"))
+                .maxMetadataBytes(getIntOption(cmd, "maxmetadatabytes", FileDateUtil.DEFAULT_MAX_METADATA_BYTES))
+                .reportFile(isBlank(reportFile) ? null : new File(reportFile).toPath())
+                .build();
+            MediaService mediaService = new MediaService(mediaDao, organiseOptions);
+
+            if (!isBlank(applyPlan)) {
+                logSummary(mediaService.applyPlan(new File(applyPlan).toPath()));
+                return;
             }
 
-            String outputFormat = cmd.getOptionValue("outputformat");
-            if (isBlank(outputFormat)) {
-                throw new IllegalArgumentException("Please provide the output format to define the output path");
+            String dryRun = cmd.getOptionValue("dryrun");
+            if (!isBlank(dryRun)) {
+                logSummary(mediaService.plan(inputDirectory, outputDirectory, outputFormat,
+                    new File(dryRun).toPath()));
+                return;
+            }
+
+            if (cmd.hasOption("watch")) {
+                MediaWatcher mediaWatcher = new MediaWatcher(mediaService, mediaDao,
+                    getLongOption(cmd, "watchquietperiod", MediaWatcher.DEFAULT_QUIET_PERIOD_MILLIS));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        mediaWatcher.close();
+                    } catch (IOException e) {
+                        log.error(e.getLocalizedMessage(), e);
+                    }
+                }));
+                mediaWatcher.watch(inputDirectory, outputDirectory, outputFormat);
+                return;
             }
 
-            MediaService mediaService = new MediaService(new MediaDao());
-            mediaService.organise(inputDirectory, outputDirectory, outputFormat);
+            logSummary(mediaService.organise(inputDirectory, outputDirectory, outputFormat));
+        }
+    }
+
+    private static void logSummary(OutcomeSummary summary) {
+        String planned = summary.getCount(Status.PLANNED) > 0
+            ? "Planned " + summary.getCount(Status.PLANNED) + " moves, " : "";
+        String linked = summary.getCount(Status.LINKED) > 0
+            ? "Linked " + summary.getCount(Status.LINKED) + " files, " : "";
+        log.info(planned + linked + "Moved " + summary.getCount(Status.MOVED) + " files, skipped "
+            + summary.getCount(Status.DUPLICATE_SKIPPED) + " duplicates, could not date "
+            + (summary.getCount(Status.UNDATABLE) + summary.getCount(Status.PREVIOUSLY_UNDATABLE))
+            + " files and failed to organise " + summary.getCount(Status.FAILED) + " files"
+            + (summary.reportFile() == null ? "" : ", see " + summary.reportFile() + " for details"));
+    }
+
+    private static long getLongOption(CommandLine cmd, String option, long defaultValue) {
+        String value = cmd.getOptionValue(option);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + option + " argument should be a number");
+        }
+    }
+
+    private static int getIntOption(CommandLine cmd, String option, int defaultValue) {
+        String value = cmd.getOptionValue(option);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + option + " argument should be a number");
         }
     }
 }
@@ -0,0 +1,195 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.util.XxHash64;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashes the contents of files, remembering the hashes of each file so that it is only read once however many files
+ * it is compared with. A remembered hash is only used whilst the file's size and last modified time are unchanged.
+ * <p>
+ * As well as the hash of the whole file there is a partial hash of just its first and last
+ * {@link #PARTIAL_HASH_BYTES}, which is enough to tell most different files of the same size apart without reading
+ * all of them. The partial hash of a file no bigger than twice that is the hash of the whole file.
+ */
+public class ContentHashCache {
+    public static final int PARTIAL_HASH_BYTES = 64 * 1024;
+
+    private final Map<Path, Entry> hashes = new ConcurrentHashMap<>();
+    private final LongAdder filesHashed = new LongAdder();
+    private final LongAdder filesPartiallyHashed = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * Get the hash of the contents of the given file
+     *
+     * @param path the file to hash
+     * @return the hash of the whole file
+     * @throws IOException if the file can't be read
+     */
+    public long hash(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = getEntry(path, attributes);
+        if (entry.fullHash() != null) {
+            cacheHits.increment();
+            return entry.fullHash();
+        }
+
+        long hash = XxHash64.hash(path);
+        filesHashed.increment();
+        bytesRead.add(attributes.size());
+        hashes.put(path, new Entry(attributes.size(), attributes.lastModifiedTime(), entry.partialHash(), hash));
+        return hash;
+    }
+
+    /**
+     * Get the hash of the first and last {@link #PARTIAL_HASH_BYTES} of the given file. Files with different partial
+     * hashes are different, but files with the same partial hash may not be the same unless
+     * {@link #isPartialHashFull(long)}.
+     *
+     * @param path the file to hash
+     * @return the partial hash of the file
+     * @throws IOException if the file can't be read
+     */
+    public long partialHash(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = getEntry(path, attributes);
+        if (entry.partialHash() != null) {
+            cacheHits.increment();
+            return entry.partialHash();
+        }
+
+        long size = attributes.size();
+        long hash;
+        if (isPartialHashFull(size)) {
+            hash = XxHash64.hash(path);
+            filesHashed.increment();
+            hashes.put(path, new Entry(size, attributes.lastModifiedTime(), hash, hash));
+        } else {
+            hash = hashHeadAndTail(path, size);
+            hashes.put(path, new Entry(size, attributes.lastModifiedTime(), hash, entry.fullHash()));
+        }
+        filesPartiallyHashed.increment();
+        bytesRead.add(getPartialHashBytes(size));
+        return hash;
+    }
+
+    /**
+     * @param size the size of a file
+     * @return true if the partial hash of a file of that size covers all of it
+     */
+    public static boolean isPartialHashFull(long size) {
+        return size <= 2L * PARTIAL_HASH_BYTES;
+    }
+
+    /**
+     * @param size the size of a file
+     * @return the number of bytes read to work out the partial hash of a file of that size
+     */
+    public static long getPartialHashBytes(long size) {
+        return Math.min(size, 2L * PARTIAL_HASH_BYTES);
+    }
+
+    /**
+     * Remember the hashes of a file that has moved, so it doesn't need to be read again at its new location
+     *
+     * @param from where the file was
+     * @param to   where the file is now
+     */
+    public void moved(Path from, Path to) {
+        Entry entry = hashes.remove(from);
+        if (entry != null) {
+            hashes.put(to, entry);
+        }
+    }
+
+    /**
+     * Remember the hashes of a file for a copy or link of it too, so the copy doesn't need to be read
+     *
+     * @param from the file
+     * @param to   the copy of the file
+     */
+    public void copied(Path from, Path to) {
+        Entry entry = hashes.get(from);
+        if (entry != null) {
+            hashes.put(to, entry);
+        }
+    }
+
+    /**
+     * Forget every hash, so that the memory isn't held on to between runs
+     */
+    public void clear() {
+        hashes.clear();
+    }
+
+    /**
+     * @return the number of files read in full to hash them
+     */
+    public long getFilesHashed() {
+        return filesHashed.sum();
+    }
+
+    /**
+     * @return the number of files that have had their partial hash worked out
+     */
+    public long getFilesPartiallyHashed() {
+        return filesPartiallyHashed.sum();
+    }
+
+    /**
+     * @return the total number of bytes read to hash files
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    private Entry getEntry(Path path, BasicFileAttributes attributes) {
+        Entry entry = hashes.get(path);
+        if (entry == null || entry.size() != attributes.size()
+            || !entry.lastModifiedTime().equals(attributes.lastModifiedTime())) {
+            return new Entry(attributes.size(), attributes.lastModifiedTime(), null, null);
+        }
+        return entry;
+    }
+
+    private static long hashHeadAndTail(Path path, long size) throws IOException {
+        XxHash64 hash = new XxHash64();
+        ByteBuffer buffer = ByteBuffer.allocate(PARTIAL_HASH_BYTES);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long position : new long[]{0, size - PARTIAL_HASH_BYTES}) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException(path + " is shorter than the " + size + " bytes expected");
+                    }
+                }
+                buffer.flip();
+                hash.update(buffer);
+            }
+        }
+        return hash.getValue();
+    }
+
+    /**
+     * The hashes of a file whilst it has the given size and last modified time, either of which may not have been
+     * worked out yet
+     */
+    private record Entry(long size, FileTime lastModifiedTime, Long partialHash, Long fullHash) {
+    }
+}
@@ -0,0 +1,176 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+@Slf4j
+public class DirectoryWalker {
+
+    /**
+     * The maximum number of directories that will be listed at the same time
+     */
+    @Getter
+    private final int parallelism;
+    private final MetadataCalls metadataCalls;
+
+    public DirectoryWalker(int parallelism) {
+        this(parallelism, new MetadataCalls());
+    }
+
+    /**
+     * @param parallelism   the maximum number of directories to list at the same time
+     * @param metadataCalls where to count the attribute reads and listings made whilst walking
+     */
+    public DirectoryWalker(int parallelism, MetadataCalls metadataCalls) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The directory listing parallelism should be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.metadataCalls = metadataCalls;
+    }
+
+    /**
+     * Walks the given directory and all of its sub-directories, listing sibling sub-directories in parallel. Every
+     * regular file found is passed to the fileConsumer along with the attributes read for it during the listing, so
+     * the consumer may be called from multiple threads at once. Each entry is visited with the attributes read for it
+     * whilst listing its directory where the platform returns them with the listing, and otherwise with a single stat,
+     * and nothing after the walk needs to read them again. Symbolic links are followed, but a directory that has
+     * already been visited is skipped so link loops terminate.
+     *
+     * @param directory    the directory to walk
+     * @param fileConsumer the consumer to pass each regular file to
+     * @throws IOException if there is an issue listing one of the directories
+     */
+    public void walk(Path directory, BiConsumer<Path, BasicFileAttributes> fileConsumer) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(directory, BasicFileAttributes.class);
+        metadataCalls.attributesRead();
+        if (!attributes.isDirectory()) {
+            throw new NotDirectoryException(directory.toString());
+        }
+        Set<Object> visitedDirectories = ConcurrentHashMap.newKeySet();
+        visitedDirectories.add(directoryKey(directory, attributes, metadataCalls));
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        try {
+            forkJoinPool.invoke(new ListDirectoryTask(directory, visitedDirectories, fileConsumer, metadataCalls));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    private static Object directoryKey(Path directory, BasicFileAttributes attributes, MetadataCalls metadataCalls)
+        throws IOException {
+        Object fileKey = attributes.fileKey();
+        if (fileKey != null) {
+            return fileKey;
+        }
+        metadataCalls.attributesRead();
+        return directory.toRealPath();
+    }
+
+    private static class ListDirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Set<Object> visitedDirectories;
+        private final BiConsumer<Path, BasicFileAttributes> fileConsumer;
+        private final MetadataCalls metadataCalls;
+
+        private ListDirectoryTask(Path directory, Set<Object> visitedDirectories,
+                                  BiConsumer<Path, BasicFileAttributes> fileConsumer, MetadataCalls metadataCalls) {
+            this.directory = directory;
+            this.visitedDirectories = visitedDirectories;
+            this.fileConsumer = fileConsumer;
+            this.metadataCalls = metadataCalls;
+        }
+
+        /**
+         * Lists the directory with a file tree walk of depth one, so each entry is visited with the attributes the
+         * listing already read for it on platforms that return them with the directory entries, such as Windows, and
+         * is only read separately where they don't
+         */
+        @Override
+        protected void compute() {
+            log.info("Getting files under " + directory);
+            List<ListDirectoryTask> subDirectoryTasks = new ArrayList<>();
+            LongAdder entries = new LongAdder();
+            try {
+                Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+                        metadataCalls.attributesRead();
+                        metadataCalls.directoryListed();
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+                        entries.increment();
+                        // Counted as a read, although platforms that return the attributes with the listing don't
+                        // make one
+                        metadataCalls.attributesRead();
+                        if (attributes.isDirectory()) {
+                            if (visitedDirectories.add(directoryKey(path, attributes, metadataCalls))) {
+                                ListDirectoryTask subDirectoryTask =
+                                    new ListDirectoryTask(path, visitedDirectories, fileConsumer, metadataCalls);
+                                subDirectoryTask.fork();
+                                subDirectoryTasks.add(subDirectoryTask);
+                            } else {
+                                log.info(path + " has already been visited, so skipping it to avoid a loop");
+                            }
+                        } else if (attributes.isRegularFile()) {
+                            fileConsumer.accept(path, attributes);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+                        if (path.equals(directory)) {
+                            throw e;
+                        }
+                        log.error("Could not read the attributes of " + path, e);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path path, IOException e) throws IOException {
+                        if (e != null) {
+                            throw e;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.info("Found a total of " + entries.sum() + " entries under " + directory);
+
+            for (ListDirectoryTask subDirectoryTask : subDirectoryTasks) {
+                subDirectoryTask.join();
+            }
+            log.info("Finished traversing " + directory);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds whether a file is a duplicate of one already in the output directory, reading as little of the files as it
+ * can. Files of different sizes are never read, files of the same size are first compared by the hash of their first
+ * and last {@link ContentHashCache#PARTIAL_HASH_BYTES}, and only the files that still match are hashed in full.
+ * <p>
+ * Each file checked is counted against the tier that decided whether it was a duplicate, along with the bytes of it
+ * that didn't need to be read compared to hashing it in full.
+ */
+@Slf4j
+class DuplicateFinder {
+    private final ContentHashCache contentHashCache = new ContentHashCache();
+    private final LongAdder resolvedBySize = new LongAdder();
+    private final LongAdder resolvedByPartialHash = new LongAdder();
+    private final LongAdder resolvedByFullHash = new LongAdder();
+    private final LongAdder bytesSavedBySize = new LongAdder();
+    private final LongAdder bytesSavedByPartialHash = new LongAdder();
+
+    /**
+     * Find a file with the same contents as the given one
+     *
+     * @param path       the file to find a duplicate of
+     * @param size       the size of the file
+     * @param candidates the files in the output directory with the same size
+     * @return the first of the candidates with the same contents, or null if none of them have
+     * @throws IOException if the file can't be read
+     */
+    Path findDuplicate(Path path, long size, List<Path> candidates) throws IOException {
+        if (candidates.isEmpty()) {
+            resolvedBySize.increment();
+            bytesSavedBySize.add(size);
+            return null;
+        }
+
+        long partialHash = contentHashCache.partialHash(path);
+        List<Path> partialMatches = new ArrayList<>(1);
+        for (Path candidate : candidates) {
+            try {
+                if (contentHashCache.partialHash(candidate) == partialHash) {
+                    partialMatches.add(candidate);
+                }
+            } catch (NoSuchFileException e) {
+                log.debug(candidate + " has been removed from the output directory");
+            }
+        }
+
+        if (partialMatches.isEmpty() || ContentHashCache.isPartialHashFull(size)) {
+            resolvedByPartialHash.increment();
+            bytesSavedByPartialHash.add(size - ContentHashCache.getPartialHashBytes(size));
+            return partialMatches.isEmpty() ? null : partialMatches.get(0);
+        }
+
+        resolvedByFullHash.increment();
+        long hash = contentHashCache.hash(path);
+        for (Path candidate : partialMatches) {
+            try {
+                if (contentHashCache.hash(candidate) == hash) {
+                    return candidate;
+                }
+            } catch (NoSuchFileException e) {
+                log.debug(candidate + " has been removed from the output directory");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remember the hashes of a file that has been moved into the output directory
+     *
+     * @param from where the file was
+     * @param to   where the file is now
+     */
+    void moved(Path from, Path to) {
+        contentHashCache.moved(from, to);
+    }
+
+    /**
+     * Remember the hashes of a file that has been linked into the output directory
+     *
+     * @param from where the file is
+     * @param to   where it has been linked to
+     */
+    void linked(Path from, Path to) {
+        contentHashCache.copied(from, to);
+    }
+
+    /**
+     * Forget the hashes of every file
+     */
+    void clear() {
+        contentHashCache.clear();
+    }
+
+    long getResolvedBySize() {
+        return resolvedBySize.sum();
+    }
+
+    long getResolvedByPartialHash() {
+        return resolvedByPartialHash.sum();
+    }
+
+    long getResolvedByFullHash() {
+        return resolvedByFullHash.sum();
+    }
+
+    long getBytesSavedBySize() {
+        return bytesSavedBySize.sum();
+    }
+
+    long getBytesSavedByPartialHash() {
+        return bytesSavedByPartialHash.sum();
+    }
+
+    /**
+     * @return the total number of bytes read to find duplicates
+     */
+    long getBytesRead() {
+        return contentHashCache.getBytesRead();
+    }
+}
@@ -0,0 +1,227 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves files, renaming them when the source and target are on the same file store and otherwise copying them across
+ * before deleting the source. Files can also be linked into place, leaving the source where it is, which makes a hard
+ * link on the same file store and otherwise copies them across. Only a limited number of copies run at once, so that
+ * they don't compete with each other for the disks, whilst renames and links are never held up by them.
+ */
+@Slf4j
+public class FileMover {
+    public static final int DEFAULT_COPY_PARALLELISM = 2;
+
+    /**
+     * The maximum number of files that will be copied between file stores at the same time
+     */
+    @Getter
+    private final int copyParallelism;
+    private final Semaphore copyPermits;
+    private final FileStoreLimiter fileStoreLimiter;
+    private final MetadataCalls metadataCalls;
+    private final LongAdder renames = new LongAdder();
+    private final LongAdder links = new LongAdder();
+    private final LongAdder copies = new LongAdder();
+
+    public FileMover(int copyParallelism) {
+        this(copyParallelism, new FileStoreLimiter(FileStoreLimiter.DEFAULT_FILE_STORE_PARALLELISM));
+    }
+
+    /**
+     * @param copyParallelism  the maximum number of files to copy between file stores at the same time
+     * @param fileStoreLimiter where to look up the file stores of the directories files are moved between
+     */
+    public FileMover(int copyParallelism, FileStoreLimiter fileStoreLimiter) {
+        this(copyParallelism, fileStoreLimiter, new MetadataCalls());
+    }
+
+    /**
+     * @param copyParallelism  the maximum number of files to copy between file stores at the same time
+     * @param fileStoreLimiter where to look up the file stores of the directories files are moved between
+     * @param metadataCalls    where to count the attribute reads made whilst moving files
+     */
+    public FileMover(int copyParallelism, FileStoreLimiter fileStoreLimiter, MetadataCalls metadataCalls) {
+        if (copyParallelism < 1) {
+            throw new IllegalArgumentException("The copy parallelism should be at least 1");
+        }
+        this.copyParallelism = copyParallelism;
+        this.copyPermits = new Semaphore(copyParallelism);
+        this.fileStoreLimiter = fileStoreLimiter;
+        this.metadataCalls = metadataCalls;
+    }
+
+    /**
+     * Move the source to the target, which must not already exist and whose directory must already exist. On the same
+     * file store the file is renamed atomically, so it is only ever in one place. The target is expected to be a name
+     * reserved in the {@link OutputDirectoryIndex} of its directory, which rules out another move in this process
+     * using it. A rename replaces whatever is at the target, so the target is checked for first, but something outside
+     * this process creating it between the check and the rename would still be replaced.
+     *
+     * @param source the file to move
+     * @param target where to move the file to
+     * @throws FileAlreadyExistsException if the target already exists
+     * @throws IOException                if there is an issue moving the file
+     */
+    public void move(Path source, Path target) throws IOException {
+        if (fileStoreLimiter.getFileStore(source.toAbsolutePath().getParent())
+            .equals(fileStoreLimiter.getFileStore(target.toAbsolutePath().getParent()))) {
+            if (rename(source, target)) {
+                renames.increment();
+                return;
+            }
+        }
+
+        withCopyPermit(source, () -> copyThenDelete(source, target));
+    }
+
+    /**
+     * Put the source at the target as well as where it is, as a hard link when they are on the same file store, so
+     * that no data is copied, and otherwise as a copy. The target must not already exist and its directory must
+     * already exist. Neither a link nor a copy replaces an existing target, so it isn't checked for beforehand.
+     *
+     * @param source the file to link
+     * @param target where to link the file to
+     * @throws FileAlreadyExistsException if the target already exists
+     * @throws IOException                if there is an issue linking the file
+     */
+    public void link(Path source, Path target) throws IOException {
+        if (fileStoreLimiter.getFileStore(source.toAbsolutePath().getParent())
+            .equals(fileStoreLimiter.getFileStore(target.toAbsolutePath().getParent()))) {
+            try {
+                Files.createLink(target, source);
+                links.increment();
+                return;
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                log.debug("Could not hard link " + source + " to " + target + ", so copying it instead", e);
+            }
+        }
+
+        withCopyPermit(source, () -> {
+            copy(source, target);
+            copies.increment();
+        });
+    }
+
+    /**
+     * @return the number of files moved by renaming them
+     */
+    public long getRenames() {
+        return renames.sum();
+    }
+
+    /**
+     * @return the number of files linked with a hard link
+     */
+    public long getLinks() {
+        return links.sum();
+    }
+
+    /**
+     * @return the number of files moved or linked by copying them to another file store
+     */
+    public long getCopies() {
+        return copies.sum();
+    }
+
+    /**
+     * Rename the source to the target, checking for the target first as a rename replaces whatever is there
+     *
+     * @return false if the file store can't rename the file, so it needs to be copied instead
+     */
+    private boolean rename(Path source, Path target) throws IOException {
+        metadataCalls.attributesRead();
+        if (Files.exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("Could not rename " + source + " to " + target + ", so copying it instead", e);
+            return false;
+        }
+    }
+
+    /**
+     * Copy the source to the target, and only delete the source once the whole file has been written to disk
+     */
+    void copyThenDelete(Path source, Path target) throws IOException {
+        copy(source, target);
+        Files.delete(source);
+        copies.increment();
+    }
+
+    /**
+     * Copy the source to the target a channel at a time, leaving it to the operating system to move the bytes where it
+     * can, which may share them rather than copy them on file systems that support it. The target keeps the last
+     * modified time of the source. If anything goes wrong the partial target is deleted.
+     */
+    private void copy(Path source, Path target) throws IOException {
+        long size;
+        FileTime lastModifiedTime;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            size = in.size();
+            lastModifiedTime = Files.getLastModifiedTime(source);
+            metadataCalls.attributesRead();
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                try {
+                    long position = 0;
+                    while (position < size) {
+                        long transferred = in.transferTo(position, size - position, out);
+                        if (transferred <= 0) {
+                            break;
+                        }
+                        position += transferred;
+                    }
+                    if (position != size || out.size() != size) {
+                        throw new IOException("Only copied " + out.size() + " of the " + size + " bytes of " + source
+                            + " to " + target);
+                    }
+                    out.force(true);
+                } catch (IOException e) {
+                    out.close();
+                    Files.deleteIfExists(target);
+                    throw e;
+                }
+            }
+        }
+
+        Files.setLastModifiedTime(target, lastModifiedTime);
+    }
+
+    private void withCopyPermit(Path source, Copy copy) throws IOException {
+        try {
+            copyPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst waiting to copy " + source, e);
+        }
+        try {
+            copy.run();
+        } finally {
+            copyPermits.release();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Copy {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,136 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many files are read from or written to each file store at the same time, so that a single spinning disk
+ * isn't made to seek between more files than it can keep up with, whilst files on other file stores carry on. A file
+ * being moved between two file stores counts against both of them.
+ * <p>
+ * The file store of each directory is looked up once and then remembered.
+ */
+public class FileStoreLimiter {
+    public static final int DEFAULT_FILE_STORE_PARALLELISM = 4;
+
+    /**
+     * The maximum number of files that will use each file store at the same time
+     */
+    @Getter
+    private final int parallelism;
+    private final MetadataCalls metadataCalls;
+    private final Map<Path, FileStore> fileStores = new ConcurrentHashMap<>();
+    private final Map<FileStore, Limit> limits = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOrder = new AtomicInteger();
+
+    public FileStoreLimiter(int parallelism) {
+        this(parallelism, new MetadataCalls());
+    }
+
+    /**
+     * @param parallelism   the maximum number of files to use each file store at the same time
+     * @param metadataCalls where to count the attribute reads made whilst looking up file stores
+     */
+    public FileStoreLimiter(int parallelism, MetadataCalls metadataCalls) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The file store parallelism should be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.metadataCalls = metadataCalls;
+    }
+
+    /**
+     * Get the file store the given directory is on, or would be on if it doesn't exist yet
+     *
+     * @param directory the directory
+     * @return the file store of the directory, or of its closest parent that exists
+     * @throws IOException if the file store can't be found
+     */
+    public FileStore getFileStore(Path directory) throws IOException {
+        FileStore fileStore = fileStores.get(directory);
+        if (fileStore != null) {
+            return fileStore;
+        }
+
+        Path existing = directory.toAbsolutePath();
+        metadataCalls.attributesRead();
+        while (existing.getParent() != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+            metadataCalls.attributesRead();
+        }
+        fileStore = Files.getFileStore(existing);
+        metadataCalls.attributesRead();
+        if (existing.equals(directory.toAbsolutePath())) {
+            fileStores.put(directory, fileStore);
+        }
+        return fileStore;
+    }
+
+    /**
+     * Wait until a file can use the file stores of each of the given directories. The file stores are always waited
+     * for in the same order, so two files waiting for the same file stores can't each hold one the other needs.
+     *
+     * @param directories the directories the file is going to be read from or written to
+     * @return the permits to close once the file has been read or written
+     * @throws IOException if a file store can't be found or the thread is interrupted whilst waiting
+     */
+    public Permits acquire(Path... directories) throws IOException {
+        List<Limit> needed = new ArrayList<>(directories.length);
+        for (Path directory : directories) {
+            Limit limit = limits.computeIfAbsent(getFileStore(directory),
+                fileStore -> new Limit(nextOrder.getAndIncrement(), new Semaphore(parallelism)));
+            if (!needed.contains(limit)) {
+                needed.add(limit);
+            }
+        }
+        needed.sort(Comparator.comparingInt(Limit::order));
+
+        List<Limit> acquired = new ArrayList<>(needed.size());
+        try {
+            for (Limit limit : needed) {
+                limit.permits().acquire();
+                acquired.add(limit);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            new Permits(acquired).close();
+            throw new IOException("Interrupted whilst waiting to use the file stores of " + List.of(directories), e);
+        }
+        return new Permits(acquired);
+    }
+
+    /**
+     * The permits held by a file to use some file stores, which are given back when closed
+     */
+    public static class Permits implements AutoCloseable {
+        private final List<Limit> limits;
+
+        private Permits(List<Limit> limits) {
+            this.limits = limits;
+        }
+
+        @Override
+        public void close() {
+            for (Limit limit : limits) {
+                limit.permits().release();
+            }
+        }
+    }
+
+    /**
+     * The permits of a file store, and where it comes in the order the file stores are waited for
+     */
+    private record Limit(int order, Semaphore permits) {
+    }
+}
@@ -1,35 +1,45 @@
 package com.benjaminsproule.mediaorganiser.dao;
 
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.IMAGE_HEIC;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.IMAGE_HEIF;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.IMAGE_JPEG;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.IMAGE_JPG;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.IMAGE_PNG;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.IMAGE_TIFF;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.VIDEO_AVI_MS;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.VIDEO_AVI_UNIX;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.VIDEO_MP4;
-import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.VIDEO_QUICKTIME;
-import static java.io.File.separator;
+import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.getExtensionType;
+import static com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.isMediaMimeType;
 import static java.nio.file.Files.createDirectories;
-import static java.nio.file.Files.exists;
 import static java.nio.file.Files.isDirectory;
 import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.isSymbolicLink;
 import static java.nio.file.Files.list;
-import static java.nio.file.Files.move;
 import static java.nio.file.Files.notExists;
-import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
-import static org.apache.commons.lang3.StringUtils.join;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
+import com.benjaminsproule.mediaorganiser.util.FileHeader;
+import com.benjaminsproule.mediaorganiser.util.MimeTypesUtil.ExtensionType;
 import org.overviewproject.mime_types.GetBytesException;
 import org.overviewproject.mime_types.MimeTypeDetector;
 
@@ -39,9 +49,92 @@ import lombok.extern.slf4j.Slf4j;
 public class MediaDao {
 
     private final MimeTypeDetector mimeTypeDetector;
+    private final DirectoryWalker directoryWalker;
+    private final FileStoreLimiter fileStoreLimiter;
+    private final FileMover fileMover;
+    private final boolean trustExtensions;
+    private final int probeBytes;
+    private final MetadataCalls metadataCalls = new MetadataCalls();
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    private final Map<Path, OutputDirectoryIndex> directoryIndexes = new ConcurrentHashMap<>();
+    private final DuplicateFinder duplicateFinder = new DuplicateFinder();
 
     public MediaDao() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param directoryListingParallelism the maximum number of directories to list at the same time
+     */
+    public MediaDao(int directoryListingParallelism) {
+        this(directoryListingParallelism, false);
+    }
+
+    /**
+     * @param directoryListingParallelism the maximum number of directories to list at the same time
+     * @param trustExtensions             whether to decide if a file is media from its extension alone when the
+     *                                    extension is a known one, only reading the file when it isn't
+     */
+    public MediaDao(int directoryListingParallelism, boolean trustExtensions) {
+        this(directoryListingParallelism, trustExtensions, FileMover.DEFAULT_COPY_PARALLELISM);
+    }
+
+    /**
+     * @param directoryListingParallelism the maximum number of directories to list at the same time
+     * @param trustExtensions             whether to decide if a file is media from its extension alone when the
+     *                                    extension is a known one, only reading the file when it isn't
+     * @param copyParallelism             the maximum number of files to copy to another file store at the same time
+     */
+    public MediaDao(int directoryListingParallelism, boolean trustExtensions, int copyParallelism) {
+        this(directoryListingParallelism, trustExtensions, copyParallelism,
+            FileStoreLimiter.DEFAULT_FILE_STORE_PARALLELISM);
+    }
+
+    /**
+     * @param directoryListingParallelism the maximum number of directories to list at the same time
+     * @param trustExtensions             whether to decide if a file is media from its extension alone when the
+     *                                    extension is a known one, only reading the file when it isn't
+     * @param copyParallelism             the maximum number of files to copy to another file store at the same time
+     * @param fileStoreParallelism        the maximum number of files to check for duplicates or move on each file
+     *                                    store at the same time
+     */
+    public MediaDao(int directoryListingParallelism, boolean trustExtensions, int copyParallelism,
+                    int fileStoreParallelism) {
         this.mimeTypeDetector = new MimeTypeDetector();
+        this.directoryWalker = new DirectoryWalker(directoryListingParallelism, metadataCalls);
+        this.fileStoreLimiter = new FileStoreLimiter(fileStoreParallelism, metadataCalls);
+        this.fileMover = new FileMover(copyParallelism, fileStoreLimiter, metadataCalls);
+        this.trustExtensions = trustExtensions;
+        this.probeBytes = Math.max(FileHeader.DEFAULT_HEADER_BYTES, mimeTypeDetector.getMaxGetBytesLength());
+    }
+
+    public int getDirectoryListingParallelism() {
+        return directoryWalker.getParallelism();
+    }
+
+    public int getCopyParallelism() {
+        return fileMover.getCopyParallelism();
+    }
+
+    public int getFileStoreParallelism() {
+        return fileStoreLimiter.getParallelism();
+    }
+
+    /**
+     * @return the number of files moved by renaming them, the number hard linked and the number copied to another file
+     * store
+     */
+    public String getMoveStatistics() {
+        return fileMover.getRenames() + " renamed, " + fileMover.getLinks() + " hard linked and "
+            + fileMover.getCopies() + " copied to another file store";
+    }
+
+    /**
+     * @return the calls made to the file system for the metadata of files and directories so far, not counting those
+     * made to hash the contents of possible duplicates
+     */
+    public MetadataCalls getMetadataCalls() {
+        return metadataCalls;
     }
 
     /**
@@ -54,27 +147,199 @@ public class MediaDao {
      *                                  exist or is not a directory
      */
     public List<Path> getFiles(String inputDirectory) throws IOException {
+        Queue<Path> images = new ConcurrentLinkedQueue<>();
+        streamFiles(inputDirectory, images::add);
+        return new ArrayList<>(images);
+    }
+
+    /**
+     * Pass each of the media files under the given inputDirectory to the consumer as soon as it is found. The
+     * consumer may be called from multiple threads at once.
+     *
+     * @param inputDirectory the directory to get the media files from
+     * @param consumer       the consumer to pass each media file to
+     * @throws IOException              if there is an issue getting the files
+     * @throws IllegalArgumentException if inputDirectory is not provided, doesn't
+     *                                  exist or is not a directory
+     */
+    public void streamFiles(String inputDirectory, Consumer<Path> consumer) throws IOException {
+        walk(inputDirectory, this::isMediaFile, file -> consumer.accept(file.path()));
+    }
+
+    /**
+     * Get the files under the given inputDirectory that could be media, without opening any of them, so that each can
+     * be opened just once by {@link #probe(ScannedFile)} to find out both whether it is media and its date. When
+     * trusting extensions the files with a known non-media extension are left out, and otherwise every file is
+     * returned. Each file comes with the attributes read for it whilst listing its directory, which are used from
+     * then on instead of reading them again.
+     *
+     * @param inputDirectory the directory to get the files from
+     * @return a list of the files to probe
+     * @throws IOException              if there is an issue getting the files
+     * @throws IllegalArgumentException if inputDirectory is not provided, doesn't
+     *                                  exist or is not a directory
+     */
+    public List<ScannedFile> getFilesToProbe(String inputDirectory) throws IOException {
+        Queue<ScannedFile> files = new ConcurrentLinkedQueue<>();
+        streamFilesToProbe(inputDirectory, files::add);
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Pass each of the files under the given inputDirectory that could be media to the consumer as soon as it is
+     * found, in the same way as {@link #getFilesToProbe(String)}. The consumer may be called from multiple threads at
+     * once.
+     *
+     * @param inputDirectory the directory to get the files from
+     * @param consumer       the consumer to pass each file to
+     * @throws IOException              if there is an issue getting the files
+     * @throws IllegalArgumentException if inputDirectory is not provided, doesn't
+     *                                  exist or is not a directory
+     */
+    public void streamFilesToProbe(String inputDirectory, Consumer<ScannedFile> consumer) throws IOException {
+        walk(inputDirectory, path -> !trustExtensions
+            || getExtensionType(path.getFileName().toString()) != ExtensionType.NOT_MEDIA, consumer);
+    }
+
+    /**
+     * Open the file once and read its header, which is used both to work out whether the file is media and, by
+     * {@link com.benjaminsproule.mediaorganiser.util.FileDateUtil}, to find its date, so the file doesn't need to be
+     * opened again unless its metadata carries on past the header. When trusting extensions, a file with a known
+     * extension is decided by it alone, and one with a known non-media extension isn't opened at all.
+     *
+     * @param path the file to probe
+     * @return whether the file is media, and its header if it is
+     * @throws IOException if the file can't be read
+     */
+    public ProbedFile probe(Path path) throws IOException {
+        return probe(readAttributes(path));
+    }
+
+    /**
+     * Probe the file in the same way as {@link #probe(Path)}, using the size it had when it was scanned
+     *
+     * @param file the file to probe
+     * @return whether the file is media, and its header if it is
+     * @throws IOException if the file can't be read
+     */
+    public ProbedFile probe(ScannedFile file) throws IOException {
+        Path path = file.path();
+        String fileName = path.getFileName().toString();
+        ExtensionType extensionType = trustExtensions ? getExtensionType(fileName) : ExtensionType.UNKNOWN;
+        if (extensionType == ExtensionType.NOT_MEDIA) {
+            log.debug(path + " does not have a media file extension.");
+            return new ProbedFile(false, null);
+        }
+
+        FileHeader header = FileHeader.read(path, probeBytes, file.size());
+        if (extensionType == ExtensionType.MEDIA) {
+            return new ProbedFile(true, header);
+        }
+
+        try {
+            String contentType = mimeTypeDetector.detectMimeType(fileName, header::bytes);
+            if (isMediaMimeType(contentType)) {
+                return new ProbedFile(true, header);
+            }
+            log.debug(contentType + " is not a valid file type.");
+        } catch (GetBytesException exception) {
+            log.error("Exception thrown whilst trying to detect the mime type.", exception);
+        }
+        return new ProbedFile(false, null);
+    }
+
+    private void walk(String inputDirectory, Predicate<Path> filter, Consumer<ScannedFile> consumer)
+        throws IOException {
         if (isBlank(inputDirectory)) {
             throw new IllegalArgumentException("An input directory should be provided");
         }
 
         Path directory = new File(inputDirectory).toPath();
+        metadataCalls.attributesRead();
         if (notExists(directory)) {
             throw new IllegalArgumentException("The input directory does not exist");
         }
 
+        metadataCalls.attributesRead();
         if (!isDirectory(directory)) {
             throw new IllegalArgumentException("The input directory is not a directory");
         }
 
-        log.info("Getting files under " + directory);
-        List<Path> images = new ArrayList<>();
-        getFiles(directory, images);
-        log.info("Found a total of " + images.size() + " files under " + directory);
-        return images;
+        log.info("Getting files under " + directory + " listing up to " + directoryWalker.getParallelism()
+            + " directories at once");
+        LongAdder found = new LongAdder();
+        directoryWalker.walk(directory, (path, attributes) -> {
+            if (filter.test(path)) {
+                found.increment();
+                consumer.accept(ScannedFile.of(path, attributes));
+            }
+        });
+        log.info("Found a total of " + found.sum() + " files under " + directory);
+    }
+
+    /**
+     * Move the file into the outputDirectory, adding an index to its name if a different file already has it. The
+     * file is left where it is if a file in the outputDirectory has the same contents, whatever its name. Waits until
+     * the file stores of the file and the outputDirectory aren't being used by too many other files first.
+     *
+     * @param outputDirectory the directory to move the file into
+     * @param path            the file to move
+     * @return where the file was moved to, or where the file with the same contents already in the outputDirectory
+     * is, if it was left where it was
+     * @throws IOException              if there is an issue moving the file
+     * @throws IllegalArgumentException if outputDirectory or path is not provided, or outputDirectory is a file
+     */
+    public SavedFile saveFile(String outputDirectory, Path path) throws IOException {
+        return saveFile(outputDirectory, path, false);
+    }
+
+    /**
+     * Move the file into the outputDirectory in the same way as {@link #saveFile(String, Path)}, using the size it had
+     * when it was scanned rather than reading it again
+     *
+     * @param outputDirectory the directory to move the file into
+     * @param file            the file to move
+     * @return where the file was moved to, or where the file with the same contents already in the outputDirectory
+     * is, if it was left where it was
+     * @throws IOException              if there is an issue moving the file
+     * @throws IllegalArgumentException if outputDirectory or file is not provided, or outputDirectory is a file
+     */
+    public SavedFile saveFile(String outputDirectory, ScannedFile file) throws IOException {
+        return saveFile(outputDirectory, file, false);
+    }
+
+    /**
+     * Link the file into the outputDirectory in the same way as {@link #saveFile(String, Path)} moves it, leaving the
+     * file where it is too. The link is a hard link when the file and the outputDirectory are on the same file store,
+     * so no data is copied, and otherwise the file is copied.
+     *
+     * @param outputDirectory the directory to link the file into
+     * @param path            the file to link
+     * @return where the file was linked to, or where the file with the same contents already in the outputDirectory
+     * is, if it wasn't linked
+     * @throws IOException              if there is an issue linking the file
+     * @throws IllegalArgumentException if outputDirectory or path is not provided, or outputDirectory is a file
+     */
+    public SavedFile linkFile(String outputDirectory, Path path) throws IOException {
+        return saveFile(outputDirectory, path, true);
+    }
+
+    /**
+     * Link the file into the outputDirectory in the same way as {@link #linkFile(String, Path)}, using the size it had
+     * when it was scanned rather than reading it again
+     *
+     * @param outputDirectory the directory to link the file into
+     * @param file            the file to link
+     * @return where the file was linked to, or where the file with the same contents already in the outputDirectory
+     * is, if it wasn't linked
+     * @throws IOException              if there is an issue linking the file
+     * @throws IllegalArgumentException if outputDirectory or file is not provided, or outputDirectory is a file
+     */
+    public SavedFile linkFile(String outputDirectory, ScannedFile file) throws IOException {
+        return saveFile(outputDirectory, file, true);
     }
 
-    public void saveFile(String outputDirectory, Path path) throws IOException {
+    private SavedFile saveFile(String outputDirectory, Path path, boolean link) throws IOException {
         if (isBlank(outputDirectory)) {
             throw new IllegalArgumentException("An output directory should be provided");
         }
@@ -82,94 +347,330 @@ public class MediaDao {
         if (path == null) {
             throw new IllegalArgumentException("A path should be provided");
         }
+        return saveFile(outputDirectory, readAttributes(path), link);
+    }
+
+    private SavedFile saveFile(String outputDirectory, ScannedFile file, boolean link) throws IOException {
+        if (isBlank(outputDirectory)) {
+            throw new IllegalArgumentException("An output directory should be provided");
+        }
+
+        if (file == null) {
+            throw new IllegalArgumentException("A path should be provided");
+        }
 
+        Path path = file.path();
         Path directory = new File(outputDirectory).toPath();
-        if (isRegularFile(directory)) {
-            throw new IllegalArgumentException("The output directory is a file");
+        if (!createdDirectories.contains(directory)) {
+            metadataCalls.attributesRead();
+            if (isRegularFile(directory)) {
+                throw new IllegalArgumentException("The output directory is a file");
+            }
+            createDirectory(directory);
+        }
+
+        try (FileStoreLimiter.Permits permits = fileStoreLimiter.acquire(path.toAbsolutePath().getParent(),
+            directory)) {
+            return saveFile(directory, path, file.size(), link);
+        }
+    }
+
+    /**
+     * Save the file into the directory whilst holding the lock on the files of its size in the directory, so that two
+     * files with the same contents saved into the same directory at once can't both be found not to be a duplicate of
+     * the other. Files of other sizes are saved into the directory at the same time.
+     */
+    private SavedFile saveFile(Path directory, Path path, long size, boolean link) throws IOException {
+        OutputDirectoryIndex directoryIndex = getDirectoryIndex(directory);
+        Lock sizeLock = directoryIndex.lockSize(size);
+        try {
+            return saveFile(directory, directoryIndex, path, size, link);
+        } finally {
+            sizeLock.unlock();
+        }
+    }
+
+    private SavedFile saveFile(Path directory, OutputDirectoryIndex directoryIndex, Path path, long size, boolean link)
+        throws IOException {
+        Path duplicate = duplicateFinder.findDuplicate(path, size, directoryIndex.getFilesWithSize(size));
+        if (duplicate != null) {
+            log.info("File " + path.getFileName() + " has the same contents as " + duplicate
+                + ", suggesting this is a duplicate and so won't be moved");
+            return new SavedFile(duplicate, false);
+        }
+
+        String fileName = path.getFileName().toString();
+        Path newPath;
+        while (true) {
+            String newFileName = directoryIndex.reserve(fileName);
+            if (!newFileName.equals(fileName)) {
+                log.info(fileName + " already exists in " + directory + ", so using " + newFileName);
+            }
+            newPath = directory.resolve(newFileName);
+            log.info((link ? "Linking " : "Moving ") + newPath);
+            try {
+                if (link) {
+                    fileMover.link(path, newPath);
+                } else {
+                    fileMover.move(path, newPath);
+                }
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // Created by something else since the directory was listed, so leave the name reserved and try the next
+                log.info(newPath + " has been created by something else, trying the next free name");
+            } catch (IOException e) {
+                directoryIndex.release(newFileName);
+                throw e;
+            }
+        }
+        if (link) {
+            duplicateFinder.linked(path, newPath);
+        } else {
+            duplicateFinder.moved(path, newPath);
+        }
+        directoryIndex.addFile(newPath, size);
+        log.info((link ? "Linked " : "Moved ") + newPath);
+        return new SavedFile(newPath, true);
+    }
+
+    /**
+     * Find the file in the outputDirectory with the same contents as the given file, in the same way as
+     * {@link #saveFile(String, Path)}, but without moving anything
+     *
+     * @param outputDirectory the directory the file would be moved into, which may not exist yet
+     * @param path            the file
+     * @return the file with the same contents, or null if there isn't one
+     * @throws IOException if there is an issue reading the files
+     */
+    public Path findDuplicate(String outputDirectory, Path path) throws IOException {
+        return findDuplicate(outputDirectory, readAttributes(path));
+    }
+
+    /**
+     * Find the file in the outputDirectory with the same contents as the given file in the same way as
+     * {@link #findDuplicate(String, Path)}, using the size it had when it was scanned rather than reading it again
+     *
+     * @param outputDirectory the directory the file would be moved into, which may not exist yet
+     * @param file            the file
+     * @return the file with the same contents, or null if there isn't one
+     * @throws IOException if there is an issue reading the files
+     */
+    public Path findDuplicate(String outputDirectory, ScannedFile file) throws IOException {
+        Path path = file.path();
+        Path directory = new File(outputDirectory).toPath();
+        try (FileStoreLimiter.Permits permits = fileStoreLimiter.acquire(path.toAbsolutePath().getParent(),
+            directory)) {
+            OutputDirectoryIndex directoryIndex = getDirectoryIndex(directory);
+            return duplicateFinder.findDuplicate(path, file.size(), directoryIndex.getFilesWithSize(file.size()));
+        }
+    }
+
+    /**
+     * Read the attributes of a file that wasn't found by a scan
+     */
+    private ScannedFile readAttributes(Path path) throws IOException {
+        metadataCalls.attributesRead();
+        return ScannedFile.read(path);
+    }
+
+    /**
+     * Forget the contents of the output directories and the hashes of the files seen during a run, so they aren't
+     * held on to until the next one, which may find the output directories have been changed
+     */
+    public void finishRun() {
+        log.info("Looked for duplicates by reading " + duplicateFinder.getBytesRead() + " bytes, ruling out "
+            + duplicateFinder.getResolvedBySize() + " files by their size, saving "
+            + duplicateFinder.getBytesSavedBySize() + " bytes, deciding " + duplicateFinder.getResolvedByPartialHash()
+            + " files by the hash of their first and last " + ContentHashCache.PARTIAL_HASH_BYTES + " bytes, saving "
+            + duplicateFinder.getBytesSavedByPartialHash() + " bytes, and hashing "
+            + duplicateFinder.getResolvedByFullHash() + " files in full");
+        log.info("Read the metadata of files and directories with " + metadataCalls + " so far");
+        duplicateFinder.clear();
+        directoryIndexes.clear();
+    }
+
+    /**
+     * Create the given directory and any of its parents that don't exist, unless it has already been created by this
+     * dao, so that files being moved into the same directory don't each try to create it
+     *
+     * @param outputDirectory the directory to create
+     * @throws IOException if there is an issue creating the directory
+     */
+    public void createDirectory(String outputDirectory) throws IOException {
+        createDirectory(new File(outputDirectory).toPath());
+    }
+
+    private void createDirectory(Path directory) throws IOException {
+        if (createdDirectories.contains(directory)) {
+            return;
         }
 
         log.info("Ensuring output directory " + directory + " exists");
+        metadataCalls.attributesRead();
         createDirectories(directory);
-        Path newPath = new File(outputDirectory + separator + path.getFileName().toString()).toPath();
+        createdDirectories.add(directory);
+    }
+
+    /**
+     * Delete the given directories that are empty, deepest first, and then each of their parents under the root that
+     * are left empty by that, so a tree of directories emptied by a run is removed bottom up with each directory only
+     * listed once. A directory only holding Thumbs.db or .DS_Store is treated as empty. Each directory is deleted
+     * straight away, and only listed if that fails because it isn't empty, so an emptied directory isn't listed at
+     * all. A symbolic link to a directory, which the scan follows, is always listed first instead, as deleting it
+     * would remove the link whatever the directory it points to still holds. The directories at the same depth are
+     * deleted in parallel, and a directory that can't be deleted is logged and left where it is.
+     *
+     * @param directories the directories that may now be empty
+     * @param root        the directory to stop at, which is deleted too if it is left empty, or null to only delete
+     *                    the given directories
+     * @return the directories deleted
+     */
+    public List<Path> deleteEmptyDirectories(Collection<Path> directories, Path root) {
+        Path normalisedRoot = root == null ? null : root.toAbsolutePath().normalize();
+        TreeMap<Integer, Set<Path>> directoriesByDepth = new TreeMap<>(Comparator.reverseOrder());
+        for (Path directory : directories) {
+            addByDepth(directoriesByDepth, directory.toAbsolutePath().normalize());
+        }
+
+        log.info("Trying to delete " + directories.size() + " directories if they are empty");
+        List<Path> deleted = new ArrayList<>();
+        while (!directoriesByDepth.isEmpty()) {
+            Set<Path> level = directoriesByDepth.pollFirstEntry().getValue();
+            Queue<Path> deletedAtLevel = new ConcurrentLinkedQueue<>();
+            try (ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(directoryWalker.getParallelism(), level.size()))) {
+                for (Path directory : level) {
+                    executorService.submit(() -> {
+                        try {
+                            if (deleteIfEmpty(directory)) {
+                                deletedAtLevel.add(directory);
+                            }
+                        } catch (IOException e) {
+                            log.error("Could not delete " + directory, e);
+                        }
+                    });
+                }
+            }
 
-        if (exists(newPath)) {
-            if (Files.size(newPath) == Files.size(path)) {
-                log.info("File " + path.getFileName()
-                        + " with the same name and file size already exists, suggesting this is a duplicate and so won't be moved");
-                return;
+            for (Path directory : deletedAtLevel) {
+                deleted.add(directory);
+                Path parent = directory.getParent();
+                if (normalisedRoot != null && parent != null && parent.startsWith(normalisedRoot)) {
+                    addByDepth(directoriesByDepth, parent);
+                }
             }
-            int i = 0;
-            do {
-                log.info(newPath + " already exists, trying to increment filename index with " + i);
-                newPath = incrementFilenameIndex(outputDirectory, path, i);
-                i++;
-            } while (exists(newPath));
         }
+        log.info("Deleted " + deleted.size() + " empty directories");
+        return deleted;
+    }
 
-        log.info("Moving " + newPath);
-        move(path, newPath);
-        log.info("Moved " + newPath);
+    private static void addByDepth(Map<Integer, Set<Path>> directoriesByDepth, Path directory) {
+        directoriesByDepth.computeIfAbsent(directory.getNameCount(), depth -> new HashSet<>()).add(directory);
     }
 
-    public void deleteEmptyDirectory(Path path) throws IOException {
-        Path parent = path.getParent();
-        log.info("Trying to delete " + parent + " if it is empty");
-        try (Stream<Path> entries = list(parent)) {
-            if (entries.allMatch((entry) -> {
+    private boolean deleteIfEmpty(Path directory) throws IOException {
+        metadataCalls.attributesRead();
+        if (!isSymbolicLink(directory)) {
+            try {
+                Files.delete(directory);
+                log.info("Deleted " + directory);
+                return true;
+            } catch (DirectoryNotEmptyException e) {
+                log.debug(directory + " is not empty, so checking whether it only holds Thumbs.db or .DS_Store");
+            } catch (NoSuchFileException e) {
+                log.debug(directory + " has already been deleted");
+                return false;
+            }
+        }
+
+        try (Stream<Path> entries = list(directory)) {
+            metadataCalls.directoryListed();
+            if (!entries.allMatch(entry -> {
                 String fileName = entry.getFileName().toString();
                 return fileName.equals("Thumbs.db") || fileName.equals(".DS_Store");
             })) {
-                log.info("Deleting " + parent);
-                Files.deleteIfExists(parent.resolve("Thumbs.db"));
-                Files.deleteIfExists(parent.resolve(".DS_Store"));
-                Files.delete(parent);
-                log.info("Deleted " + parent);
-            } else {
-                log.info(parent + " is not empty");
+                log.debug(directory + " is not empty");
+                return false;
             }
+        } catch (NoSuchFileException e) {
+            log.debug(directory + " has already been deleted");
+            return false;
+        }
+
+        log.info("Deleting " + directory);
+        Files.deleteIfExists(directory.resolve("Thumbs.db"));
+        Files.deleteIfExists(directory.resolve(".DS_Store"));
+        try {
+            Files.delete(directory);
+        } catch (DirectoryNotEmptyException e) {
+            // Something has been added to it since it was listed
+            log.info(directory + " is no longer empty");
+            return false;
         }
+        return true;
     }
 
-    private void getFiles(Path directory, List<Path> images) throws IOException {
-        log.info("Getting files under " + directory);
-        List<Path> paths;
-        try (Stream<Path> entries = list(directory)) {
-            paths = entries.collect(toList());
+    /**
+     * Return whether the given file is one of the media types that can be organised
+     *
+     * @param path the file to check
+     * @return true if the file is media, false if it isn't or its type couldn't be detected
+     */
+    public boolean isMediaFile(Path path) {
+        if (trustExtensions) {
+            switch (getExtensionType(path.getFileName().toString())) {
+                case MEDIA:
+                    return true;
+                case NOT_MEDIA:
+                    log.debug(path + " does not have a media file extension.");
+                    return false;
+                default:
+                    break;
+            }
         }
-        log.info("Found a total of " + paths.size() + " entries under " + directory);
-        for (Path path : paths) {
-            if (isDirectory(path)) {
-                getFiles(path, images);
-                continue;
+
+        try {
+            String contentType = mimeTypeDetector.detectMimeType(path);
+            if (isMediaMimeType(contentType)) {
+                return true;
             }
+            log.debug(contentType + " is not a valid file type.");
+        } catch (GetBytesException exception) {
+            log.error("Exception thrown whilst trying to detect the mime type.", exception);
+        }
+        return false;
+    }
 
-            try {
-                String contentType = mimeTypeDetector.detectMimeType(path);
-                if (contentType != null && (contentType.equalsIgnoreCase(IMAGE_PNG)
-                        || contentType.equalsIgnoreCase(IMAGE_JPG) || contentType.equalsIgnoreCase(IMAGE_JPEG)
-                        || contentType.equalsIgnoreCase(IMAGE_HEIC) || contentType.equalsIgnoreCase(IMAGE_HEIF)
-                        || contentType.equalsIgnoreCase(IMAGE_TIFF)
-                        || contentType.equalsIgnoreCase(VIDEO_MP4) || contentType.equalsIgnoreCase(VIDEO_AVI_MS)
-                        || contentType.equalsIgnoreCase(VIDEO_AVI_UNIX)
-                        || contentType.equalsIgnoreCase(VIDEO_QUICKTIME))) {
-                    images.add(path);
-                } else {
-                    log.debug(contentType + " is not a valid file type.");
+    private OutputDirectoryIndex getDirectoryIndex(Path directory) throws IOException {
+        try {
+            return directoryIndexes.computeIfAbsent(directory, key -> {
+                try {
+                    return OutputDirectoryIndex.load(key, metadataCalls);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            } catch (GetBytesException exception) {
-                log.error("Exception thrown whilst trying to detect the mime type.", exception);
-                return;
-            }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        log.info("Finished traversing " + directory);
     }
 
-    private Path incrementFilenameIndex(String outputDirectory, Path path, int index) {
-        Path newPath;
-        String pathName = path.getFileName().toString();
-        String[] pathNames = pathName.split("\\.");
-        pathNames[pathNames.length - 2] = pathNames[pathNames.length - 2] + index;
-        newPath = new File(outputDirectory + separator + join(pathNames, ".")).toPath();
-        return newPath;
+    /**
+     * Where a file was saved to
+     *
+     * @param target the file in the output directory
+     * @param moved  true if the file was moved or linked there, or false if it was left where it was as a duplicate of
+     *               target
+     */
+    public record SavedFile(Path target, boolean moved) {
+    }
+
+    /**
+     * What a probe found out about a file
+     *
+     * @param media  true if the file is media
+     * @param header the start of the file, to read its metadata from, or null if the file isn't media
+     */
+    public record ProbedFile(boolean media, FileHeader header) {
     }
 }
@@ -0,0 +1,40 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls made to the file system for the metadata of files and directories, rather than their contents, so
+ * the number made for each file can be measured. Attribute reads include every call that stats a path, such as
+ * checking whether it exists, and a directory listing is counted once however many entries it has.
+ */
+public class MetadataCalls {
+    private final LongAdder attributeReads = new LongAdder();
+    private final LongAdder directoryListings = new LongAdder();
+
+    void attributesRead() {
+        attributeReads.increment();
+    }
+
+    void directoryListed() {
+        directoryListings.increment();
+    }
+
+    /**
+     * @return the number of times the attributes of a path have been read
+     */
+    public long getAttributeReads() {
+        return attributeReads.sum();
+    }
+
+    /**
+     * @return the number of directories listed
+     */
+    public long getDirectoryListings() {
+        return directoryListings.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getAttributeReads() + " attribute reads and " + getDirectoryListings() + " directory listings";
+    }
+}
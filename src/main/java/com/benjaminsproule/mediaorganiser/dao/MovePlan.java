@@ -0,0 +1,109 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.PlanEntry;
+import com.benjaminsproule.mediaorganiser.domain.PlannedMove;
+import com.benjaminsproule.mediaorganiser.util.JsonUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads the plan made by a dry run, one move per line as a JSON object, so it can be reviewed and then
+ * applied by a later run. Every path is written as an absolute one, so the plan can be applied from any directory
+ * whatever directory it was made from.
+ */
+public class MovePlan {
+
+    /**
+     * Write the plan, replacing any existing one in the planFile
+     *
+     * @param planFile the file to write the plan to
+     * @param entries  the moves in the plan, in the order they should be made
+     * @throws IOException if the planFile can't be written to
+     */
+    public static void write(Path planFile, Collection<PlanEntry> entries) throws IOException {
+        Path parent = planFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(planFile, StandardCharsets.UTF_8)) {
+            for (PlanEntry entry : entries) {
+                writer.write(toJson(entry));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Read a plan written by {@link #write(Path, Collection)}
+     *
+     * @param planFile the plan to read
+     * @return the moves in the plan, in the order they were written
+     * @throws IOException if the planFile can't be read or is not a plan
+     */
+    public static List<PlanEntry> read(Path planFile) throws IOException {
+        List<PlanEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(planFile, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(fromJson(JsonUtil.parseObject(line)));
+                } catch (RuntimeException e) {
+                    throw new IOException("Line " + lineNumber + " of " + planFile + " is not a planned move", e);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String toJson(PlanEntry entry) {
+        PlannedMove move = entry.move();
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("source", absolute(move.path()));
+        fields.put("size", move.size());
+        fields.put("date", move.fileDate().dateTime());
+        fields.put("dateSource", move.fileDate().source());
+        fields.put("targetDirectory", absolute(Path.of(move.targetDirectory())));
+        fields.put("duplicateOf", entry.duplicateOf() == null ? null : absolute(entry.duplicateOf()));
+        return JsonUtil.toJson(fields);
+    }
+
+    private static Path absolute(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static PlanEntry fromJson(Map<String, String> fields) {
+        FileDate fileDate = new FileDate(ZonedDateTime.parse(required(fields, "date")),
+            DateSource.valueOf(required(fields, "dateSource")));
+        PlannedMove move = new PlannedMove(Path.of(required(fields, "source")),
+            Long.parseLong(required(fields, "size")), fileDate, required(fields, "targetDirectory"));
+        String duplicateOf = fields.get("duplicateOf");
+        return new PlanEntry(move, duplicateOf == null ? null : Path.of(duplicateOf));
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value;
+    }
+}
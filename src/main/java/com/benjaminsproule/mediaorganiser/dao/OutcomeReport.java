@@ -0,0 +1,201 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome.Status;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
+import com.benjaminsproule.mediaorganiser.util.JsonUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A report of what happened to each file in an organise run, written as one JSON object per line. Any number of
+ * workers can record outcomes at once, and a single writer thread streams them to the file, so the outcomes don't
+ * need to be held in memory until the end of the run.
+ */
+@Slf4j
+public class OutcomeReport implements Closeable {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final long WRITER_CHECK_MILLIS = 100L;
+    private static final FileOutcome END_OF_OUTCOMES = new FileOutcome(null, null, null, null, null, null);
+
+    @Getter
+    private final Path reportFile;
+    private final BlockingQueue<FileOutcome> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BufferedWriter writer;
+    private final Thread writerThread;
+    private volatile IOException failure;
+
+    private OutcomeReport(Path reportFile) throws IOException {
+        this.reportFile = reportFile;
+        this.writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+        this.writerThread = new Thread(this::writeOutcomes, "outcome-report-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Start a new report, replacing any existing one in the reportFile
+     *
+     * @param reportFile the file to write the report to
+     * @return the report
+     * @throws IOException if the reportFile can't be written to
+     */
+    public static OutcomeReport open(Path reportFile) throws IOException {
+        Path parent = reportFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new OutcomeReport(reportFile);
+    }
+
+    /**
+     * Record the outcome of a file, waiting if the writer has fallen too far behind
+     *
+     * @param outcome the outcome to record
+     * @throws IllegalStateException if the writer has stopped, so the outcome would never be written
+     */
+    public void record(FileOutcome outcome) {
+        if (!enqueue(outcome)) {
+            throw new IllegalStateException("The report " + reportFile
+                + " is no longer being written, so the outcome of " + outcome.source() + " can't be recorded");
+        }
+    }
+
+    /**
+     * Queue the outcome for the writer, checking the writer is still running whilst waiting for space so that a
+     * worker is never left waiting on a writer that has stopped
+     *
+     * @return whether the outcome was queued
+     */
+    private boolean enqueue(FileOutcome outcome) {
+        try {
+            while (writerThread.isAlive()) {
+                if (queue.offer(outcome, WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst waiting to record the outcome of " + outcome.source(),
+                e);
+        }
+    }
+
+    /**
+     * Write any outcomes still waiting to be written and close the report
+     *
+     * @throws IOException if any of the outcomes could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        enqueue(END_OF_OUTCOMES);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst waiting for the report to be written", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Summarise a report written by {@link OutcomeReport}
+     *
+     * @param reportFile the report to summarise
+     * @return the number of files with each status and the reasons files couldn't be organised
+     * @throws IOException if the report can't be read
+     */
+    public static OutcomeSummary summarise(Path reportFile) throws IOException {
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        List<String> errors = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(reportFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<String, String> fields = JsonUtil.parseObject(line);
+                Status status = Status.valueOf(fields.get("status"));
+                counts.merge(status, 1L, Long::sum);
+                if ((status == Status.UNDATABLE || status == Status.FAILED) && fields.get("message") != null) {
+                    errors.add(fields.get("message"));
+                }
+            }
+        }
+        return new OutcomeSummary(reportFile, counts, errors);
+    }
+
+    private void writeOutcomes() {
+        try {
+            FileOutcome outcome;
+            while ((outcome = queue.take()) != END_OF_OUTCOMES) {
+                write(outcome);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IOException("Interrupted whilst writing the report " + reportFile, e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the outcome, unless an earlier one couldn't be written, in which case it is dropped so that the workers
+     * recording outcomes are never left waiting on a writer that has stopped
+     */
+    private void write(FileOutcome outcome) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            writer.write(toJson(outcome));
+            writer.newLine();
+            if (queue.isEmpty()) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            log.error("Could not write to the report " + reportFile, e);
+            failure = e;
+        } catch (RuntimeException e) {
+            log.error("Could not write to the report " + reportFile, e);
+            failure = new IOException("Could not write to the report " + reportFile, e);
+        }
+    }
+
+    private static String toJson(FileOutcome outcome) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("status", outcome.status());
+        fields.put("source", outcome.source());
+        fields.put("target", outcome.target());
+        fields.put("date", outcome.fileDate() == null ? null : outcome.fileDate().dateTime());
+        fields.put("dateSource", outcome.fileDate() == null ? null : outcome.fileDate().source());
+        fields.put("elapsedMillis", outcome.elapsed() == null ? null : outcome.elapsed().toMillis());
+        fields.put("message", outcome.message());
+        return JsonUtil.toJson(fields);
+    }
+}
@@ -0,0 +1,149 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The names in an output directory, and its files grouped by size, listed once when the directory is first saved into
+ * and then kept up to date as files are moved into it. Neither finding the files that could be duplicates of a file
+ * nor finding a free name for it needs the directory to be listed again or probed a name at a time.
+ * <p>
+ * Each index is locked on its own, so workers saving into different directories never wait for each other. Saving a
+ * file also holds a lock on the files of its size, from checking for a duplicate until the file has been added.
+ */
+class OutputDirectoryIndex {
+    private final Map<Long, List<Path>> filesBySize = new HashMap<>();
+    private final Set<String> names = new HashSet<>();
+    private final Map<String, Integer> nextIndexes = new HashMap<>();
+    private final Map<Long, Lock> sizeLocks = new HashMap<>();
+
+    /**
+     * List the given directory, which may not exist yet
+     *
+     * @param directory the output directory
+     * @return the index of the files already in the directory
+     * @throws IOException if the directory can't be listed
+     */
+    static OutputDirectoryIndex load(Path directory) throws IOException {
+        return load(directory, new MetadataCalls());
+    }
+
+    /**
+     * List the given directory, which may not exist yet, counting the attribute reads and listing made
+     *
+     * @param directory     the output directory
+     * @param metadataCalls where to count the calls made
+     * @return the index of the files already in the directory
+     * @throws IOException if the directory can't be listed
+     */
+    static OutputDirectoryIndex load(Path directory, MetadataCalls metadataCalls) throws IOException {
+        OutputDirectoryIndex index = new OutputDirectoryIndex();
+        metadataCalls.attributesRead();
+        if (!Files.isDirectory(directory)) {
+            return index;
+        }
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            metadataCalls.directoryListed();
+            for (Path entry : entries) {
+                index.names.add(entry.getFileName().toString());
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                metadataCalls.attributesRead();
+                if (attributes.isRegularFile()) {
+                    index.addFile(entry, attributes.size());
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Lock the files of the given size, waiting for any other file of that size being saved into the directory, so
+     * checking a file for duplicates, moving it in and adding it can be done as one step. Only files of the same size
+     * can be duplicates of each other, so files of other sizes aren't held up.
+     *
+     * @param size the size of the file being saved
+     * @return the lock, which has been locked and must be unlocked once the file has been added or found to be a
+     * duplicate
+     */
+    Lock lockSize(long size) {
+        Lock lock;
+        synchronized (this) {
+            lock = sizeLocks.computeIfAbsent(size, key -> new ReentrantLock());
+        }
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * @param size the size of file to find
+     * @return the files in the directory with the given size
+     */
+    synchronized List<Path> getFilesWithSize(long size) {
+        List<Path> files = filesBySize.get(size);
+        return files == null ? List.of() : new ArrayList<>(files);
+    }
+
+    /**
+     * Record that a file has been added to the directory under a name reserved for it
+     *
+     * @param path the file
+     * @param size the size of the file
+     */
+    synchronized void addFile(Path path, long size) {
+        filesBySize.computeIfAbsent(size, key -> new ArrayList<>(1)).add(path);
+    }
+
+    /**
+     * Reserve the given file name, or if it is taken, the same name with the next free index added to it. The next
+     * reservation of the same name carries on from the last index given out, rather than trying each index again.
+     *
+     * @param fileName the name wanted for the file
+     * @return the reserved name, which no other call will return until it is released
+     */
+    synchronized String reserve(String fileName) {
+        if (names.add(fileName)) {
+            return fileName;
+        }
+
+        int index = nextIndexes.getOrDefault(fileName, 0);
+        String indexedName = indexedName(fileName, index);
+        while (!names.add(indexedName)) {
+            index++;
+            indexedName = indexedName(fileName, index);
+        }
+        nextIndexes.put(fileName, index + 1);
+        return indexedName;
+    }
+
+    /**
+     * Release a name reserved for a file that wasn't added to the directory after all
+     *
+     * @param fileName the reserved name
+     */
+    synchronized void release(String fileName) {
+        names.remove(fileName);
+    }
+
+    /**
+     * Add the index to the end of the file name, before its extension
+     */
+    static String indexedName(String fileName, int index) {
+        int extension = fileName.lastIndexOf('.');
+        if (extension <= 0) {
+            return fileName + index;
+        }
+        return fileName.substring(0, extension) + index + fileName.substring(extension);
+    }
+}
@@ -0,0 +1,191 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A record of the files that a date could not be found for, so that later runs can skip them without reading their
+ * metadata again. A file is only skipped whilst its size and last modified time are the same as when it was recorded.
+ */
+@Slf4j
+public class UndatableFileCache {
+    private static final int MAGIC = 0x4d4f5543;
+    private static final int VERSION = 1;
+
+    private final Path cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> seenKeys = ConcurrentHashMap.newKeySet();
+
+    private UndatableFileCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Load the cache from the given file, starting with an empty cache if the file doesn't exist or can't be read
+     *
+     * @param cacheFile the file the cache is stored in
+     * @return the loaded cache
+     */
+    public static UndatableFileCache load(Path cacheFile) {
+        UndatableFileCache cache = new UndatableFileCache(cacheFile);
+        if (Files.notExists(cacheFile)) {
+            log.info("No undatable file cache found at " + cacheFile + ", so starting with an empty one");
+            return cache;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                log.warn(cacheFile + " is not an undatable file cache this version understands, so ignoring it");
+                return cache;
+            }
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                cache.entries.put(input.readUTF(), new Entry(input.readLong(), input.readLong()));
+            }
+            log.info("Loaded " + size + " undatable files from " + cacheFile);
+        } catch (IOException e) {
+            log.error("Could not read the undatable file cache " + cacheFile + ", so starting with an empty one", e);
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Return whether the given file has been recorded as undatable and hasn't changed since.
+     *
+     * @param path the file to check
+     * @return true if the file is unchanged since it was recorded, false otherwise
+     * @throws IOException if the attributes of the file can't be read
+     */
+    public boolean contains(Path path) throws IOException {
+        return entries.containsKey(key(path)) && contains(ScannedFile.read(path));
+    }
+
+    /**
+     * Return whether the given file has been recorded as undatable and hasn't changed since, going by the attributes
+     * read for it when it was scanned rather than reading them again.
+     *
+     * @param file the file to check
+     * @return true if the file is unchanged since it was recorded, false otherwise
+     */
+    public boolean contains(ScannedFile file) {
+        Entry entry = entries.get(key(file.path()));
+        return entry != null && entry.equals(Entry.of(file));
+    }
+
+    /**
+     * Record the given file as undatable, along with its current size and last modified time
+     *
+     * @param path the file to record
+     * @throws IOException if the attributes of the file can't be read
+     */
+    public void add(Path path) throws IOException {
+        add(ScannedFile.read(path));
+    }
+
+    /**
+     * Record the given file as undatable, along with the size and last modified time it had when it was scanned
+     *
+     * @param file the file to record
+     */
+    public void add(ScannedFile file) {
+        String key = key(file.path());
+        entries.put(key, Entry.of(file));
+        seenKeys.add(key);
+    }
+
+    /**
+     * Forget the given file, for when a date has since been found for it
+     *
+     * @param path the file to forget
+     */
+    public void remove(Path path) {
+        entries.remove(key(path));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Note that the given file was found by a scan, so that it is kept by {@link #forgetUnseen(Path)}
+     *
+     * @param path the file found
+     */
+    public void seen(Path path) {
+        String key = key(path);
+        if (entries.containsKey(key)) {
+            seenKeys.add(key);
+        }
+    }
+
+    /**
+     * Forget the files under the root that weren't found by the scan of it, as they have since been moved, renamed or
+     * deleted, so the cache doesn't keep growing with files that will never be seen again. Only what the scan found is
+     * used, so nothing is read from the file system, and files outside the root, such as those on a drive that isn't
+     * mounted, are kept.
+     *
+     * @param root the directory that was scanned in full
+     */
+    public void forgetUnseen(Path root) {
+        Path rootKey = Path.of(key(root));
+        int before = entries.size();
+        entries.keySet().removeIf(key -> !seenKeys.contains(key) && Path.of(key).startsWith(rootKey));
+        if (entries.size() < before) {
+            log.info("Forgot " + (before - entries.size()) + " undatable files no longer under " + root);
+        }
+    }
+
+    /**
+     * Write the cache back to the file it was loaded from
+     *
+     * @throws IOException if there is an issue writing the file
+     */
+    public void save() throws IOException {
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                Map<String, Entry> snapshot = Map.copyOf(entries);
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue().size());
+                    output.writeLong(entry.getValue().lastModifiedMillis());
+                }
+            }
+            Files.move(tempFile, cacheFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        log.info("Saved " + entries.size() + " undatable files to " + cacheFile);
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private record Entry(long size, long lastModifiedMillis) {
+        private static Entry of(ScannedFile file) {
+            return new Entry(file.size(), file.lastModifiedTime().toMillis());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+/**
+ * Where the date of a file came from
+ */
+public enum DateSource {
+    EXIF,
+    MP4_MEDIA,
+    MP4,
+    QUICKTIME,
+    FILE_NAME
+}
@@ -0,0 +1,9 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import java.time.ZonedDateTime;
+
+/**
+ * The date of a file and where it came from
+ */
+public record FileDate(ZonedDateTime dateTime, DateSource source) {
+}
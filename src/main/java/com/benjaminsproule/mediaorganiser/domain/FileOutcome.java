@@ -0,0 +1,51 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * What happened to a single file during an organise run
+ *
+ * @param status     what happened to the file
+ * @param source     where the file was
+ * @param target     where the file was moved or linked to, or the file it was a duplicate of, or null if it wasn't
+ *                   moved and wasn't a duplicate
+ * @param fileDate   the date of the file, or null if one wasn't found
+ * @param elapsed    how long was spent organising the file
+ * @param message    why the file wasn't organised, or null if it was
+ */
+public record FileOutcome(Status status, Path source, Path target, FileDate fileDate, Duration elapsed,
+                          String message) {
+
+    public enum Status {
+        /**
+         * The file was moved into the output directory
+         */
+        MOVED,
+        /**
+         * The file was linked or copied into the output directory, and left where it was too
+         */
+        LINKED,
+        /**
+         * The file was left where it was, as a file with the same contents is already in the output directory
+         */
+        DUPLICATE_SKIPPED,
+        /**
+         * A date could not be found for the file
+         */
+        UNDATABLE,
+        /**
+         * The file was not looked at, as a date could not be found for it on a previous run
+         */
+        PREVIOUSLY_UNDATABLE,
+        /**
+         * A move of the file was planned by a dry run, but nothing was moved, with the file it looked like a
+         * duplicate of as the target if there was one
+         */
+        PLANNED,
+        /**
+         * The file could not be organised
+         */
+        FAILED
+    }
+}
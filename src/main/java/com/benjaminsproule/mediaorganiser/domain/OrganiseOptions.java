@@ -0,0 +1,83 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import com.benjaminsproule.mediaorganiser.util.FileDateUtil;
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+
+@Value
+@Builder
+public class OrganiseOptions {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    public static final int DEFAULT_MOVE_PARALLELISM = 16;
+
+    /**
+     * Whether to start organising files as soon as they are found, rather than waiting for the whole input directory
+     * to be scanned first
+     */
+    @Builder.Default
+    boolean streaming = false;
+
+    /**
+     * The maximum number of found files waiting to be organised when streaming
+     */
+    @Builder.Default
+    int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    /**
+     * The number of files to read the metadata of at the same time, which is mostly bound by the CPU
+     */
+    @Builder.Default
+    int planParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of files to check for duplicates and move at the same time across every file store, which is mostly
+     * bound by the disks. How many of them use any one file store at once is limited separately by the dao.
+     */
+    @Builder.Default
+    int moveParallelism = DEFAULT_MOVE_PARALLELISM;
+
+    /**
+     * Whether to run each file on its own virtual thread, with the plan and move parallelism limiting how many run at
+     * once, rather than on fixed pools of that many platform threads. Suits file stores with a high latency, where a
+     * higher parallelism keeps more requests in flight without a platform thread blocked on each.
+     */
+    @Builder.Default
+    boolean virtualThreads = false;
+
+    /**
+     * Whether to link the files into the output directory, leaving them where they are as well, rather than moving
+     * them. A hard link is made where the file and the output directory are on the same file store, so no data is
+     * copied, and otherwise the file is copied.
+     */
+    @Builder.Default
+    boolean link = false;
+
+    /**
+     * The file to record undatable files in, so they can be skipped by later runs, or null to not record them
+     */
+    Path undatableCacheFile;
+
+    /**
+     * Whether to try to date files that previous runs recorded as undatable
+     */
+    @Builder.Default
+    boolean recheckUndatable = false;
+
+    /**
+     * The maximum number of bytes of each file to read when looking for a date in its metadata, before falling back to
+     * reading all of it, or 0 to always read all of it
+     */
+    @Builder.Default
+    int maxMetadataBytes = FileDateUtil.DEFAULT_MAX_METADATA_BYTES;
+
+    /**
+     * The file to write the outcome of each file to, or null to write it to a temporary file
+     */
+    Path reportFile;
+
+    public static OrganiseOptions defaults() {
+        return OrganiseOptions.builder().build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome.Status;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A summary of the outcomes of an organise run, read from its report
+ *
+ * @param reportFile the report the outcome of each file was written to, or null if no report file was asked for, in
+ *                   which case the outcomes were only kept until they had been summarised
+ * @param counts     the number of files with each status
+ * @param errors     why each file that couldn't be organised wasn't
+ */
+public record OutcomeSummary(Path reportFile, Map<Status, Long> counts, List<String> errors) {
+
+    public long getCount(Status status) {
+        return counts.getOrDefault(status, 0L);
+    }
+}
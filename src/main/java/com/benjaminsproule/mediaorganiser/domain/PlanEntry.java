@@ -0,0 +1,12 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import java.nio.file.Path;
+
+/**
+ * A move in a plan written by a dry run, with whether the file looked like a duplicate when the plan was made
+ *
+ * @param move        the planned move
+ * @param duplicateOf the file already in the target directory with the same contents, or null if there wasn't one
+ */
+public record PlanEntry(PlannedMove move, Path duplicateOf) {
+}
@@ -0,0 +1,24 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * A file, its size and date, and the directory it is to be moved into
+ *
+ * @param path            the file to move
+ * @param size            the size of the file in bytes
+ * @param fileDate        the date of the file
+ * @param targetDirectory the directory to move the file into
+ */
+public record PlannedMove(Path path, long size, FileDate fileDate, String targetDirectory) {
+
+    /**
+     * Orders moves by the directory the file is in and then by the directory it is moving to, so that moves from and
+     * to the same directories are made one after another
+     */
+    public static final Comparator<PlannedMove> LOCALITY_ORDER = Comparator
+        .comparing((PlannedMove plannedMove) -> String.valueOf(plannedMove.path().toAbsolutePath().getParent()))
+        .thenComparing(PlannedMove::targetDirectory)
+        .thenComparing(plannedMove -> plannedMove.path().getFileName().toString());
+}
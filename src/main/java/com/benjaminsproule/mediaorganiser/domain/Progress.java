@@ -1,29 +1,166 @@
 package com.benjaminsproule.mediaorganiser.domain;
 
-import lombok.Getter;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * The progress of a single organise run. The counters are {@link LongAdder}s, so any number of workers can update
+ * them at once without losing counts. Listeners are told about the progress as it is made, no more often than the
+ * interval they subscribed with, rather than having to poll it.
+ */
 public class Progress {
-    @Getter
-    private static int totalNumberOfFiles;
-    @Getter
-    private static int numberOfFilesProcessed;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder totalNumberOfFiles = new LongAdder();
+    private final LongAdder numberOfFilesProcessed = new LongAdder();
+    private final LongAdder bytesProcessed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder skippedDuplicates = new LongAdder();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
 
-    public static void setTotalNumberOfFiles(int numberOfFiles) {
-        totalNumberOfFiles = numberOfFiles;
+    /**
+     * Tell the listener about the progress as it changes, no more than once per interval, and once more when the run
+     * finishes
+     *
+     * @param listener       the listener to tell
+     * @param intervalMillis the minimum number of milliseconds between telling the listener
+     */
+    public void subscribe(ProgressListener listener, long intervalMillis) {
+        subscriptions.add(new Subscription(listener, TimeUnit.MILLISECONDS.toNanos(intervalMillis)));
     }
 
     /**
-     * Set the total number of files and number of files processed to zero
+     * Stop telling the listener about the progress
+     *
+     * @param listener the listener to stop telling
      */
-    public static void reset() {
-        totalNumberOfFiles = 0;
-        numberOfFilesProcessed = 0;
+    public void unsubscribe(ProgressListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Increase the total number of files by the given number, for when the files to organise have been found
+     */
+    public void addTotalNumberOfFiles(long numberOfFiles) {
+        totalNumberOfFiles.add(numberOfFiles);
+        changed();
+    }
+
+    /**
+     * Increment the total number of files by one, for when files are found whilst others are being processed
+     */
+    public void incTotal() {
+        totalNumberOfFiles.increment();
+        changed();
+    }
+
+    /**
+     * Decrement the total number of files by one, for when a file found turns out not to be one to organise
+     */
+    public void decTotal() {
+        totalNumberOfFiles.decrement();
+        changed();
     }
 
     /**
      * Increment the number of files processed by one
      */
-    public static void inc() {
-        numberOfFilesProcessed++;
+    public void inc() {
+        numberOfFilesProcessed.increment();
+        changed();
+    }
+
+    /**
+     * Increase the number of bytes of the files processed by the given number
+     */
+    public void addBytes(long bytes) {
+        bytesProcessed.add(bytes);
+    }
+
+    /**
+     * Increment the number of files that could not be organised by one
+     */
+    public void incErrors() {
+        errors.increment();
+    }
+
+    /**
+     * Increment the number of files left where they were as they were already in the output directory by one
+     */
+    public void incSkippedDuplicates() {
+        skippedDuplicates.increment();
+    }
+
+    public long getTotalNumberOfFiles() {
+        return totalNumberOfFiles.sum();
+    }
+
+    public long getNumberOfFilesProcessed() {
+        return numberOfFilesProcessed.sum();
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getSkippedDuplicates() {
+        return skippedDuplicates.sum();
+    }
+
+    /**
+     * @return the progress so far
+     */
+    public ProgressSnapshot snapshot() {
+        return new ProgressSnapshot(getTotalNumberOfFiles(), getNumberOfFilesProcessed(), getBytesProcessed(),
+            getErrors(), getSkippedDuplicates(), Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Tell every listener about the final progress, however recently they were last told
+     */
+    public void finish() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ProgressSnapshot snapshot = snapshot();
+        for (Subscription subscription : subscriptions) {
+            subscription.listener.onProgress(snapshot);
+        }
+    }
+
+    private void changed() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        ProgressSnapshot snapshot = null;
+        for (Subscription subscription : subscriptions) {
+            long due = subscription.dueNanos.get();
+            if (now - due >= 0 && subscription.dueNanos.compareAndSet(due, now + subscription.intervalNanos)) {
+                if (snapshot == null) {
+                    snapshot = snapshot();
+                }
+                subscription.listener.onProgress(snapshot);
+            }
+        }
+    }
+
+    private static class Subscription {
+        private final ProgressListener listener;
+        private final long intervalNanos;
+        private final AtomicLong dueNanos;
+
+        private Subscription(ProgressListener listener, long intervalNanos) {
+            this.listener = listener;
+            this.intervalNanos = intervalNanos;
+            this.dueNanos = new AtomicLong(System.nanoTime());
+        }
     }
 }
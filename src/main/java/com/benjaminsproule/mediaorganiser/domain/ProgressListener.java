@@ -0,0 +1,10 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+/**
+ * Told about the progress of an organise run as it is made. It is called from the threads doing the organising, so
+ * should return quickly.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    void onProgress(ProgressSnapshot snapshot);
+}
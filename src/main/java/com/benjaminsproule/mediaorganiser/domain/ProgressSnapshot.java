@@ -0,0 +1,52 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import java.time.Duration;
+
+/**
+ * The progress of an organise run at a point in time
+ *
+ * @param totalNumberOfFiles     the number of files found to organise
+ * @param numberOfFilesProcessed the number of files organised, or that could not be
+ * @param bytesProcessed         the number of bytes of the files moved
+ * @param errors                 the number of files that could not be organised
+ * @param skippedDuplicates      the number of files left where they were as they were already in the output
+ *                               directory
+ * @param elapsed                how long the run has been going
+ */
+public record ProgressSnapshot(long totalNumberOfFiles, long numberOfFilesProcessed, long bytesProcessed,
+                               long errors, long skippedDuplicates, Duration elapsed) {
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    /**
+     * @return the percentage of the files found that have been processed, or 0 if none have been found
+     */
+    public double getPercentComplete() {
+        return totalNumberOfFiles == 0 ? 0 : (double) numberOfFilesProcessed / totalNumberOfFiles * 100;
+    }
+
+    public double getFilesPerSecond() {
+        return perSecond(numberOfFilesProcessed);
+    }
+
+    public double getMegabytesPerSecond() {
+        return perSecond(bytesProcessed) / BYTES_PER_MEGABYTE;
+    }
+
+    /**
+     * @return how much longer processing the files found so far should take at the current rate, or null if no
+     * files have been processed yet
+     */
+    public Duration getEstimatedTimeRemaining() {
+        double filesPerSecond = getFilesPerSecond();
+        if (filesPerSecond <= 0) {
+            return null;
+        }
+        long remaining = Math.max(0, totalNumberOfFiles - numberOfFilesProcessed);
+        return Duration.ofMillis(Math.round(remaining / filesPerSecond * 1000));
+    }
+
+    private double perSecond(long count) {
+        long elapsedNanos = elapsed.toNanos();
+        return elapsedNanos <= 0 ? 0 : count / (elapsedNanos / 1_000_000_000d);
+    }
+}
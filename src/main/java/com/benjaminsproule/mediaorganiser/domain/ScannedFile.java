@@ -0,0 +1,39 @@
+package com.benjaminsproule.mediaorganiser.domain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A file found by a scan, along with the attributes read for it whilst listing its directory, so that none of the
+ * later stages need to read them from the file system again
+ *
+ * @param path             the file
+ * @param size             the size of the file in bytes
+ * @param lastModifiedTime when the file was last modified
+ * @param fileKey          what uniquely identifies the file on its file system, or null if that isn't available
+ */
+public record ScannedFile(Path path, long size, FileTime lastModifiedTime, Object fileKey) {
+
+    /**
+     * @param path       the file
+     * @param attributes the attributes read for the file
+     * @return the file with the given attributes
+     */
+    public static ScannedFile of(Path path, BasicFileAttributes attributes) {
+        return new ScannedFile(path, attributes.size(), attributes.lastModifiedTime(), attributes.fileKey());
+    }
+
+    /**
+     * Read the attributes of a file that wasn't found by a scan, such as one that has just been created
+     *
+     * @param path the file
+     * @return the file with its current attributes
+     * @throws IOException if the attributes of the file can't be read
+     */
+    public static ScannedFile read(Path path) throws IOException {
+        return of(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+}
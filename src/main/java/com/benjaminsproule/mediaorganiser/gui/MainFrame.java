@@ -2,7 +2,9 @@ package com.benjaminsproule.mediaorganiser.gui;
 
 import com.benjaminsproule.mediaorganiser.dao.MediaDao;
 import com.benjaminsproule.mediaorganiser.domain.DateConstants;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
 import com.benjaminsproule.mediaorganiser.domain.Progress;
+import com.benjaminsproule.mediaorganiser.domain.ProgressSnapshot;
 import com.benjaminsproule.mediaorganiser.service.MediaService;
 import lombok.extern.slf4j.Slf4j;
 
@@ -12,6 +14,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.text.DecimalFormat;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -21,11 +24,13 @@ import java.util.concurrent.Future;
 import static javax.swing.JFileChooser.APPROVE_OPTION;
 import static javax.swing.JFileChooser.DIRECTORIES_ONLY;
 import static javax.swing.JOptionPane.showMessageDialog;
+import static javax.swing.SwingUtilities.invokeLater;
 
 @Slf4j
 public class MainFrame extends JFrame {
     private static final long serialVersionUID = 1L;
     private static final DecimalFormat decimalFormat = new DecimalFormat("#.00");
+    private static final long PROGRESS_INTERVAL_MILLIS = 100L;
 
     private JLabel inputDirectoryPathLabel;
     private JLabel outputDirectoryPathLabel;
@@ -38,7 +43,7 @@ public class MainFrame extends JFrame {
 
     public MainFrame() {
         super("Media Organiser");
-        executorService = Executors.newFixedThreadPool(2);
+        executorService = Executors.newSingleThreadExecutor();
         mediaService = new MediaService(new MediaDao());
         initUi();
     }
@@ -161,9 +166,12 @@ public class MainFrame extends JFrame {
                     organise.setEnabled(false);
                     String format = buttonGroup.getSelection().getActionCommand();
 
-                    List<String> errorMessages = mediaService.organise(inputDirectory.getAbsolutePath(),
-                        outputDirectory.getAbsolutePath(), format);
-                    errors.addAll(errorMessages);
+                    Progress runProgress = new Progress();
+                    runProgress.subscribe(snapshot -> invokeLater(() -> progress.setText(getProgressText(snapshot))),
+                        PROGRESS_INTERVAL_MILLIS);
+                    OutcomeSummary summary = mediaService.organise(inputDirectory.getAbsolutePath(),
+                        outputDirectory.getAbsolutePath(), format, runProgress);
+                    errors.addAll(summary.errors());
                 } catch (Exception e) {
                     showMessageDialog(null, e.getLocalizedMessage());
                 }
@@ -187,24 +195,6 @@ public class MainFrame extends JFrame {
             });
         });
 
-        executorService.submit(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(100L);
-                } catch (InterruptedException e) {
-                    log.error(e.getLocalizedMessage(), e);
-                }
-                String text = Progress.getNumberOfFilesProcessed() + "/" + Progress.getTotalNumberOfFiles();
-                if (Progress.getTotalNumberOfFiles() > 0) {
-                    double decimalTotal = (double) Progress.getNumberOfFilesProcessed() / Progress.getTotalNumberOfFiles();
-                    text += " (" + (decimalFormat.format(decimalTotal * 100)) + "%)";
-                } else {
-                    text += " (0%)";
-                }
-                progress.setText(text);
-            }
-        });
-
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent windowEvent) {
@@ -222,4 +212,20 @@ public class MainFrame extends JFrame {
 
         this.pack();
     }
+
+    private static String getProgressText(ProgressSnapshot snapshot) {
+        String text = snapshot.numberOfFilesProcessed() + "/" + snapshot.totalNumberOfFiles();
+        if (snapshot.totalNumberOfFiles() > 0) {
+            text += " (" + decimalFormat.format(snapshot.getPercentComplete()) + "%, "
+                + decimalFormat.format(snapshot.getFilesPerSecond()) + " files/s";
+            Duration remaining = snapshot.getEstimatedTimeRemaining();
+            if (remaining != null) {
+                text += ", " + remaining.toSeconds() + "s left";
+            }
+            text += ")";
+        } else {
+            text += " (0%)";
+        }
+        return text;
+    }
 }
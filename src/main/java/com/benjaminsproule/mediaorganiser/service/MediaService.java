@@ -1,30 +1,67 @@
 package com.benjaminsproule.mediaorganiser.service;
 
 import com.benjaminsproule.mediaorganiser.dao.MediaDao;
+import com.benjaminsproule.mediaorganiser.dao.MediaDao.ProbedFile;
+import com.benjaminsproule.mediaorganiser.dao.MediaDao.SavedFile;
+import com.benjaminsproule.mediaorganiser.dao.MovePlan;
+import com.benjaminsproule.mediaorganiser.dao.OutcomeReport;
+import com.benjaminsproule.mediaorganiser.dao.UndatableFileCache;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome.Status;
+import com.benjaminsproule.mediaorganiser.domain.OrganiseOptions;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
+import com.benjaminsproule.mediaorganiser.domain.PlanEntry;
+import com.benjaminsproule.mediaorganiser.domain.PlannedMove;
 import com.benjaminsproule.mediaorganiser.domain.Progress;
+import com.benjaminsproule.mediaorganiser.domain.ProgressListener;
+import com.benjaminsproule.mediaorganiser.domain.ProgressSnapshot;
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
 import com.benjaminsproule.mediaorganiser.exception.InvalidDateException;
+import com.benjaminsproule.mediaorganiser.util.DateSourcePredictor;
+import com.benjaminsproule.mediaorganiser.util.FileDateUtil;
+import com.benjaminsproule.mediaorganiser.util.FileHeader;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.DecimalFormat;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-
-import static com.benjaminsproule.mediaorganiser.util.FileDateUtil.getDateFromFile;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 public class MediaService {
-    private static final DecimalFormat decimalFormat = new DecimalFormat("#.00");
+    private static final long LOG_PROGRESS_INTERVAL_MILLIS = 1000L;
+    private static final ScannedFile END_OF_FILES = new ScannedFile(Path.of(""), 0L, null, null);
 
     private final MediaDao mediaDao;
+    private final OrganiseOptions options;
+    private final DateSourcePredictor dateSourcePredictor = new DateSourcePredictor();
 
     public MediaService(MediaDao mediaDao) {
+        this(mediaDao, OrganiseOptions.defaults());
+    }
+
+    public MediaService(MediaDao mediaDao, OrganiseOptions options) {
         this.mediaDao = mediaDao;
+        this.options = options;
     }
 
     /**
@@ -34,45 +71,560 @@ public class MediaService {
      * @param inputDirectory  the directory of the files to organise
      * @param outputDirectory the directory to move the files into
      * @param outputFormat    the format of the folder names
-     * @return a list of errors
+     * @return a summary of what happened to the files
      * @throws IOException          if there is an issue with the file being read
      */
-    public List<String> organise(String inputDirectory, String outputDirectory, String outputFormat)
+    public OutcomeSummary organise(String inputDirectory, String outputDirectory, String outputFormat)
         throws IOException {
-        Progress.reset();
-        List<Path> paths = mediaDao.getFiles(inputDirectory);
-        Progress.setTotalNumberOfFiles(paths.size());
-        List<String> errors = new ArrayList<>();
-
-        try (ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
-            for (Path path : paths) {
-                executorService.submit(() -> {
-                    try {
-                        ZonedDateTime zonedDateTime = getDateFromFile(path.toFile());
-                        DateTimeFormatter outputFormatter = DateTimeFormatter.ofPattern(outputFormat);
-                        mediaDao.saveFile(outputDirectory + "/" + zonedDateTime.format(outputFormatter), path);
-                        mediaDao.deleteEmptyDirectory(path);
-                    } catch (IOException | InvalidDateException e) {
-                        log.error(e.getLocalizedMessage(), e);
-                        errors.add(e.getLocalizedMessage());
+        return organise(inputDirectory, outputDirectory, outputFormat, new Progress());
+    }
+
+    /**
+     * Organises the files in the inputDirectory into the outputDirectory in the
+     * format of the outputFormat, recording how far it has got in the progress
+     *
+     * @param inputDirectory  the directory of the files to organise
+     * @param outputDirectory the directory to move the files into
+     * @param outputFormat    the format of the folder names
+     * @param progress        the progress of this run, which nothing else should be recording in
+     * @return a summary of what happened to the files
+     * @throws IOException          if there is an issue with the file being read
+     */
+    public OutcomeSummary organise(String inputDirectory, String outputDirectory, String outputFormat,
+                                   Progress progress) throws IOException {
+        OutputPathPlanner planner = new OutputPathPlanner(outputDirectory, outputFormat);
+        return run(planner, Path.of(inputDirectory), progress, false, run -> {
+            if (options.isStreaming()) {
+                organiseWhileScanning(inputDirectory, run);
+            } else {
+                organiseAfterScanning(inputDirectory, run);
+            }
+        });
+    }
+
+    /**
+     * Works out where each of the files in the inputDirectory would be moved to and whether it looks like a duplicate,
+     * without moving anything, and writes the plan to the planFile so it can be reviewed and then applied with
+     * {@link #applyPlan(Path)}
+     *
+     * @param inputDirectory  the directory of the files to organise
+     * @param outputDirectory the directory the files would be moved into
+     * @param outputFormat    the format of the folder names
+     * @param planFile        the file to write the plan to
+     * @return a summary of what would happen to the files
+     * @throws IOException if there is an issue with the file being read or the plan being written
+     */
+    public OutcomeSummary plan(String inputDirectory, String outputDirectory, String outputFormat, Path planFile)
+        throws IOException {
+        return plan(inputDirectory, outputDirectory, outputFormat, planFile, new Progress());
+    }
+
+    /**
+     * Works out where each of the files in the inputDirectory would be moved to in the same way as
+     * {@link #plan(String, String, String, Path)}, recording how far it has got in the progress
+     *
+     * @param inputDirectory  the directory of the files to organise
+     * @param outputDirectory the directory the files would be moved into
+     * @param outputFormat    the format of the folder names
+     * @param planFile        the file to write the plan to
+     * @param progress        the progress of this run, which nothing else should be recording in
+     * @return a summary of what would happen to the files
+     * @throws IOException if there is an issue with the file being read or the plan being written
+     */
+    public OutcomeSummary plan(String inputDirectory, String outputDirectory, String outputFormat, Path planFile,
+                               Progress progress) throws IOException {
+        OutputPathPlanner planner = new OutputPathPlanner(outputDirectory, outputFormat);
+        return run(planner, null, progress, true, run -> planWithoutMoving(inputDirectory, planFile, run));
+    }
+
+    /**
+     * Makes the moves in a plan written by {@link #plan(String, String, String, Path)}, ordered by the directories the
+     * files are moving from and to. Whether each file is a duplicate is decided again as it is moved, in case the
+     * output directory has changed since the plan was made.
+     *
+     * @param planFile the plan to apply
+     * @return a summary of what happened to the files
+     * @throws IOException if the plan can't be read
+     */
+    public OutcomeSummary applyPlan(Path planFile) throws IOException {
+        return applyPlan(planFile, new Progress());
+    }
+
+    /**
+     * Makes the moves in a plan in the same way as {@link #applyPlan(Path)}, recording how far it has got in the
+     * progress
+     *
+     * @param planFile the plan to apply
+     * @param progress the progress of this run, which nothing else should be recording in
+     * @return a summary of what happened to the files
+     * @throws IOException if the plan can't be read
+     */
+    public OutcomeSummary applyPlan(Path planFile, Progress progress) throws IOException {
+        List<PlanEntry> entries = MovePlan.read(planFile);
+        log.info("Applying the plan in " + planFile + " to move " + entries.size() + " files");
+        return run(null, null, progress, false, run -> {
+            run.progress().addTotalNumberOfFiles(entries.size());
+            List<TimedMove> plannedMoves = new ArrayList<>(entries.size());
+            for (PlanEntry entry : entries) {
+                run.found(entry.move().path());
+                plannedMoves.add(new TimedMove(entry.move(), null, 0L));
+            }
+            moveInLocalityOrder(plannedMoves, run);
+        });
+    }
+
+    /**
+     * Runs the stage with the state of a new run in the same way as
+     * {@link #run(OutputPathPlanner, Path, Progress, boolean, RunStage, Path)}, writing the outcome of each file to a
+     * temporary report if no report file was asked for, which is deleted once it has been summarised
+     */
+    private OutcomeSummary run(OutputPathPlanner planner, Path sourceRoot, Progress progress, boolean dryRun,
+                               RunStage stage) throws IOException {
+        if (options.getReportFile() != null) {
+            return run(planner, sourceRoot, progress, dryRun, stage, options.getReportFile());
+        }
+
+        Path reportFile = Files.createTempFile("media-organiser-report", ".jsonl");
+        try {
+            OutcomeSummary summary = run(planner, sourceRoot, progress, dryRun, stage, reportFile);
+            return new OutcomeSummary(null, summary.counts(), summary.errors());
+        } finally {
+            Files.deleteIfExists(reportFile);
+        }
+    }
+
+    /**
+     * Runs the stage with the state of a new run, writing the outcome of each file to the report and tidying up
+     * afterwards. Once every file has been dealt with, the directories that all of their files were moved out of are
+     * deleted if they are empty, along with any of their parents under the sourceRoot left empty by that. A dry run
+     * still skips the files the undatable cache knows about, but doesn't save what it finds out, so that it leaves
+     * nothing behind that changes what a later run does.
+     */
+    private OutcomeSummary run(OutputPathPlanner planner, Path sourceRoot, Progress progress, boolean dryRun,
+                               RunStage stage, Path reportFile) throws IOException {
+        log.info("Writing the outcome of each file to " + reportFile);
+        ProgressListener progressLogger = MediaService::logProgress;
+        progress.subscribe(progressLogger, LOG_PROGRESS_INTERVAL_MILLIS);
+        UndatableFileCache undatableFileCache = options.getUndatableCacheFile() == null ? null
+            : UndatableFileCache.load(options.getUndatableCacheFile());
+
+        try (OutcomeReport report = OutcomeReport.open(reportFile)) {
+            Run run = new Run(planner, undatableFileCache, progress, report, new ConcurrentHashMap<>());
+            stage.run(run);
+            if (undatableFileCache != null && sourceRoot != null) {
+                undatableFileCache.forgetUnseen(sourceRoot);
+            }
+            List<Path> emptiedDirectories = run.getEmptiedDirectories();
+            if (!emptiedDirectories.isEmpty()) {
+                mediaDao.deleteEmptyDirectories(emptiedDirectories, sourceRoot);
+            }
+        } finally {
+            if (undatableFileCache != null && !dryRun) {
+                undatableFileCache.save();
+            }
+            mediaDao.finishRun();
+            progress.finish();
+            progress.unsubscribe(progressLogger);
+        }
+
+        log.info("Predicted the metadata directory of " + dateSourcePredictor.getMetadataHits() + " of "
+            + dateSourcePredictor.getMetadataPredictions() + " files and the file name pattern of "
+            + dateSourcePredictor.getFileNameHits() + " of " + dateSourcePredictor.getFileNamePredictions()
+            + " files");
+        log.info("Moved files so far: " + mediaDao.getMoveStatistics());
+        return OutcomeReport.summarise(reportFile);
+    }
+
+    /**
+     * Organises the files once the inputDirectory has been scanned, in stages. The date and target directory of every
+     * file is planned first on threads sized for reading metadata, then each distinct target directory is created
+     * once, and only then are the files moved on threads sized for the disks.
+     */
+    private void organiseAfterScanning(String inputDirectory, Run run) throws IOException {
+        List<ScannedFile> files = mediaDao.getFilesToProbe(inputDirectory);
+        run.progress().addTotalNumberOfFiles(files.size());
+        Queue<TimedMove> plannedMoves = new ConcurrentLinkedQueue<>();
+
+        try (StageExecutor executor = newStageExecutor(options.getPlanParallelism())) {
+            for (ScannedFile file : files) {
+                run.found(file.path());
+                executor.submit(() -> {
+                    TimedMove plannedMove = plan(file, run);
+                    if (plannedMove != null) {
+                        plannedMoves.add(plannedMove);
                     }
+                });
+            }
+        }
+
+        moveInLocalityOrder(plannedMoves, run);
+    }
+
+    /**
+     * Plans the files once the inputDirectory has been scanned and writes the plan, sorted in the order the moves
+     * would be made, without moving anything. Each planned file is handed from the threads reading metadata to the
+     * threads checking for duplicates, which read the disks.
+     */
+    private void planWithoutMoving(String inputDirectory, Path planFile, Run run) throws IOException {
+        List<ScannedFile> files = mediaDao.getFilesToProbe(inputDirectory);
+        run.progress().addTotalNumberOfFiles(files.size());
+        Queue<PlanEntry> entries = new ConcurrentLinkedQueue<>();
 
-                    Progress.inc();
+        // The planning executor is closed first, so every check has been submitted before waiting for them to finish
+        try (StageExecutor checkExecutor = newStageExecutor(options.getMoveParallelism());
+             StageExecutor planExecutor = newStageExecutor(options.getPlanParallelism())) {
+            for (ScannedFile file : files) {
+                planExecutor.submit(() -> {
+                    TimedMove plannedMove = plan(file, run);
+                    if (plannedMove != null) {
+                        checkExecutor.submit(() -> {
+                            PlanEntry entry = checkForDuplicate(plannedMove, run);
+                            if (entry != null) {
+                                entries.add(entry);
+                            }
+                        });
+                    }
                 });
             }
+        }
 
-            executorService.shutdown();
-            while (!executorService.isTerminated()) {
+        List<PlanEntry> sortedEntries = new ArrayList<>(entries);
+        sortedEntries.sort(Comparator.comparing(PlanEntry::move, PlannedMove.LOCALITY_ORDER));
+        MovePlan.write(planFile, sortedEntries);
+        log.info("Wrote the plan to move " + sortedEntries.size() + " files to " + planFile);
+    }
+
+    /**
+     * Creates each distinct target directory once and then makes the moves ordered by the directories the files are
+     * moving from and to, so that the workers are mostly reading from and writing to the same directories
+     */
+    private void moveInLocalityOrder(Collection<TimedMove> plannedMoves, Run run) {
+        List<TimedMove> sortedMoves = new ArrayList<>(plannedMoves);
+        sortedMoves.sort(Comparator.comparing(TimedMove::plannedMove, PlannedMove.LOCALITY_ORDER));
+        createTargetDirectories(sortedMoves);
+
+        try (StageExecutor executor = newStageExecutor(options.getMoveParallelism())) {
+            for (TimedMove plannedMove : sortedMoves) {
+                executor.submit(() -> move(plannedMove, run));
+            }
+        }
+    }
+
+    /**
+     * Organises the files whilst the inputDirectory is still being scanned, by passing each file found through a
+     * bounded queue to the workers reading metadata, which hand each planned move on to the workers moving files. The
+     * scan blocks whilst the queue is full and the planning workers block whilst the queue capacity worth of moves are
+     * waiting, so only that many paths and moves are held in memory at once.
+     */
+    private void organiseWhileScanning(String inputDirectory, Run run) throws IOException {
+        BlockingQueue<ScannedFile> queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        Semaphore waitingMoves = new Semaphore(options.getQueueCapacity());
+        int workers = options.getPlanParallelism();
+
+        // Closed in reverse order, so the planning workers have handed on every move before waiting for the moves
+        try (StageExecutor moveExecutor = newStageExecutor(options.getMoveParallelism());
+             ExecutorService scanner = Executors.newSingleThreadExecutor();
+             StageExecutor planExecutor = newStageExecutor(workers)) {
+            Future<?> scan = scanner.submit(() -> {
                 try {
-                    Thread.sleep(100L);
-                } catch (InterruptedException e) {
-                    log.error(e.getLocalizedMessage(), e);
+                    mediaDao.streamFilesToProbe(inputDirectory, file -> {
+                        run.progress().incTotal();
+                        run.found(file.path());
+                        enqueue(queue, file);
+                    });
+                } finally {
+                    for (int i = 0; i < workers; i++) {
+                        enqueue(queue, END_OF_FILES);
+                    }
                 }
-                double progress = ((double) Progress.getNumberOfFilesProcessed() / Progress.getTotalNumberOfFiles()) * 100;
-                log.info("Progress: " + decimalFormat.format(progress) + "%");
+                return null;
+            });
+
+            for (int i = 0; i < workers; i++) {
+                planExecutor.submit(() -> {
+                    try {
+                        ScannedFile file;
+                        while ((file = queue.take()) != END_OF_FILES) {
+                            TimedMove plannedMove = plan(file, run);
+                            if (plannedMove != null) {
+                                waitingMoves.acquire();
+                                moveExecutor.submit(() -> {
+                                    try {
+                                        move(plannedMove, run);
+                                    } finally {
+                                        waitingMoves.release();
+                                    }
+                                });
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        log.error(e.getLocalizedMessage(), e);
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            waitForScan(scan);
+        }
+    }
+
+    /**
+     * Organises a single file into the outputDirectory in the format of the outputFormat, in the same way as
+     * {@link #organise(String, String, String)} does for each file it finds, but without updating the progress or
+     * removing the directory the file was in
+     *
+     * @param path            the file to organise
+     * @param outputDirectory the directory to move the file into
+     * @param outputFormat    the format of the folder names
+     * @throws IOException          if there is an issue moving the file
+     * @throws InvalidDateException if a date could not be found for the file
+     */
+    public void organiseFile(Path path, String outputDirectory, String outputFormat)
+        throws IOException, InvalidDateException {
+        ScannedFile file = ScannedFile.read(path);
+        PlannedMove plannedMove = new OutputPathPlanner(outputDirectory, outputFormat)
+            .plan(path, file.size(), getFileDate(file, null, null));
+        saveFile(plannedMove.targetDirectory(), file);
+    }
+
+    /**
+     * Plan where the given file should be moved to, recording its outcome and counting it as processed if it can't be
+     * moved. The file is probed with a single open, which both decides whether it is media and reads the header its
+     * date is found in. A file that turns out not to be media is taken out of the total instead. The attributes read
+     * for the file by the scan are used throughout, so none of them are read from the file system again.
+     *
+     * @return the planned move, or null if the file is to be skipped, isn't media or a date could not be found for it
+     */
+    private TimedMove plan(ScannedFile file, Run run) {
+        long start = System.nanoTime();
+        Path path = file.path();
+        try {
+            UndatableFileCache undatableFileCache = run.undatableFileCache();
+            if (undatableFileCache != null && !options.isRecheckUndatable() && undatableFileCache.contains(file)) {
+                log.info("Skipping " + path + " as a date could not be found for it on a previous run");
+                run.report().record(new FileOutcome(Status.PREVIOUSLY_UNDATABLE, path, null, null,
+                    Duration.ofNanos(System.nanoTime() - start), null));
+                run.progress().inc();
+                return null;
+            }
+
+            ProbedFile probedFile = mediaDao.probe(file);
+            if (!probedFile.media()) {
+                run.progress().decTotal();
+                return null;
+            }
+
+            FileDate fileDate = getFileDate(file, probedFile.header(), undatableFileCache);
+            PlannedMove plannedMove = run.planner().plan(path, file.size(), fileDate);
+            return new TimedMove(plannedMove, file, System.nanoTime() - start);
+        } catch (InvalidDateException e) {
+            run.failed(Status.UNDATABLE, path, null, null, System.nanoTime() - start, e);
+        } catch (IOException | RuntimeException e) {
+            // Anything unexpected from reading a corrupt file is recorded against it, so the worker carries on taking
+            // files and the scan is never left waiting on a full queue
+            run.failed(Status.FAILED, path, null, null, System.nanoTime() - start, e);
+        }
+
+        run.progress().inc();
+        return null;
+    }
+
+    private void createTargetDirectories(Collection<TimedMove> plannedMoves) {
+        Set<String> targetDirectories = new TreeSet<>();
+        for (TimedMove plannedMove : plannedMoves) {
+            targetDirectories.add(plannedMove.plannedMove().targetDirectory());
+        }
+
+        log.info("Creating " + targetDirectories.size() + " output directories for " + plannedMoves.size() + " files");
+        for (String targetDirectory : targetDirectories) {
+            try {
+                mediaDao.createDirectory(targetDirectory);
+            } catch (IOException e) {
+                // Each move into the directory will try to create it again and report the error against its file
+                log.error("Could not create " + targetDirectory, e);
+            }
+        }
+    }
+
+    /**
+     * Check whether the planned move is of a duplicate, recording it as planned and counting it as processed
+     *
+     * @return the plan entry, or null if the file couldn't be checked
+     */
+    private PlanEntry checkForDuplicate(TimedMove timedMove, Run run) {
+        long start = System.nanoTime() - timedMove.planningNanos();
+        PlannedMove plannedMove = timedMove.plannedMove();
+        try {
+            Path duplicateOf = mediaDao.findDuplicate(plannedMove.targetDirectory(), timedMove.file());
+            run.report().record(new FileOutcome(Status.PLANNED, plannedMove.path(), duplicateOf,
+                plannedMove.fileDate(), Duration.ofNanos(System.nanoTime() - start), null));
+            return new PlanEntry(plannedMove, duplicateOf);
+        } catch (IOException | RuntimeException e) {
+            run.failed(Status.FAILED, plannedMove.path(), null, plannedMove.fileDate(), System.nanoTime() - start, e);
+            return null;
+        } finally {
+            run.progress().inc();
+        }
+    }
+
+    private void move(TimedMove timedMove, Run run) {
+        long start = System.nanoTime() - timedMove.planningNanos();
+        PlannedMove plannedMove = timedMove.plannedMove();
+        Path target = null;
+        try {
+            SavedFile savedFile = timedMove.file() == null
+                ? saveFile(plannedMove.targetDirectory(), plannedMove.path())
+                : saveFile(plannedMove.targetDirectory(), timedMove.file());
+            target = savedFile.target();
+            Status status;
+            if (!savedFile.moved()) {
+                status = Status.DUPLICATE_SKIPPED;
+                run.progress().incSkippedDuplicates();
+            } else if (options.isLink()) {
+                status = Status.LINKED;
+                run.progress().addBytes(plannedMove.size());
+            } else {
+                status = Status.MOVED;
+                run.progress().addBytes(plannedMove.size());
+                run.moved(plannedMove.path());
             }
+            run.report().record(new FileOutcome(status, plannedMove.path(), target, plannedMove.fileDate(),
+                Duration.ofNanos(System.nanoTime() - start), null));
+        } catch (IOException | RuntimeException e) {
+            run.failed(Status.FAILED, plannedMove.path(), target, plannedMove.fileDate(), System.nanoTime() - start,
+                e);
         }
 
-        return errors;
+        run.progress().inc();
+    }
+
+    /**
+     * Move the file into the outputDirectory, or link it there if the files are to be left where they are
+     */
+    private SavedFile saveFile(String outputDirectory, ScannedFile file) throws IOException {
+        return options.isLink() ? mediaDao.linkFile(outputDirectory, file) : mediaDao.saveFile(outputDirectory, file);
+    }
+
+    /**
+     * Move or link a file from a plan, which only records its path, so its attributes are read as it is moved
+     */
+    private SavedFile saveFile(String outputDirectory, Path path) throws IOException {
+        return options.isLink() ? mediaDao.linkFile(outputDirectory, path) : mediaDao.saveFile(outputDirectory, path);
+    }
+
+    private FileDate getFileDate(ScannedFile file, FileHeader header, UndatableFileCache undatableFileCache)
+        throws InvalidDateException, IOException {
+        try {
+            FileDate fileDate = FileDateUtil.getFileDate(file.path().toFile(), header, options.getMaxMetadataBytes(),
+                dateSourcePredictor);
+            if (undatableFileCache != null) {
+                undatableFileCache.remove(file.path());
+            }
+            return fileDate;
+        } catch (InvalidDateException e) {
+            if (undatableFileCache != null) {
+                undatableFileCache.add(file);
+            }
+            throw e;
+        }
+    }
+
+    private static void logProgress(ProgressSnapshot snapshot) {
+        Duration remaining = snapshot.getEstimatedTimeRemaining();
+        log.info("Progress: " + snapshot.numberOfFilesProcessed() + " of " + snapshot.totalNumberOfFiles()
+            + " files (" + String.format("%.2f", snapshot.getPercentComplete()) + "%), "
+            + String.format("%.2f", snapshot.getFilesPerSecond()) + " files/s, "
+            + String.format("%.2f", snapshot.getMegabytesPerSecond()) + " MB/s, "
+            + snapshot.errors() + " errors, " + snapshot.skippedDuplicates() + " duplicates"
+            + (remaining == null ? "" : ", about " + remaining.toSeconds() + "s remaining"));
+    }
+
+    private StageExecutor newStageExecutor(int parallelism) {
+        return StageExecutor.create(parallelism, options.isVirtualThreads());
+    }
+
+    private static void enqueue(BlockingQueue<ScannedFile> queue, ScannedFile file) {
+        try {
+            queue.put(file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst waiting to queue " + file.path(), e);
+        }
+    }
+
+    private static void waitForScan(Future<?> scan) throws IOException {
+        try {
+            scan.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst waiting for the scan to finish", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * The state of a single organise run, shared by its workers, including the number of files found in each source
+     * directory that haven't been moved out of it yet
+     */
+    private record Run(OutputPathPlanner planner, UndatableFileCache undatableFileCache, Progress progress,
+                       OutcomeReport report, Map<Path, LongAdder> remainingFiles) {
+        void found(Path path) {
+            if (undatableFileCache != null) {
+                undatableFileCache.seen(path);
+            }
+            Path directory = path.getParent();
+            if (directory != null) {
+                remainingFiles.computeIfAbsent(directory, key -> new LongAdder()).increment();
+            }
+        }
+
+        void moved(Path path) {
+            Path directory = path.getParent();
+            if (directory != null) {
+                remainingFiles.computeIfAbsent(directory, key -> new LongAdder()).decrement();
+            }
+        }
+
+        /**
+         * @return the source directories that every file found in has been moved out of
+         */
+        List<Path> getEmptiedDirectories() {
+            List<Path> directories = new ArrayList<>();
+            remainingFiles.forEach((directory, remaining) -> {
+                if (remaining.sum() <= 0) {
+                    directories.add(directory);
+                }
+            });
+            return directories;
+        }
+
+        void failed(Status status, Path source, Path target, FileDate fileDate, long elapsedNanos, Exception e) {
+            log.error(e.getLocalizedMessage(), e);
+            report.record(new FileOutcome(status, source, target, fileDate, Duration.ofNanos(elapsedNanos),
+                e.getLocalizedMessage()));
+            progress.incErrors();
+        }
+    }
+
+    /**
+     * A stage of a run, given the state of the run
+     */
+    @FunctionalInterface
+    private interface RunStage {
+        void run(Run run) throws IOException;
+    }
+
+    /**
+     * A planned move, the file as it was scanned, and how long it took to plan, so the time spent on the file is known
+     * once it has been moved. The file is null for a move read from a plan, which only records its path.
+     */
+    private record TimedMove(PlannedMove plannedMove, ScannedFile file, long planningNanos) {
     }
 }
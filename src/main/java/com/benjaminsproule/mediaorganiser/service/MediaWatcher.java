@@ -0,0 +1,221 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import com.benjaminsproule.mediaorganiser.dao.MediaDao;
+import com.benjaminsproule.mediaorganiser.exception.InvalidDateException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Watches an input directory and organises media as it lands there, rather than rescanning the whole directory on
+ * every run. A file is only organised once it has had no events and its size has stayed the same for the quiet
+ * period, so files that are still being written are left alone.
+ */
+@Slf4j
+public class MediaWatcher implements Closeable {
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 2000L;
+
+    private final MediaService mediaService;
+    private final MediaDao mediaDao;
+    private final long quietPeriodMillis;
+    private final Map<Path, PendingFile> pendingFiles = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+
+    public MediaWatcher(MediaService mediaService, MediaDao mediaDao) {
+        this(mediaService, mediaDao, DEFAULT_QUIET_PERIOD_MILLIS);
+    }
+
+    public MediaWatcher(MediaService mediaService, MediaDao mediaDao, long quietPeriodMillis) {
+        if (quietPeriodMillis < 1) {
+            throw new IllegalArgumentException("The quiet period should be at least 1 millisecond");
+        }
+        this.mediaService = mediaService;
+        this.mediaDao = mediaDao;
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+    /**
+     * Organises the files already in the inputDirectory, then keeps organising files as they are added to it or any
+     * of its sub-directories until {@link #close()} is called or the thread is interrupted.
+     *
+     * @param inputDirectory  the directory to watch
+     * @param outputDirectory the directory to move the files into
+     * @param outputFormat    the format of the folder names
+     * @throws IOException              if there is an issue watching the directory
+     * @throws IllegalArgumentException if inputDirectory is not provided or is not a directory
+     */
+    public void watch(String inputDirectory, String outputDirectory, String outputFormat) throws IOException {
+        if (isBlank(inputDirectory)) {
+            throw new IllegalArgumentException("An input directory should be provided");
+        }
+
+        Path directory = new File(inputDirectory).toPath();
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("The input directory is not a directory");
+        }
+
+        Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+        try (WatchService watchService = directory.getFileSystem().newWatchService();
+             ScheduledExecutorService organiser = Executors.newSingleThreadScheduledExecutor()) {
+            this.watchService = watchService;
+            if (closed) {
+                return;
+            }
+
+            registerTree(directory, watchService, watchedDirectories);
+            long interval = Math.max(1L, quietPeriodMillis / 2);
+            organiser.scheduleWithFixedDelay(() -> organiseSettledFiles(outputDirectory, outputFormat),
+                interval, interval, MILLISECONDS);
+            log.info("Watching " + directory + " for new media");
+
+            while (!closed) {
+                WatchKey watchKey;
+                try {
+                    watchKey = watchService.take();
+                } catch (ClosedWatchServiceException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                Path watchedDirectory = watchedDirectories.get(watchKey);
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        log.warn("Missed events under " + directory + ", so checking all of it again");
+                        registerTree(directory, watchService, watchedDirectories);
+                        continue;
+                    }
+                    if (watchedDirectory == null) {
+                        continue;
+                    }
+
+                    Path path = watchedDirectory.resolve((Path) event.context());
+                    if (Files.isDirectory(path)) {
+                        registerTree(path, watchService, watchedDirectories);
+                    } else {
+                        pendingFiles.put(path, new PendingFile(System.nanoTime(), -1L));
+                    }
+                }
+
+                if (!watchKey.reset()) {
+                    watchedDirectories.remove(watchKey);
+                }
+            }
+            organiser.shutdownNow();
+        }
+        log.info("Stopped watching " + directory);
+    }
+
+    /**
+     * Stop watching, letting {@link #watch(String, String, String)} return
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService currentWatchService = watchService;
+        if (currentWatchService != null) {
+            currentWatchService.close();
+        }
+    }
+
+    private void registerTree(Path directory, WatchService watchService, Map<WatchKey, Path> watchedDirectories)
+        throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    pendingFiles.putIfAbsent(file, new PendingFile(System.nanoTime(), -1L));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                log.error("Could not watch " + file, exc);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void organiseSettledFiles(String outputDirectory, String outputFormat) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path path = entry.getKey();
+            PendingFile pendingFile = entry.getValue();
+            if (NANOSECONDS.toMillis(now - pendingFile.lastChangeNanos()) < quietPeriodMillis) {
+                continue;
+            }
+
+            long size;
+            try {
+                size = Files.size(path);
+            } catch (IOException e) {
+                log.debug(path + " is no longer there, so not organising it");
+                iterator.remove();
+                continue;
+            }
+
+            if (size != pendingFile.size()) {
+                pendingFiles.replace(path, pendingFile, new PendingFile(now, size));
+                continue;
+            }
+
+            if (!pendingFiles.remove(path, pendingFile)) {
+                continue;
+            }
+            organise(path, outputDirectory, outputFormat);
+        }
+    }
+
+    private void organise(Path path, String outputDirectory, String outputFormat) {
+        if (!mediaDao.isMediaFile(path)) {
+            log.debug(path + " is not media, so not organising it");
+            return;
+        }
+
+        try {
+            mediaService.organiseFile(path, outputDirectory, outputFormat);
+        } catch (IOException | InvalidDateException e) {
+            log.error(e.getLocalizedMessage(), e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error whilst organising " + path, e);
+        }
+    }
+
+    private record PendingFile(long lastChangeNanos, long size) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.PlannedMove;
+
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Works out the directory each file should be moved into, compiling the output format once for the whole run rather
+ * than once for every file.
+ */
+class OutputPathPlanner {
+    private final String outputDirectory;
+    private final DateTimeFormatter outputFormatter;
+
+    /**
+     * @param outputDirectory the directory to move the files into
+     * @param outputFormat    the format of the folder names
+     * @throws IllegalArgumentException if outputFormat is not a valid pattern
+     */
+    OutputPathPlanner(String outputDirectory, String outputFormat) {
+        this.outputDirectory = outputDirectory;
+        this.outputFormatter = DateTimeFormatter.ofPattern(outputFormat);
+    }
+
+    /**
+     * Plan the move of the given file
+     *
+     * @param path     the file to move
+     * @param size     the size of the file in bytes
+     * @param fileDate the date of the file
+     * @return the move of the file into the directory for its date
+     */
+    PlannedMove plan(Path path, long size, FileDate fileDate) {
+        return new PlannedMove(path, size, fileDate,
+            outputDirectory + "/" + fileDate.dateTime().format(outputFormatter));
+    }
+}
@@ -0,0 +1,93 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the tasks of a stage of a run, at most parallelism of them at the same time. The tasks either run on a fixed
+ * pool of that many platform threads, or each on its own virtual thread once one of the permits limiting them is
+ * free. Virtual threads cost next to nothing whilst they are blocked on I/O, so a high parallelism can be used for
+ * stages that spend most of their time waiting on slow disks without holding on to a platform thread for each task.
+ * <p>
+ * Submitting a task to a virtual thread executor blocks whilst the parallelism worth of tasks are running, so that a
+ * stage with many files doesn't start a thread for every one of them at once.
+ * <p>
+ * Nothing waits on the result of a task, so any exception a task throws is logged rather than kept where no one would
+ * see it.
+ */
+@Slf4j
+class StageExecutor implements AutoCloseable {
+    private final ExecutorService executorService;
+    private final Semaphore running;
+
+    private StageExecutor(ExecutorService executorService, Semaphore running) {
+        this.executorService = executorService;
+        this.running = running;
+    }
+
+    /**
+     * @param parallelism    the maximum number of tasks to run at the same time
+     * @param virtualThreads whether to run each task on a virtual thread rather than on a fixed pool of platform
+     *                       threads
+     * @return the executor for the stage
+     */
+    static StageExecutor create(int parallelism, boolean virtualThreads) {
+        if (virtualThreads) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("The parallelism should be at least 1");
+            }
+            return new StageExecutor(Executors.newVirtualThreadPerTaskExecutor(), new Semaphore(parallelism));
+        }
+        return new StageExecutor(Executors.newFixedThreadPool(parallelism), null);
+    }
+
+    /**
+     * Run the task once there is a thread for it
+     *
+     * @param task the task to run
+     */
+    void submit(Runnable task) {
+        if (running == null) {
+            executorService.execute(() -> runLogged(task));
+            return;
+        }
+
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst waiting to run a task", e);
+        }
+        try {
+            executorService.execute(() -> {
+                try {
+                    runLogged(task);
+                } finally {
+                    running.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            running.release();
+            throw e;
+        }
+    }
+
+    private static void runLogged(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("A task failed unexpectedly", e);
+        }
+    }
+
+    /**
+     * Wait for every task submitted to finish
+     */
+    @Override
+    public void close() {
+        executorService.close();
+    }
+}
@@ -0,0 +1,228 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.drew.imaging.FileType;
+import com.drew.imaging.FileTypeDetector;
+import com.drew.imaging.ImageProcessingException;
+import com.drew.imaging.heif.HeifMetadataReader;
+import com.drew.imaging.jpeg.JpegMetadataReader;
+import com.drew.imaging.mp4.Mp4MetadataReader;
+import com.drew.imaging.quicktime.QuickTimeMetadataReader;
+import com.drew.imaging.tiff.TiffMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads the metadata of a file without reading more than a given number of bytes of it. For JPEG, TIFF and HEIF only
+ * the header segments that hold the EXIF data are read, and for MP4 and QuickTime only the movie box is read, jumping
+ * over any media data that comes before it.
+ * <p>
+ * The metadata can be read from a {@link FileHeader} already read from the file, in which case the file is only opened
+ * again if the metadata carries on past the end of the header.
+ */
+@Slf4j
+public class BoundedMetadataReader {
+    private static final int FILE_TYPE_BYTES = 32;
+    private static final int BOX_HEADER_BYTES = 16;
+
+    /**
+     * Read the metadata of the given file, reading no more than maxBytes of it.
+     *
+     * @param file     the file to read the metadata of
+     * @param maxBytes the maximum number of bytes of the file to read
+     * @return the metadata, or null if the file type isn't supported or the metadata couldn't be read within maxBytes
+     */
+    public static Metadata readMetadata(File file, int maxBytes) {
+        return readMetadata(file, (FileHeader) null, maxBytes);
+    }
+
+    /**
+     * Read the metadata of the given file, reading no more than maxBytes of it, starting with the header already read
+     * from it and only opening the file if the metadata carries on past the end of the header.
+     *
+     * @param file     the file to read the metadata of
+     * @param header   the header already read from the file, or null to read it all from the file
+     * @param maxBytes the maximum number of bytes of the file to read
+     * @return the metadata, or null if the file type isn't supported or the metadata couldn't be read within maxBytes
+     */
+    public static Metadata readMetadata(File file, FileHeader header, int maxBytes) {
+        try (HeaderThenFile source = new HeaderThenFile(file, header)) {
+            return readMetadata(file, source, maxBytes);
+        } catch (IOException e) {
+            log.debug("Could not close " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the metadata of the given file from the source of its bytes, reading no more than maxBytes of it
+     */
+    static Metadata readMetadata(File file, HeaderThenFile source, int maxBytes) {
+        try {
+            return readMetadata(file, source, detectFileType(source), maxBytes);
+        } catch (IOException e) {
+            log.debug("Could not read the metadata of " + file + " within " + maxBytes + " bytes", e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the metadata of the given file of the given type from the source of its bytes, reading no more than
+     * maxBytes of it
+     */
+    static Metadata readMetadata(File file, HeaderThenFile source, FileType fileType, int maxBytes) {
+        try {
+            switch (fileType) {
+                case Jpeg:
+                    return JpegMetadataReader.readMetadata(limitedStream(source, maxBytes), List.of(new ExifReader()));
+                case Tiff:
+                case Arw:
+                case Cr2:
+                case Nef:
+                    return TiffMetadataReader.readMetadata(limitedStream(source, maxBytes));
+                case Heif:
+                    return HeifMetadataReader.readMetadata(limitedStream(source, maxBytes));
+                case Mp4:
+                case QuickTime:
+                    byte[] movieBoxes = readMovieBoxes(source, maxBytes);
+                    if (movieBoxes == null) {
+                        return null;
+                    }
+                    InputStream movieStream = new ByteArrayInputStream(movieBoxes);
+                    return fileType == FileType.Mp4 ? Mp4MetadataReader.readMetadata(movieStream)
+                        : QuickTimeMetadataReader.readMetadata(movieStream);
+                default:
+                    return null;
+            }
+        } catch (IOException | ImageProcessingException e) {
+            log.debug("Could not read the metadata of " + file + " within " + maxBytes + " bytes", e);
+            return null;
+        } catch (RuntimeException e) {
+            // The readers don't expect the data to stop part way through, so can fail in unexpected ways when it does
+            log.debug("Could not read the metadata of " + file + " within " + maxBytes + " bytes", e);
+            return null;
+        }
+    }
+
+    /**
+     * Detect the type of the file from its first bytes
+     */
+    static FileType detectFileType(HeaderThenFile source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_TYPE_BYTES);
+        source.readFully(buffer, 0);
+        return FileTypeDetector.detectFileType(
+            new BufferedInputStream(new ByteArrayInputStream(buffer.array(), 0, buffer.position())));
+    }
+
+    private static InputStream limitedStream(HeaderThenFile source, int maxBytes) {
+        return new BufferedInputStream(new LimitedInputStream(source.stream(), maxBytes));
+    }
+
+    /**
+     * Jump from box header to box header, collecting the ftyp and moov boxes, so the media data is never read.
+     *
+     * @return the ftyp (if there is one) and moov boxes, or null if there is no moov box or they are larger than
+     * maxBytes
+     */
+    private static byte[] readMovieBoxes(HeaderThenFile source, int maxBytes) throws IOException {
+        ByteArrayOutputStream movieBoxes = new ByteArrayOutputStream();
+        long fileSize = source.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(BOX_HEADER_BYTES);
+        while (position + 8 <= fileSize) {
+            header.clear();
+            source.readFully(header, position);
+            long size = header.getInt(0) & 0xffffffffL;
+            String type = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+            int headerLength = 8;
+            if (size == 1) {
+                size = header.getLong(8);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerLength) {
+                return null;
+            }
+
+            if (type.equals("ftyp") || type.equals("moov")) {
+                if (movieBoxes.size() + size > maxBytes) {
+                    return null;
+                }
+                ByteBuffer box = ByteBuffer.allocate((int) size);
+                source.readFully(box, position);
+                if (box.hasRemaining()) {
+                    throw new EOFException("The " + type + " box is larger than the file");
+                }
+                movieBoxes.write(box.array());
+                if (type.equals("moov")) {
+                    return movieBoxes.toByteArray();
+                }
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read();
+            if (read >= 0) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
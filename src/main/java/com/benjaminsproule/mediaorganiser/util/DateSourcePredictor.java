@@ -0,0 +1,90 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.drew.metadata.Directory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers which file name pattern and which metadata directory the date of the last file in each directory came
+ * from, so they can be tried first for the next file in it, as the files in a camera or phone folder almost always
+ * share them. Counts how often the prediction was right, to show the effect on a run.
+ */
+public class DateSourcePredictor {
+    private static final Path NO_PARENT = Path.of("");
+
+    private final Map<Path, Prediction> predictions = new ConcurrentHashMap<>();
+    private final LongAdder fileNamePredictions = new LongAdder();
+    private final LongAdder fileNameHits = new LongAdder();
+    private final LongAdder metadataPredictions = new LongAdder();
+    private final LongAdder metadataHits = new LongAdder();
+
+    Prediction predict(File file) {
+        return predictions.getOrDefault(getParent(file), Prediction.NONE);
+    }
+
+    void recordFileNamePattern(File file, Prediction prediction, int pattern) {
+        if (prediction.fileNamePattern() != FilenameDateParser.NO_PATTERN) {
+            fileNamePredictions.increment();
+            if (prediction.fileNamePattern() == pattern) {
+                fileNameHits.increment();
+                return;
+            }
+        }
+        predictions.merge(getParent(file), new Prediction(pattern, null),
+            (current, ignored) -> new Prediction(pattern, current.metadataDirectory()));
+    }
+
+    void recordMetadataDirectory(File file, Prediction prediction, Class<? extends Directory> metadataDirectory) {
+        if (prediction.metadataDirectory() != null) {
+            metadataPredictions.increment();
+            if (prediction.metadataDirectory() == metadataDirectory) {
+                metadataHits.increment();
+                return;
+            }
+        }
+        predictions.merge(getParent(file), new Prediction(FilenameDateParser.NO_PATTERN, metadataDirectory),
+            (current, ignored) -> new Prediction(current.fileNamePattern(), metadataDirectory));
+    }
+
+    /**
+     * @return the number of files dated by their name that had a file name pattern predicted for them
+     */
+    public long getFileNamePredictions() {
+        return fileNamePredictions.sum();
+    }
+
+    /**
+     * @return the number of files dated by their name whose predicted file name pattern was the one that matched
+     */
+    public long getFileNameHits() {
+        return fileNameHits.sum();
+    }
+
+    /**
+     * @return the number of files dated by their metadata that had a metadata directory predicted for them
+     */
+    public long getMetadataPredictions() {
+        return metadataPredictions.sum();
+    }
+
+    /**
+     * @return the number of files dated by their metadata whose predicted metadata directory was the one the date
+     * came from
+     */
+    public long getMetadataHits() {
+        return metadataHits.sum();
+    }
+
+    private static Path getParent(File file) {
+        Path parent = file.toPath().getParent();
+        return parent == null ? NO_PARENT : parent;
+    }
+
+    record Prediction(int fileNamePattern, Class<? extends Directory> metadataDirectory) {
+        static final Prediction NONE = new Prediction(FilenameDateParser.NO_PATTERN, null);
+    }
+}
@@ -1,29 +1,56 @@
 package com.benjaminsproule.mediaorganiser.util;
 
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
 import com.benjaminsproule.mediaorganiser.exception.InvalidDateException;
+import com.benjaminsproule.mediaorganiser.util.DateSourcePredictor.Prediction;
+import com.drew.imaging.FileType;
 import com.drew.imaging.ImageMetadataReader;
 import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.exif.ExifSubIFDDirectory;
 import com.drew.metadata.mov.QuickTimeDirectory;
-import com.drew.metadata.mov.metadata.QuickTimeMetadataDirectory;
 import com.drew.metadata.mp4.Mp4Directory;
 import com.drew.metadata.mp4.media.Mp4MetaDirectory;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.Date;
-
-import static java.time.Instant.ofEpochMilli;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 public class FileDateUtil {
 
+    /**
+     * The default maximum number of bytes of a file to read when looking for its metadata, before falling back to
+     * reading all of it
+     */
+    public static final int DEFAULT_MAX_METADATA_BYTES = 1024 * 1024;
+
+    /**
+     * The metadata directories to get the date from, in order of precedence
+     */
+    private static final List<Class<? extends Directory>> METADATA_DIRECTORIES = List.of(
+        ExifSubIFDDirectory.class, Mp4MetaDirectory.class, Mp4Directory.class, QuickTimeDirectory.class);
+
+    private static final Map<Class<? extends Directory>, DateSource> DATE_SOURCES = Map.of(
+        ExifSubIFDDirectory.class, DateSource.EXIF,
+        Mp4MetaDirectory.class, DateSource.MP4_MEDIA,
+        Mp4Directory.class, DateSource.MP4,
+        QuickTimeDirectory.class, DateSource.QUICKTIME);
+
+    private static final Map<DateSource, Class<? extends Directory>> METADATA_DIRECTORY_OF_SOURCE = Map.of(
+        DateSource.EXIF, ExifSubIFDDirectory.class,
+        DateSource.MP4_MEDIA, Mp4MetaDirectory.class,
+        DateSource.MP4, Mp4Directory.class,
+        DateSource.QUICKTIME, QuickTimeDirectory.class);
+
     /**
      * Get the date from the given file, from the metadata of the file if it
      * exists, the name if there isn't any metadata or null if it can't find
@@ -33,216 +60,203 @@ public class FileDateUtil {
      * @return the {@link ZonedDateTime} of the file
      */
     public static ZonedDateTime getDateFromFile(File file) throws InvalidDateException {
-        try {
-            Metadata metadata = ImageMetadataReader.readMetadata(file);
-            Date dateTime = null;
-            ExifSubIFDDirectory exifSubIFDDirectory = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
-            if (exifSubIFDDirectory != null) {
-                dateTime = exifSubIFDDirectory.getDateOriginal();
-                if (dateTime != null) {
-                    return ZonedDateTime.ofInstant(dateTime.toInstant(), ZoneId.of("UTC"));
-                }
-            }
-            Mp4MetaDirectory mp4MetaDirectory = metadata.getFirstDirectoryOfType(Mp4MetaDirectory.class);
-            if (mp4MetaDirectory != null) {
-                dateTime = mp4MetaDirectory.getDate(Mp4MetaDirectory.TAG_CREATION_TIME);
-            }
-            if (dateTime != null) {
-                return ZonedDateTime.ofInstant(dateTime.toInstant(), ZoneId.of("UTC"));
-            }
-            Mp4Directory mp4Directory = metadata.getFirstDirectoryOfType(Mp4Directory.class);
-            if (mp4Directory != null) {
-                dateTime = mp4Directory.getDate(Mp4Directory.TAG_CREATION_TIME);
-            }
-            if (dateTime != null) {
-                return ZonedDateTime.ofInstant(dateTime.toInstant(), ZoneId.of("UTC"));
-            }
-            QuickTimeDirectory quickTimeDirectory = metadata.getFirstDirectoryOfType(QuickTimeDirectory.class);
-            if (quickTimeDirectory != null) {
-                dateTime = quickTimeDirectory.getDate(QuickTimeDirectory.TAG_CREATION_TIME);
-            }
-            if (dateTime != null) {
-                return ZonedDateTime.ofInstant(dateTime.toInstant(), ZoneId.of("UTC"));
-            }
-        } catch (ImageProcessingException | IOException e) {
-            log.error(e.getLocalizedMessage(), e);
-        }
-
-        String fileName = file.getName().split("\\.")[0];
-        ZonedDateTime zonedDateTime = getDateByEpochMilli(fileName);
-
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByDateUnderscoreTime(fileName);
-        }
-
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByImgUnderscoreDateUnderscoreTime(fileName);
-        }
-
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByDateHyphenatedUnderscoreTimeHyphenated(fileName);
-        }
-
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByScreenshotUnderscoreDateHyphenatedTimeHyphenated(fileName);
-        }
-
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByDateUnderscoreTimeUnderscoreiOS(fileName);
-        }
+        return getDateFromFile(file, DEFAULT_MAX_METADATA_BYTES);
+    }
 
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByPXLUnderscoreDateUnderscoreTime(fileName);
-        }
+    /**
+     * Get the date from the given file, from the metadata of the file if it
+     * exists, the name if there isn't any metadata or null if it can't find
+     * one. Only the first maxMetadataBytes of the metadata are read, unless
+     * no date is found in them.
+     *
+     * @param file             the file to extract the date from
+     * @param maxMetadataBytes the maximum number of bytes to read before reading
+     *                         all the metadata, or 0 to always read all of it
+     * @return the {@link ZonedDateTime} of the file
+     */
+    public static ZonedDateTime getDateFromFile(File file, int maxMetadataBytes) throws InvalidDateException {
+        return getDateFromFile(file, maxMetadataBytes, null);
+    }
 
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByDateUnderscoreTimeHyphenCOLLAGE(fileName);
-        }
+    /**
+     * Get the date from the given file, from the metadata of the file if it
+     * exists, the name if there isn't any metadata or null if it can't find
+     * one. Only the first maxMetadataBytes of the metadata are read, unless
+     * no date is found in them. The metadata directory and file name pattern
+     * that dated the last file in the same directory are tried first.
+     *
+     * @param file             the file to extract the date from
+     * @param maxMetadataBytes the maximum number of bytes to read before reading
+     *                         all the metadata, or 0 to always read all of it
+     * @param predictor        the predictor of where the date will come from, or
+     *                         null to always try them in order
+     * @return the {@link ZonedDateTime} of the file
+     */
+    public static ZonedDateTime getDateFromFile(File file, int maxMetadataBytes, DateSourcePredictor predictor)
+        throws InvalidDateException {
+        return getFileDate(file, maxMetadataBytes, predictor).dateTime();
+    }
 
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByIndexedBurstFileName(fileName);
-        }
+    /**
+     * Get the date from the given file and where it came from, in the same
+     * way as {@link #getDateFromFile(File, int, DateSourcePredictor)}.
+     *
+     * @param file             the file to extract the date from
+     * @param maxMetadataBytes the maximum number of bytes to read before reading
+     *                         all the metadata, or 0 to always read all of it
+     * @param predictor        the predictor of where the date will come from, or
+     *                         null to always try them in order
+     * @return the {@link FileDate} of the file
+     */
+    public static FileDate getFileDate(File file, int maxMetadataBytes, DateSourcePredictor predictor)
+        throws InvalidDateException {
+        return getFileDate(file, null, maxMetadataBytes, predictor);
+    }
 
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByBurstActionFileName(fileName);
+    /**
+     * Get the date from the given file and where it came from, in the same
+     * way as {@link #getFileDate(File, int, DateSourcePredictor)}, reading the
+     * metadata from the header already read from the file where it can and
+     * only opening the file again for the metadata past the end of it.
+     *
+     * @param file             the file to extract the date from
+     * @param header           the header already read from the file, or null
+     *                         to read everything from the file
+     * @param maxMetadataBytes the maximum number of bytes to read before reading
+     *                         all the metadata, or 0 to always read all of it
+     * @param predictor        the predictor of where the date will come from, or
+     *                         null to always try them in order
+     * @return the {@link FileDate} of the file
+     */
+    public static FileDate getFileDate(File file, FileHeader header, int maxMetadataBytes,
+                                       DateSourcePredictor predictor) throws InvalidDateException {
+        Prediction prediction = predictor == null ? Prediction.NONE : predictor.predict(file);
+        FileDate fileDate = null;
+        if (maxMetadataBytes > 0) {
+            try (HeaderThenFile source = new HeaderThenFile(file, header)) {
+                FileType fileType = BoundedMetadataReader.detectFileType(source);
+                fileDate = getDateDirectly(file, source, fileType, maxMetadataBytes, prediction, predictor);
+                if (fileDate == null) {
+                    Metadata metadata = BoundedMetadataReader.readMetadata(file, source, fileType, maxMetadataBytes);
+                    if (metadata != null) {
+                        fileDate = getDateFromMetadata(file, metadata, prediction, predictor);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Could not read the metadata of " + file, e);
+            }
         }
 
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByBurstCollageFileName(fileName);
+        if (fileDate == null) {
+            try {
+                fileDate = getDateFromMetadata(file, ImageMetadataReader.readMetadata(file), prediction, predictor);
+            } catch (ImageProcessingException | IOException e) {
+                log.error(e.getLocalizedMessage(), e);
+            }
         }
 
-        if (zonedDateTime == null) {
-            zonedDateTime = getDateByIMGDateWhatsApp(fileName);
+        if (fileDate != null) {
+            return fileDate;
         }
 
-        if (zonedDateTime == null) {
+        String fileName = file.getName().split("\\.")[0];
+        FilenameDateParser.Match match = FilenameDateParser.parse(fileName, prediction.fileNamePattern());
+        if (match == null) {
             throw new InvalidDateException("Could not get a timestamp for the file " + fileName);
         }
 
-        return zonedDateTime;
-    }
-
-    private static ZonedDateTime getDateByEpochMilli(String fileName) {
-        try {
-            long epochMilli = Long.parseLong(fileName);
-            return ZonedDateTime.ofInstant(ofEpochMilli(epochMilli), ZoneId.of("UTC"));
-        } catch (NumberFormatException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+        if (predictor != null) {
+            predictor.recordFileNamePattern(file, prediction, match.pattern());
         }
+        return new FileDate(match.dateTime(), DateSource.FILE_NAME);
     }
 
-    private static ZonedDateTime getDateByDateUnderscoreTime(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssZ");
-            return ZonedDateTime.parse(fileName + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+    /**
+     * Get the date of a JPEG, HEIF, TIFF or camera RAW file straight from its EXIF data, or of an MP4 or QuickTime
+     * file straight from its movie box.
+     * Either is always the first of the {@link #METADATA_DIRECTORIES} that metadata-extractor would find in the file,
+     * whatever the prediction, so the rest of the metadata never needs to be read.
+     */
+    private static FileDate getDateDirectly(File file, HeaderThenFile source, FileType fileType, int maxMetadataBytes,
+                                            Prediction prediction, DateSourcePredictor predictor) {
+        FileDate fileDate = switch (fileType) {
+            case Jpeg -> toExifFileDate(JpegExifDateReader.readDateOriginal(file, source, maxMetadataBytes));
+            case Heif -> toExifFileDate(HeifExifDateReader.readDateOriginal(file, source, maxMetadataBytes));
+            case Tiff, Arw, Cr2, Nef -> toExifFileDate(TiffDateReader.readDateOriginal(file, source, maxMetadataBytes));
+            case Mp4, QuickTime -> MovieHeaderReader.readCreationTime(file, source, fileType == FileType.QuickTime);
+            default -> null;
+        };
+        if (fileDate != null && predictor != null) {
+            predictor.recordMetadataDirectory(file, prediction, METADATA_DIRECTORY_OF_SOURCE.get(fileDate.source()));
         }
+        return fileDate;
     }
 
-    private static ZonedDateTime getDateByImgUnderscoreDateUnderscoreTime(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssZ");
-            return ZonedDateTime.parse(fileName.replaceFirst("(?i)IMG_", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+    /**
+     * Get the date from the first of the {@link #METADATA_DIRECTORIES} that has one, starting with the predicted
+     * directory if none of the directories before it are in the metadata.
+     */
+    private static FileDate getDateFromMetadata(File file, Metadata metadata, Prediction prediction,
+                                                DateSourcePredictor predictor) {
+        Class<? extends Directory> predictedDirectory = prediction.metadataDirectory();
+        if (predictedDirectory != null && !containsDirectoryBefore(metadata, predictedDirectory)) {
+            Date dateTime = getDateFromDirectory(metadata, predictedDirectory);
+            if (dateTime != null) {
+                predictor.recordMetadataDirectory(file, prediction, predictedDirectory);
+                return toFileDate(dateTime, predictedDirectory);
+            }
         }
-    }
 
-    private static ZonedDateTime getDateByDateHyphenatedUnderscoreTimeHyphenated(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ssZ");
-            return ZonedDateTime.parse(fileName + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+        for (Class<? extends Directory> directory : METADATA_DIRECTORIES) {
+            Date dateTime = getDateFromDirectory(metadata, directory);
+            if (dateTime != null) {
+                if (predictor != null) {
+                    predictor.recordMetadataDirectory(file, prediction, directory);
+                }
+                return toFileDate(dateTime, directory);
+            }
         }
+        return null;
     }
 
-    private static ZonedDateTime getDateByScreenshotUnderscoreDateHyphenatedTimeHyphenated(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ssZ");
-            return ZonedDateTime.parse(fileName.replaceFirst("(?i)Screenshot_", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
-        }
+    private static FileDate toFileDate(Date dateTime, Class<? extends Directory> directory) {
+        return toFileDate(dateTime.toInstant(), DATE_SOURCES.get(directory));
     }
 
-    private static ZonedDateTime getDateByDateUnderscoreTimeUnderscoreiOS(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSSZ");
-            return ZonedDateTime.parse(fileName.replaceFirst("(?i)_iOS", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
-        }
+    private static FileDate toExifFileDate(Instant dateTime) {
+        return dateTime == null ? null : toFileDate(dateTime, DateSource.EXIF);
     }
 
-    private static ZonedDateTime getDateByPXLUnderscoreDateUnderscoreTime(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSSZ");
-            return ZonedDateTime.parse(fileName.replaceFirst("(?i)PXL_", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
-        }
+    private static FileDate toFileDate(Instant dateTime, DateSource source) {
+        return new FileDate(ZonedDateTime.ofInstant(dateTime, ZoneId.of("UTC")), source);
     }
 
-    private static ZonedDateTime getDateByDateUnderscoreTimeHyphenCOLLAGE(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSSZ");
-            return ZonedDateTime.parse(fileName.replaceFirst("(?i)-COLLAGE", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+    private static boolean containsDirectoryBefore(Metadata metadata, Class<? extends Directory> directory) {
+        for (Class<? extends Directory> earlierDirectory : METADATA_DIRECTORIES) {
+            if (earlierDirectory == directory) {
+                return false;
+            }
+            if (metadata.containsDirectoryOfType(earlierDirectory)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private static ZonedDateTime getDateByIndexedBurstFileName(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
-            return ZonedDateTime.parse(fileName
-                .replaceFirst("(?i)(\\d{5})(IMG|XTR)_(\\d{5})_BURST", "")
-                .replaceFirst("(?i)_COVER", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+    private static Date getDateFromDirectory(Metadata metadata, Class<? extends Directory> type) {
+        Directory directory = metadata.getFirstDirectoryOfType(type);
+        if (directory instanceof ExifSubIFDDirectory exifSubIFDDirectory) {
+            return exifSubIFDDirectory.getDateOriginal();
         }
-    }
-
-    private static ZonedDateTime getDateByBurstActionFileName(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
-            return ZonedDateTime.parse(fileName
-                .replaceFirst("(?i)Burst_Cover_GIF_Action_", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+        if (directory instanceof Mp4MetaDirectory mp4MetaDirectory) {
+            return mp4MetaDirectory.getDate(Mp4MetaDirectory.TAG_CREATION_TIME);
         }
-    }
-
-    private static ZonedDateTime getDateByBurstCollageFileName(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
-            return ZonedDateTime.parse(fileName
-                .replaceFirst("(?i)Burst_Cover_Collage_", "") + "+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+        if (directory instanceof Mp4Directory mp4Directory) {
+            return mp4Directory.getDate(Mp4Directory.TAG_CREATION_TIME);
         }
-    }
-
-    private static ZonedDateTime getDateByIMGDateWhatsApp(String fileName) {
-        try {
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
-            return ZonedDateTime.parse(fileName.replaceFirst("IMG-", "").replaceFirst("-WA(\\d+)", "") + "000000+0000", dateTimeFormatter);
-        } catch (DateTimeParseException e) {
-            log.info(e.getLocalizedMessage(), e);
-            return null;
+        if (directory instanceof QuickTimeDirectory quickTimeDirectory) {
+            return quickTimeDirectory.getDate(QuickTimeDirectory.TAG_CREATION_TIME);
         }
+        return null;
     }
 }
@@ -0,0 +1,69 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * The first bytes of a file, read with a single open so that both its type and its date can be worked out from them
+ * without opening the file again, unless what is needed lies past the end of them.
+ *
+ * @param bytes the first bytes of the file, which are all of them if the file is small enough
+ * @param size  the size of the whole file
+ */
+public record FileHeader(byte[] bytes, long size) {
+    public static final int DEFAULT_HEADER_BYTES = 64 * 1024;
+
+    /**
+     * Read the header of the given file
+     *
+     * @param path     the file to read
+     * @param maxBytes the maximum number of bytes to read
+     * @return the first maxBytes of the file, or all of it if it is smaller
+     * @throws IOException if the file can't be read
+     */
+    public static FileHeader read(Path path, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            return read(channel, maxBytes, channel.size());
+        }
+    }
+
+    /**
+     * Read the header of the given file, whose size is already known from when it was scanned, so it isn't read
+     * from the file system again
+     *
+     * @param path     the file to read
+     * @param maxBytes the maximum number of bytes to read
+     * @param size     the size of the file
+     * @return the first maxBytes of the file, or all of it if it is smaller
+     * @throws IOException if the file can't be read
+     */
+    public static FileHeader read(Path path, int maxBytes, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            return read(channel, maxBytes, size);
+        }
+    }
+
+    private static FileHeader read(FileChannel channel, int maxBytes, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, maxBytes));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        byte[] bytes = buffer.position() == buffer.capacity() ? buffer.array()
+            : Arrays.copyOf(buffer.array(), buffer.position());
+        return new FileHeader(bytes, size);
+    }
+
+    /**
+     * @return true if the header holds the whole file
+     */
+    public boolean isWholeFile() {
+        return bytes.length >= size;
+    }
+}
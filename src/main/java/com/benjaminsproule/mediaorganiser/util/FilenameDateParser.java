@@ -0,0 +1,146 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gets the date from the names that cameras, phones and apps give files. Each naming scheme is a precompiled pattern
+ * that captures the date and time fields, and the patterns are tried in order in a single pass over them, so a name
+ * that doesn't match a scheme costs a failed match rather than a thrown exception.
+ * <p>
+ * The fields are resolved the same way {@link java.time.format.ResolverStyle#SMART} resolves them, so the dates are the
+ * same as parsing the names with {@link java.time.format.DateTimeFormatter#ofPattern(String)}: a day past the end of
+ * the month is moved back to the last day of it, 24:00:00 is midnight at the start of the next day, and the dates are
+ * at a zero offset, other than epoch milliseconds which are in UTC.
+ * <p>
+ * No name matches more than one of the patterns, so the pattern that matched the last file in a directory can be
+ * tried first for the next without changing the date it gets. Epoch milliseconds are always tried first, as the
+ * burst and WhatsApp patterns would otherwise claim some names that are just digits.
+ */
+public class FilenameDateParser {
+    /**
+     * The pattern index of dates that didn't come from one of the patterns, such as epoch milliseconds
+     */
+    static final int NO_PATTERN = -1;
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final Pattern EPOCH_MILLI = Pattern.compile("[+-]?\\p{Nd}+");
+
+    private static final String YEAR = "(\\d{4}|\\+\\d{5,9})";
+    private static final String DATE = YEAR + "(\\d{2})(\\d{2})";
+    private static final String TIME = "(\\d{2})(\\d{2})(\\d{2})";
+    private static final String MILLIS = "(\\d{3})";
+    private static final String HYPHENATED_DATE_TIME = YEAR + "-(\\d{2})-(\\d{2})_(\\d{2})-(\\d{2})-(\\d{2})";
+
+    private static final List<Pattern> PATTERNS = List.of(
+        // 19700101_010101 and IMG_19700101_010101
+        Pattern.compile("(?i:IMG_)?" + DATE + "_" + TIME),
+        // 1970-01-01_01-01-01 and Screenshot_1970-01-01_01-01-01
+        Pattern.compile("(?i:Screenshot_)?" + HYPHENATED_DATE_TIME),
+        // 20221227_152002772, 20230325_110242428_iOS and 20221227_152002772-COLLAGE
+        Pattern.compile(DATE + "_" + TIME + MILLIS + "(?i:_iOS|-COLLAGE)?"),
+        // PXL_20221227_152002772
+        Pattern.compile("(?i:PXL_)" + DATE + "_" + TIME + MILLIS),
+        // 00000IMG_00000_BURST20170430172516 and 00000XTR_00000_BURST20170430172516_COVER
+        Pattern.compile("(?i:\\d{5}(?:IMG|XTR)_\\d{5}_BURST)?" + DATE + TIME + "(?i:_COVER)?"),
+        // Burst_Cover_GIF_Action_20170401114720 and Burst_Cover_Collage_20170430172710
+        Pattern.compile("(?i:Burst_Cover_GIF_Action_|Burst_Cover_Collage_)" + DATE + TIME),
+        // IMG-20170430-WA0000
+        Pattern.compile("(?:IMG-)?" + DATE + "(?:-WA\\d+)?")
+    );
+
+    /**
+     * Get the date from the given file name.
+     *
+     * @param fileName the name of the file, without its extension
+     * @return the {@link ZonedDateTime} in the name, or null if the name isn't in a known format
+     */
+    public static ZonedDateTime parse(String fileName) {
+        Match match = parse(fileName, NO_PATTERN);
+        return match == null ? null : match.dateTime();
+    }
+
+    /**
+     * Get the date from the given file name, trying the given pattern before the others.
+     *
+     * @param fileName         the name of the file, without its extension
+     * @param predictedPattern the index of the pattern to try first, or {@link #NO_PATTERN}
+     * @return the date and the index of the pattern that matched it, or null if the name isn't in a known format
+     */
+    static Match parse(String fileName, int predictedPattern) {
+        if (EPOCH_MILLI.matcher(fileName).matches()) {
+            Long epochMilli = parseLong(fileName);
+            if (epochMilli != null) {
+                return new Match(ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), UTC), NO_PATTERN);
+            }
+        }
+
+        if (predictedPattern >= 0 && predictedPattern < PATTERNS.size()) {
+            ZonedDateTime zonedDateTime = parse(fileName, PATTERNS.get(predictedPattern));
+            if (zonedDateTime != null) {
+                return new Match(zonedDateTime, predictedPattern);
+            }
+        }
+
+        for (int i = 0; i < PATTERNS.size(); i++) {
+            if (i == predictedPattern) {
+                continue;
+            }
+            ZonedDateTime zonedDateTime = parse(fileName, PATTERNS.get(i));
+            if (zonedDateTime != null) {
+                return new Match(zonedDateTime, i);
+            }
+        }
+        return null;
+    }
+
+    private static ZonedDateTime parse(String fileName, Pattern pattern) {
+        Matcher matcher = pattern.matcher(fileName);
+        return matcher.matches() ? resolve(matcher) : null;
+    }
+
+    private static Long parseLong(String value) {
+        BigInteger bigInteger = new BigInteger(value);
+        return bigInteger.bitLength() < Long.SIZE ? bigInteger.longValue() : null;
+    }
+
+    private static ZonedDateTime resolve(Matcher matcher) {
+        int year = Integer.parseInt(matcher.group(1));
+        int month = Integer.parseInt(matcher.group(2));
+        int day = Integer.parseInt(matcher.group(3));
+        int hour = matcher.groupCount() > 3 ? Integer.parseInt(matcher.group(4)) : 0;
+        int minute = matcher.groupCount() > 4 ? Integer.parseInt(matcher.group(5)) : 0;
+        int second = matcher.groupCount() > 5 ? Integer.parseInt(matcher.group(6)) : 0;
+        int millis = matcher.groupCount() > 6 ? Integer.parseInt(matcher.group(7)) : 0;
+
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31 || minute > 59 || second > 59) {
+            return null;
+        }
+        boolean endOfDay = hour == 24 && minute == 0 && second == 0 && millis == 0;
+        if (hour > 23 && !endOfDay) {
+            return null;
+        }
+
+        YearMonth yearMonth = YearMonth.of(year, month);
+        LocalDate date = yearMonth.atDay(Math.min(day, yearMonth.lengthOfMonth()));
+        LocalDateTime dateTime = endOfDay ? date.plusDays(1).atStartOfDay()
+            : date.atTime(LocalTime.of(hour, minute, second, millis * 1_000_000));
+        return ZonedDateTime.of(dateTime, ZoneOffset.UTC);
+    }
+
+    /**
+     * A date found in a file name, along with the index of the pattern that found it
+     */
+    record Match(ZonedDateTime dateTime, int pattern) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * The bytes of a file, taken from its header for as far as the header goes, and from the file itself after that.
+ * The file is only opened the first time a byte past the header is needed.
+ */
+class HeaderThenFile implements Closeable {
+    private final File file;
+    private final byte[] header;
+    private long size;
+    private FileChannel channel;
+
+    HeaderThenFile(File file, FileHeader header) {
+        this.file = file;
+        this.header = header == null ? new byte[0] : header.bytes();
+        this.size = header == null ? -1 : header.size();
+    }
+
+    long size() throws IOException {
+        if (size < 0) {
+            size = channel().size();
+        }
+        return size;
+    }
+
+    /**
+     * Read from the position until the buffer is full or the end of the file is reached
+     */
+    void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (read(buffer, position + buffer.position()) < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get length bytes from the position, wrapping the header rather than copying it when they are all within it
+     *
+     * @return the bytes, which are fewer than length if the end of the file is reached first
+     */
+    ByteBuffer bytes(long position, int length) throws IOException {
+        if (position + length <= header.length) {
+            return ByteBuffer.wrap(header, (int) position, length).slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, position);
+        return buffer.flip();
+    }
+
+    int read(ByteBuffer buffer, long position) throws IOException {
+        if (position < header.length) {
+            int length = (int) Math.min(buffer.remaining(), header.length - position);
+            buffer.put(header, (int) position, length);
+            return length;
+        }
+        if (position >= size()) {
+            return -1;
+        }
+        return channel().read(buffer, position);
+    }
+
+    /**
+     * @return a stream of the bytes from the start of the file, which skips over bytes without reading them
+     */
+    InputStream stream() {
+        return new InputStream() {
+            private long position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int read = HeaderThenFile.this.read(ByteBuffer.wrap(b, off, len), position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = Math.max(0, Math.min(n, size() - position));
+                position += skipped;
+                return skipped;
+            }
+        };
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), READ);
+        }
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Reads the DateTimeOriginal of a HEIF file, such as a HEIC, straight out of its EXIF item, without decoding any of
+ * the images in it. The top level boxes are walked to the meta box, where the EXIF item is looked up in the iinf box
+ * and located with the iloc box, and the TIFF data in it is read by {@link TiffDateReader}. Anything that isn't
+ * handled, such as an EXIF item in more than one extent or in another file, gives null so that the full metadata can
+ * be read instead.
+ */
+@Slf4j
+public class HeifExifDateReader {
+    private static final int MAX_BOXES = 1024;
+
+    private static final int META = fourCc("meta");
+    private static final int IINF = fourCc("iinf");
+    private static final int INFE = fourCc("infe");
+    private static final int ILOC = fourCc("iloc");
+    private static final int IDAT = fourCc("idat");
+    private static final int EXIF = fourCc("Exif");
+
+    private static final int FILE_OFFSET = 0;
+    private static final int IDAT_OFFSET = 1;
+
+    /**
+     * Read the DateTimeOriginal of the given HEIF file, reading no more than maxBytes of its boxes or EXIF item.
+     *
+     * @param file     the file to read the date of
+     * @param maxBytes the maximum number of bytes of the meta box and EXIF item to read
+     * @return the date, or null if the file isn't HEIF or the date couldn't be read from it within maxBytes
+     */
+    public static Instant readDateOriginal(File file, int maxBytes) {
+        return readDateOriginal(file, (FileHeader) null, maxBytes);
+    }
+
+    /**
+     * Read the DateTimeOriginal of the given HEIF file, reading no more than maxBytes of its boxes or EXIF item.
+     *
+     * @param file     the file to read the date of
+     * @param header   the header already read from the file, or null to read it all from the file
+     * @param maxBytes the maximum number of bytes of the meta box and EXIF item to read
+     * @return the date, or null if the file isn't HEIF or the date couldn't be read from it within maxBytes
+     */
+    public static Instant readDateOriginal(File file, FileHeader header, int maxBytes) {
+        try (HeaderThenFile source = new HeaderThenFile(file, header)) {
+            return readDateOriginal(file, source, maxBytes);
+        } catch (IOException e) {
+            log.debug("Could not close " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the DateTimeOriginal of the given HEIF file from the source of its bytes, reading no more than maxBytes of
+     * its boxes or EXIF item
+     */
+    static Instant readDateOriginal(File file, HeaderThenFile source, int maxBytes) {
+        try {
+            Box meta = findBox(source, 0, source.size(), META);
+            if (meta == null || meta.size() > maxBytes) {
+                return null;
+            }
+
+            // meta is a full box, so its children come after its version and flags
+            long position = meta.payload() + 4;
+            Long exifItem = null;
+            ByteBuffer itemLocations = null;
+            Box itemData = null;
+            for (int boxes = 0; position + 8 <= meta.end(); boxes++) {
+                Box box = readBox(source, position, meta.end(), boxes);
+                if (box.type() == IINF) {
+                    exifItem = findExifItem(read(source, box));
+                } else if (box.type() == ILOC) {
+                    itemLocations = read(source, box);
+                } else if (box.type() == IDAT) {
+                    itemData = box;
+                }
+                position = box.end();
+            }
+            if (exifItem == null || itemLocations == null) {
+                return null;
+            }
+
+            Extent extent = findExtent(itemLocations, exifItem);
+            if (extent == null) {
+                return null;
+            }
+            long start = extent.offset();
+            if (extent.constructionMethod() == IDAT_OFFSET) {
+                if (itemData == null) {
+                    return null;
+                }
+                start += itemData.payload();
+            } else if (extent.constructionMethod() != FILE_OFFSET) {
+                return null;
+            }
+            long length = extent.length() == 0 ? source.size() - start : extent.length();
+            if (length > maxBytes) {
+                return null;
+            }
+
+            // The EXIF item starts with the offset of the TIFF header after it
+            ByteBuffer tiffHeaderOffset = source.bytes(start, 4);
+            if (tiffHeaderOffset.remaining() < 4) {
+                throw new EOFException("The EXIF item is past the end of the file");
+            }
+            long tiffStart = 4 + (tiffHeaderOffset.getInt(0) & 0xffffffffL);
+            return TiffDateReader.readDateOriginal(source, start + tiffStart, length - tiffStart);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read the EXIF date of " + file + " within " + maxBytes + " bytes", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the first box of the given type from the position to the end, or null if there isn't one
+     */
+    private static Box findBox(HeaderThenFile source, long position, long end, int type) throws IOException {
+        for (int boxes = 0; position + 8 <= end; boxes++) {
+            Box box = readBox(source, position, end, boxes);
+            if (box.type() == type) {
+                return box;
+            }
+            position = box.end();
+        }
+        return null;
+    }
+
+    private static Box readBox(HeaderThenFile source, long position, long end, int boxes) throws IOException {
+        if (boxes >= MAX_BOXES) {
+            throw new IOException("There are more than " + MAX_BOXES + " boxes before the EXIF item");
+        }
+        ByteBuffer header = source.bytes(position, 16);
+        if (header.remaining() < 8) {
+            throw new EOFException("The box header at " + position + " is past the end of the file");
+        }
+        long size = header.getInt(0) & 0xffffffffL;
+        int headerLength = 8;
+        if (size == 1) {
+            if (header.remaining() < 16) {
+                throw new EOFException("The box header at " + position + " is past the end of the file");
+            }
+            size = header.getLong(8);
+            headerLength = 16;
+        } else if (size == 0) {
+            size = end - position;
+        }
+        if (size < headerLength || size > end - position) {
+            throw new IOException("The box at " + position + " has an invalid size of " + size);
+        }
+        return new Box(header.getInt(4), position + headerLength, position + size);
+    }
+
+    private static ByteBuffer read(HeaderThenFile source, Box box) throws IOException {
+        ByteBuffer payload = source.bytes(box.payload(), (int) (box.end() - box.payload()));
+        if (payload.remaining() < box.end() - box.payload()) {
+            throw new EOFException("The box at " + box.payload() + " is past the end of the file");
+        }
+        return payload;
+    }
+
+    /**
+     * @return the id of the first item with the Exif type in the item information box, or null if there isn't one
+     */
+    private static Long findExifItem(ByteBuffer itemInformation) {
+        int version = itemInformation.get(0);
+        long entries = version == 0 ? itemInformation.getShort(4) & 0xffff : itemInformation.getInt(4) & 0xffffffffL;
+        int position = version == 0 ? 6 : 8;
+        for (long i = 0; i < entries && position + 8 <= itemInformation.limit(); i++) {
+            long size = itemInformation.getInt(position) & 0xffffffffL;
+            if (size < 8 || size > itemInformation.limit() - position) {
+                return null;
+            }
+            if (itemInformation.getInt(position + 4) == INFE) {
+                int entryVersion = itemInformation.get(position + 8);
+                if (entryVersion == 2 && itemInformation.getInt(position + 16) == EXIF) {
+                    return (long) (itemInformation.getShort(position + 12) & 0xffff);
+                }
+                if (entryVersion == 3 && itemInformation.getInt(position + 18) == EXIF) {
+                    return itemInformation.getInt(position + 12) & 0xffffffffL;
+                }
+            }
+            position += (int) size;
+        }
+        return null;
+    }
+
+    /**
+     * @return the only extent of the given item in the item location box, or null if it isn't there or is in more
+     * than one extent
+     */
+    private static Extent findExtent(ByteBuffer itemLocations, long item) {
+        int version = itemLocations.get(0);
+        int offsetSize = (itemLocations.get(4) >> 4) & 0x0f;
+        int lengthSize = itemLocations.get(4) & 0x0f;
+        int baseOffsetSize = (itemLocations.get(5) >> 4) & 0x0f;
+        int indexSize = version == 1 || version == 2 ? itemLocations.get(5) & 0x0f : 0;
+        int position = 6;
+        long items;
+        if (version < 2) {
+            items = itemLocations.getShort(position) & 0xffff;
+            position += 2;
+        } else {
+            items = itemLocations.getInt(position) & 0xffffffffL;
+            position += 4;
+        }
+
+        for (long i = 0; i < items; i++) {
+            long id;
+            if (version < 2) {
+                id = itemLocations.getShort(position) & 0xffff;
+                position += 2;
+            } else {
+                id = itemLocations.getInt(position) & 0xffffffffL;
+                position += 4;
+            }
+            int constructionMethod = 0;
+            if (version == 1 || version == 2) {
+                constructionMethod = itemLocations.getShort(position) & 0x0f;
+                position += 2;
+            }
+            int dataReferenceIndex = itemLocations.getShort(position) & 0xffff;
+            position += 2;
+            long baseOffset = sized(itemLocations, position, baseOffsetSize);
+            position += baseOffsetSize;
+            int extents = itemLocations.getShort(position) & 0xffff;
+            position += 2;
+
+            if (id == item) {
+                if (extents != 1 || dataReferenceIndex != 0) {
+                    return null;
+                }
+                position += indexSize;
+                long offset = sized(itemLocations, position, offsetSize);
+                long length = sized(itemLocations, position + offsetSize, lengthSize);
+                return new Extent(constructionMethod, baseOffset + offset, length);
+            }
+            position += extents * (indexSize + offsetSize + lengthSize);
+        }
+        return null;
+    }
+
+    /**
+     * @return the unsigned number of the given size in bytes at the position, which is 0 if the size is 0
+     */
+    private static long sized(ByteBuffer buffer, int position, int size) {
+        return switch (size) {
+            case 0 -> 0;
+            case 4 -> buffer.getInt(position) & 0xffffffffL;
+            case 8 -> buffer.getLong(position);
+            default -> throw new IllegalArgumentException("Unsupported field size of " + size);
+        };
+    }
+
+    private static int fourCc(String type) {
+        return type.charAt(0) << 24 | type.charAt(1) << 16 | type.charAt(2) << 8 | type.charAt(3);
+    }
+
+    private record Box(int type, long payload, long end) {
+        long size() {
+            return end - payload;
+        }
+    }
+
+    private record Extent(int constructionMethod, long offset, long length) {
+    }
+}
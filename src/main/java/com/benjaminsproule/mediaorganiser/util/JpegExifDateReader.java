@@ -0,0 +1,117 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Reads the DateTimeOriginal of a JPEG straight out of its EXIF data, without building the whole metadata tree of the
+ * file. The markers are walked to the EXIF APP1 segment, and the TIFF data in it read by {@link TiffDateReader}.
+ * Anything that isn't handled, such as a file that isn't a JPEG, EXIF data that is malformed or a date in any other
+ * form, gives null so that the full metadata can be read instead.
+ */
+@Slf4j
+public class JpegExifDateReader {
+    private static final int SOI = 0xd8;
+    private static final int EOI = 0xd9;
+    private static final int SOS = 0xda;
+    private static final int APP1 = 0xe1;
+    private static final int TEM = 0x01;
+    private static final int RST0 = 0xd0;
+    private static final int RST7 = 0xd7;
+
+    private static final byte[] EXIF_PREAMBLE = {'E', 'x', 'i', 'f', 0, 0};
+
+    /**
+     * Read the DateTimeOriginal of the given JPEG, reading no more than maxBytes of it.
+     *
+     * @param file     the file to read the date of
+     * @param maxBytes the maximum number of bytes of the file to read
+     * @return the date, or null if the file isn't a JPEG or the date couldn't be read from it within maxBytes
+     */
+    public static Instant readDateOriginal(File file, int maxBytes) {
+        return readDateOriginal(file, (FileHeader) null, maxBytes);
+    }
+
+    /**
+     * Read the DateTimeOriginal of the given JPEG, reading no more than maxBytes of it, starting with the header
+     * already read from it and only opening the file if the EXIF data carries on past the end of the header.
+     *
+     * @param file     the file to read the date of
+     * @param header   the header already read from the file, or null to read it all from the file
+     * @param maxBytes the maximum number of bytes of the file to read
+     * @return the date, or null if the file isn't a JPEG or the date couldn't be read from it within maxBytes
+     */
+    public static Instant readDateOriginal(File file, FileHeader header, int maxBytes) {
+        try (HeaderThenFile source = new HeaderThenFile(file, header)) {
+            return readDateOriginal(file, source, maxBytes);
+        } catch (IOException e) {
+            log.debug("Could not close " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the DateTimeOriginal of the given JPEG from the source of its bytes, reading no more than maxBytes of it
+     */
+    static Instant readDateOriginal(File file, HeaderThenFile source, int maxBytes) {
+        try {
+            long end = Math.min(source.size(), maxBytes);
+            ByteBuffer start = source.bytes(0, 2);
+            if (start.remaining() < 2 || (start.get(0) & 0xff) != 0xff || (start.get(1) & 0xff) != SOI) {
+                return null;
+            }
+
+            long position = 2;
+            while (position + 4 <= end) {
+                ByteBuffer marker = source.bytes(position, 4);
+                if (marker.remaining() < 4 || (marker.get(0) & 0xff) != 0xff) {
+                    return null;
+                }
+                int type = marker.get(1) & 0xff;
+                if (type == 0xff) {
+                    // Fill byte before the marker
+                    position++;
+                    continue;
+                }
+                if (type == SOS || type == EOI) {
+                    return null;
+                }
+                if (type == TEM || (type >= RST0 && type <= RST7)) {
+                    position += 2;
+                    continue;
+                }
+
+                int length = marker.getShort(2) & 0xffff;
+                if (length < 2) {
+                    return null;
+                }
+                if (type == APP1 && position + 2 + length <= end
+                    && isExif(source.bytes(position + 4, Math.min(length - 2, EXIF_PREAMBLE.length)))) {
+                    long tiff = position + 4 + EXIF_PREAMBLE.length;
+                    return TiffDateReader.readDateOriginal(source, tiff, length - 2 - EXIF_PREAMBLE.length);
+                }
+                position += 2 + length;
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read the EXIF date of " + file + " within " + maxBytes + " bytes", e);
+            return null;
+        }
+    }
+
+    private static boolean isExif(ByteBuffer segment) {
+        if (segment.remaining() < EXIF_PREAMBLE.length) {
+            return false;
+        }
+        for (int i = 0; i < EXIF_PREAMBLE.length; i++) {
+            if (segment.get(i) != EXIF_PREAMBLE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes and reads flat JSON objects, whose values are strings, numbers or null, which is all the reports need
+ */
+public class JsonUtil {
+
+    /**
+     * Write the fields as a JSON object on a single line. Numbers are written as numbers, null as null and anything
+     * else as a string.
+     *
+     * @param fields the names and values of the fields, in the order to write them
+     * @return the JSON object
+     */
+    public static String toJson(Map<String, ?> fields) {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            appendString(json, field.getKey());
+            json.append(':');
+            Object value = field.getValue();
+            if (value == null) {
+                json.append("null");
+            } else if (value instanceof Number) {
+                json.append(value);
+            } else {
+                appendString(json, value.toString());
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Read a JSON object written by {@link #toJson(Map)}
+     *
+     * @param json the JSON object
+     * @return the names and values of the fields, with numbers as strings and null as null
+     * @throws IllegalArgumentException if json is not a flat JSON object
+     */
+    public static Map<String, String> parseObject(String json) {
+        Parser parser = new Parser(json);
+        Map<String, String> fields = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.readString();
+                parser.expect(':');
+                fields.put(name, parser.readValue());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.expectEnd();
+        return fields;
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static class Parser {
+        private final String json;
+        private int position;
+
+        private Parser(String json) {
+            this.json = json;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private void expectEnd() {
+            skipWhitespace();
+            if (position != json.length()) {
+                throw error("Expected the end of the object");
+            }
+        }
+
+        private String readValue() {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == '"') {
+                return readString();
+            }
+            int start = position;
+            while (position < json.length() && ",}".indexOf(json.charAt(position)) < 0
+                && !Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+            String value = json.substring(start, position);
+            if (value.isEmpty()) {
+                throw error("Expected a value");
+            }
+            return value.equals("null") ? null : value;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < json.length()) {
+                char c = json.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= json.length()) {
+                    break;
+                }
+                char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > json.length()) {
+                            throw error("Expected four hex digits");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Expected four hex digits");
+                        }
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + position + " of " + json);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 public class MimeTypesUtil {
@@ -16,6 +17,10 @@ public class MimeTypesUtil {
     public static final String IMAGE_TIFF = "image/tiff";
     public static final String IMAGE_HEIC = "image/heic";
     public static final String IMAGE_HEIF = "image/heif";
+    public static final String IMAGE_CR2 = "image/x-canon-cr2";
+    public static final String IMAGE_NEF = "image/x-nikon-nef";
+    public static final String IMAGE_ARW = "image/x-sony-arw";
+    public static final String IMAGE_DNG = "image/x-adobe-dng";
     public static final String VIDEO_MP4 = "video/mp4";
     public static final String VIDEO_AVI_MS = "video/x-msvideo";
     public static final String VIDEO_AVI_UNIX = "video/vnd.avi";
@@ -26,6 +31,21 @@ public class MimeTypesUtil {
     public static final String VIDEOS_MP4 = VIDEO_MP4 + "\tmp4";
     public static final String VIDEOS_AVI = VIDEO_AVI_UNIX + "\tavi";
 
+    /**
+     * The mime types of the media that can be organised
+     */
+    public static final Set<String> MEDIA_MIME_TYPES = Set.of(IMAGE_JPG, IMAGE_JPEG, IMAGE_PNG, IMAGE_TIFF, IMAGE_HEIC,
+        IMAGE_HEIF, IMAGE_CR2, IMAGE_NEF, IMAGE_ARW, IMAGE_DNG, VIDEO_MP4, VIDEO_AVI_MS, VIDEO_AVI_UNIX,
+        VIDEO_QUICKTIME);
+
+    private static final Set<String> MEDIA_EXTENSIONS = Set.of("jpg", "jpeg", "png", "tif", "tiff", "heic", "heif",
+        "cr2", "nef", "arw", "dng", "mp4", "avi", "mov");
+
+    private static final Set<String> NON_MEDIA_EXTENSIONS = Set.of("gif", "bmp", "webp", "svg", "psd", "ico",
+        "mp3", "wav", "flac", "aac", "m4a", "ogg", "wma", "txt", "md", "log", "csv", "json", "xml", "html", "htm",
+        "ini", "db", "ds_store", "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "zip", "rar", "7z", "tar", "gz",
+        "exe", "dll", "xmp", "thm", "aae", "lrv");
+
     private static final Set<String> MIME_TYPES = new HashSet<String>();
 
     static {
@@ -35,6 +55,55 @@ public class MimeTypesUtil {
         MIME_TYPES.add(VIDEOS_AVI);
     }
 
+    /**
+     * Whether the extension of a file name is one that is known to be media, known not to be media, or unknown and so
+     * the content of the file needs to be checked.
+     */
+    public enum ExtensionType {
+        MEDIA, NOT_MEDIA, UNKNOWN
+    }
+
+    /**
+     * Return whether the given mime type is one of the {@link #MEDIA_MIME_TYPES}, ignoring case.
+     *
+     * @param mimeType the mime type to check
+     * @return true if it is a media mime type, false if it is not or is null
+     */
+    public static boolean isMediaMimeType(String mimeType) {
+        return mimeType != null && MEDIA_MIME_TYPES.contains(mimeType.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Classify the given file name by its extension alone, without opening the file.
+     *
+     * @param fileName the name of the file
+     * @return the {@link ExtensionType} of the file name's extension
+     */
+    public static ExtensionType getExtensionType(String fileName) {
+        String extension = getExtension(fileName);
+        if (MEDIA_EXTENSIONS.contains(extension)) {
+            return ExtensionType.MEDIA;
+        }
+        if (NON_MEDIA_EXTENSIONS.contains(extension)) {
+            return ExtensionType.NOT_MEDIA;
+        }
+        return ExtensionType.UNKNOWN;
+    }
+
+    /**
+     * Return the lower case extension of the given file name, without the dot.
+     *
+     * @param fileName the name of the file
+     * @return the extension, or an empty string if there isn't one
+     */
+    public static String getExtension(String fileName) {
+        int index = fileName.lastIndexOf('.');
+        if (index < 0 || index == fileName.length() - 1) {
+            return "";
+        }
+        return fileName.substring(index + 1).toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Creates a mime types file in the home directory if it doesn't already
      * exist, containing the required mime types for this application
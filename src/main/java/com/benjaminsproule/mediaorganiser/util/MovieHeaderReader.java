@@ -0,0 +1,177 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Reads the creation time of an MP4 or QuickTime file straight out of its movie box, without reading the rest of it.
+ * The box headers are read one at a time with positional reads, jumping over the media data and every other box that
+ * doesn't lead to a creation time, so only a handful of small reads are made however large the file is.
+ * <p>
+ * The creation time is the one metadata-extractor would give precedence to: for an MP4 that of the media header of the
+ * first track with a meta handler, as in {@link com.drew.metadata.mp4.media.Mp4MetaDirectory}, and otherwise that of
+ * the movie header. If the creation time is 0, which is what files that never had one set have, null is given so that
+ * the full metadata can be read instead.
+ */
+@Slf4j
+public class MovieHeaderReader {
+    private static final long SECONDS_FROM_1904_TO_1970 = 2082844800L;
+    private static final int MAX_BOXES = 1024;
+
+    private static final int MOOV = fourCc("moov");
+    private static final int MVHD = fourCc("mvhd");
+    private static final int TRAK = fourCc("trak");
+    private static final int MDIA = fourCc("mdia");
+    private static final int MDHD = fourCc("mdhd");
+    private static final int HDLR = fourCc("hdlr");
+    private static final int META = fourCc("meta");
+
+    /**
+     * Read the creation time of the given MP4 or QuickTime file.
+     *
+     * @param file      the file to read the creation time of
+     * @param quickTime whether the file is a QuickTime file, rather than an MP4
+     * @return the creation time and whether it came from a meta track or movie header, or null if there isn't one or
+     * it couldn't be read
+     */
+    public static FileDate readCreationTime(File file, boolean quickTime) {
+        try (HeaderThenFile source = new HeaderThenFile(file, null)) {
+            return readCreationTime(file, source, quickTime);
+        } catch (IOException e) {
+            log.debug("Could not close " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the creation time of the given MP4 or QuickTime file from the source of its bytes
+     */
+    static FileDate readCreationTime(File file, HeaderThenFile source, boolean quickTime) {
+        try {
+            Scan scan = new Scan(source, quickTime);
+            scan.boxes(0, source.size(), 0);
+
+            long creationTime;
+            DateSource dateSource;
+            if (scan.metaCreationTime != null) {
+                creationTime = scan.metaCreationTime;
+                dateSource = DateSource.MP4_MEDIA;
+            } else if (scan.movieCreationTime != null) {
+                creationTime = scan.movieCreationTime;
+                dateSource = quickTime ? DateSource.QUICKTIME : DateSource.MP4;
+            } else {
+                return null;
+            }
+            if (creationTime == 0) {
+                return null;
+            }
+            return new FileDate(ZonedDateTime.ofInstant(
+                Instant.ofEpochSecond(creationTime - SECONDS_FROM_1904_TO_1970), ZoneId.of("UTC")), dateSource);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read the creation time of " + file, e);
+            return null;
+        }
+    }
+
+    private static int fourCc(String type) {
+        return type.charAt(0) << 24 | type.charAt(1) << 16 | type.charAt(2) << 8 | type.charAt(3);
+    }
+
+    /**
+     * The creation times found so far, going down through moov, trak and mdia in the order metadata-extractor does.
+     * As in metadata-extractor, the meta handler takes the creation time of the last media header before it.
+     */
+    private static class Scan {
+        private final HeaderThenFile source;
+        private final boolean quickTime;
+        private Long movieCreationTime;
+        private Long mediaCreationTime;
+        private Long metaCreationTime;
+        private int boxes;
+
+        private Scan(HeaderThenFile source, boolean quickTime) {
+            this.source = source;
+            this.quickTime = quickTime;
+        }
+
+        /**
+         * Go through the boxes from the position to the end, at the given depth below the top level
+         */
+        private void boxes(long position, long end, int depth) throws IOException {
+            while (position + 8 <= end && !isDone()) {
+                if (++boxes > MAX_BOXES) {
+                    throw new IOException("There are more than " + MAX_BOXES + " boxes before the creation time");
+                }
+                ByteBuffer header = source.bytes(position, 16);
+                if (header.remaining() < 8) {
+                    throw new EOFException("The box header at " + position + " is past the end of the file");
+                }
+                long size = header.getInt(0) & 0xffffffffL;
+                int type = header.getInt(4);
+                int headerLength = 8;
+                if (size == 1) {
+                    if (header.remaining() < 16) {
+                        throw new EOFException("The box header at " + position + " is past the end of the file");
+                    }
+                    size = header.getLong(8);
+                    headerLength = 16;
+                } else if (size == 0) {
+                    size = end - position;
+                }
+                if (size < headerLength || size > end - position) {
+                    throw new IOException("The box at " + position + " has an invalid size of " + size);
+                }
+
+                long payload = position + headerLength;
+                long boxEnd = position + size;
+                if (depth == 0 && type == MOOV) {
+                    boxes(payload, boxEnd, 1);
+                    return;
+                } else if (depth == 1 && type == MVHD) {
+                    movieCreationTime = creationTime(payload);
+                } else if (depth == 1 && type == TRAK && !quickTime) {
+                    boxes(payload, boxEnd, 2);
+                } else if (depth == 2 && type == MDIA) {
+                    boxes(payload, boxEnd, 3);
+                } else if (depth == 3 && type == MDHD) {
+                    mediaCreationTime = creationTime(payload);
+                } else if (depth == 3 && type == HDLR && mediaCreationTime != null && isMetaHandler(payload)) {
+                    metaCreationTime = mediaCreationTime;
+                }
+                position = boxEnd;
+            }
+        }
+
+        /**
+         * @return true once nothing later in the file could take precedence over the creation time found
+         */
+        private boolean isDone() {
+            return metaCreationTime != null || (quickTime && movieCreationTime != null);
+        }
+
+        /**
+         * Read the creation time of a movie or media header, which is 64 bits in version 1 and 32 bits otherwise
+         */
+        private long creationTime(long payload) throws IOException {
+            ByteBuffer header = source.bytes(payload, 12);
+            if (header.remaining() < 12) {
+                throw new EOFException("The header at " + payload + " is past the end of the file");
+            }
+            return header.get(0) == 1 ? header.getLong(4) : header.getInt(4) & 0xffffffffL;
+        }
+
+        private boolean isMetaHandler(long payload) throws IOException {
+            ByteBuffer handler = source.bytes(payload, 12);
+            return handler.remaining() == 12 && handler.getInt(8) == META;
+        }
+    }
+}
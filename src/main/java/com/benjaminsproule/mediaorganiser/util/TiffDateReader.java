@@ -0,0 +1,295 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Reads the DateTimeOriginal out of TIFF data, by following the IFD0 to the Exif IFD and reading only
+ * DateTimeOriginal, SubSecTimeOriginal and OffsetTimeOriginal from it, without building the whole metadata tree. Only
+ * the two IFDs and the values of those tags are read, with positional reads, so none of the image data is.
+ * <p>
+ * This is the same TIFF data whether it is a TIFF or camera RAW file itself, such as a CR2, NEF, ARW or DNG, or is
+ * held in the EXIF of a JPEG or HEIF file. Only a date in the standard "yyyy:MM:dd HH:mm:ss" form is read, giving the
+ * same date as {@link com.drew.metadata.exif.ExifSubIFDDirectory#getDateOriginal()} would for the Exif IFD. Anything
+ * else, such as TIFF data that is malformed or a date in any other form, gives null so that the full metadata can be
+ * read instead.
+ */
+@Slf4j
+public class TiffDateReader {
+    private static final int TAG_EXIF_IFD_POINTER = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_OFFSET_TIME_ORIGINAL = 0x9011;
+    private static final int TAG_SUB_SEC_TIME_ORIGINAL = 0x9291;
+
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_IFD = 13;
+
+    private static final int ENTRY_LENGTH = 12;
+    private static final int MAX_ENTRIES = 1024;
+    private static final int DATE_TIME_LENGTH = 19;
+    private static final int MAX_ASCII_LENGTH = 64;
+
+    /**
+     * Read the DateTimeOriginal of the given TIFF or camera RAW file, reading nothing past the first maxBytes of it.
+     *
+     * @param file     the file to read the date of
+     * @param maxBytes the maximum number of bytes into the file to read from
+     * @return the date, or null if the file isn't TIFF or the date couldn't be read from it within maxBytes
+     */
+    public static Instant readDateOriginal(File file, int maxBytes) {
+        return readDateOriginal(file, (FileHeader) null, maxBytes);
+    }
+
+    /**
+     * Read the DateTimeOriginal of the given TIFF or camera RAW file, reading nothing past the first maxBytes of it.
+     *
+     * @param file     the file to read the date of
+     * @param header   the header already read from the file, or null to read it all from the file
+     * @param maxBytes the maximum number of bytes into the file to read from
+     * @return the date, or null if the file isn't TIFF or the date couldn't be read from it within maxBytes
+     */
+    public static Instant readDateOriginal(File file, FileHeader header, int maxBytes) {
+        try (HeaderThenFile source = new HeaderThenFile(file, header)) {
+            return readDateOriginal(file, source, maxBytes);
+        } catch (IOException e) {
+            log.debug("Could not close " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the DateTimeOriginal of the given TIFF or camera RAW file from the source of its bytes, reading nothing
+     * past the first maxBytes of it
+     */
+    static Instant readDateOriginal(File file, HeaderThenFile source, int maxBytes) {
+        try {
+            return readDateOriginal(source, 0, Math.min(source.size(), maxBytes));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read the EXIF date of " + file + " within " + maxBytes + " bytes", e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the DateTimeOriginal of the TIFF data at the given position of the source, which all the offsets within it
+     * are from
+     *
+     * @param source   the source of the bytes of the file
+     * @param position the position of the TIFF header in the file
+     * @param length   the length of the TIFF data, past which nothing is read
+     * @return the date, or null if there isn't one in the standard form
+     * @throws IOException if the TIFF data can't be read or is malformed
+     */
+    static Instant readDateOriginal(HeaderThenFile source, long position, long length) throws IOException {
+        Tiff tiff = new Tiff(source, position, length);
+        ByteBuffer header = tiff.bytes(0, 8);
+        if (header.get(0) == 'I' && header.get(1) == 'I') {
+            tiff.byteOrder = ByteOrder.LITTLE_ENDIAN;
+        } else if (header.get(0) != 'M' || header.get(1) != 'M') {
+            return null;
+        }
+        header.order(tiff.byteOrder);
+        if (header.getShort(2) != 42) {
+            return null;
+        }
+
+        ByteBuffer ifd0 = tiff.ifd(header.getInt(4) & 0xffffffffL);
+        int pointer = findEntry(ifd0, TAG_EXIF_IFD_POINTER);
+        if (pointer < 0) {
+            return null;
+        }
+        int pointerType = ifd0.getShort(pointer + 2) & 0xffff;
+        if (pointerType != TYPE_LONG && pointerType != TYPE_IFD) {
+            return null;
+        }
+        ByteBuffer exifIfd = tiff.ifd(ifd0.getInt(pointer + 8) & 0xffffffffL);
+
+        ByteBuffer dateTime = tiff.ascii(exifIfd, findEntry(exifIfd, TAG_DATE_TIME_ORIGINAL));
+        if (dateTime == null || dateTime.remaining() != DATE_TIME_LENGTH) {
+            return null;
+        }
+        long seconds = parseDateTime(dateTime);
+        if (seconds == Long.MIN_VALUE) {
+            return null;
+        }
+
+        int milliseconds = 0;
+        int subSecondEntry = findEntry(exifIfd, TAG_SUB_SEC_TIME_ORIGINAL);
+        if (subSecondEntry >= 0) {
+            milliseconds = parseSubSecond(tiff.ascii(exifIfd, subSecondEntry));
+            if (milliseconds < 0) {
+                return null;
+            }
+        }
+
+        ByteBuffer offset = tiff.ascii(exifIfd, findEntry(exifIfd, TAG_OFFSET_TIME_ORIGINAL));
+        if (offset != null) {
+            seconds -= parseOffset(offset);
+        }
+        return Instant.ofEpochSecond(seconds, milliseconds * 1_000_000L);
+    }
+
+    /**
+     * @return the position in the IFD of its entry with the given tag, or -1 if it hasn't got one
+     */
+    private static int findEntry(ByteBuffer ifd, int tag) {
+        for (int entry = 0; entry + ENTRY_LENGTH <= ifd.limit(); entry += ENTRY_LENGTH) {
+            if ((ifd.getShort(entry) & 0xffff) == tag) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the seconds since the epoch of the "yyyy:MM:dd HH:mm:ss" date, as if it were in UTC, or Long.MIN_VALUE
+     * if it isn't a valid date in that form
+     */
+    private static long parseDateTime(ByteBuffer dateTime) {
+        if (dateTime.get(4) != ':' || dateTime.get(7) != ':' || dateTime.get(10) != ' ' || dateTime.get(13) != ':'
+            || dateTime.get(16) != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(dateTime, 0, 4);
+        int month = digits(dateTime, 5, 2);
+        int day = digits(dateTime, 8, 2);
+        int hour = digits(dateTime, 11, 2);
+        int minute = digits(dateTime, 14, 2);
+        int second = digits(dateTime, 17, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+            || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return LocalDate.of(year, month, day).toEpochDay() * 86400 + hour * 3600 + minute * 60 + second;
+        } catch (DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return the milliseconds of the sub seconds, worked out the same way as metadata-extractor does, or -1 if they
+     * aren't just digits
+     */
+    private static int parseSubSecond(ByteBuffer subSecond) {
+        if (subSecond == null) {
+            return -1;
+        }
+        int length = subSecond.remaining();
+        while (length > 0 && subSecond.get(length - 1) == ' ') {
+            length--;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        StringBuilder fraction = new StringBuilder(length + 1).append('.');
+        for (int i = 0; i < length; i++) {
+            byte digit = subSecond.get(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            fraction.append((char) digit);
+        }
+        return (int) (Double.parseDouble(fraction.toString()) * 1000);
+    }
+
+    /**
+     * @return the seconds east of UTC of the "+HH:mm" offset, or 0 if it isn't an offset in that form
+     */
+    private static int parseOffset(ByteBuffer offset) {
+        if (offset.remaining() != 6 || offset.get(3) != ':') {
+            return 0;
+        }
+        byte sign = offset.get(0);
+        int hours = digits(offset, 1, 2);
+        int minutes = digits(offset, 4, 2);
+        if ((sign != '+' && sign != '-') || hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+            return 0;
+        }
+        int seconds = hours * 3600 + minutes * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    private static int digits(ByteBuffer value, int position, int length) {
+        int number = 0;
+        for (int i = 0; i < length; i++) {
+            byte digit = value.get(position + i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            number = number * 10 + digit - '0';
+        }
+        return number;
+    }
+
+    /**
+     * TIFF data within a file, read an IFD or value at a time
+     */
+    private static class Tiff {
+        private final HeaderThenFile source;
+        private final long position;
+        private final long length;
+        private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+
+        private Tiff(HeaderThenFile source, long position, long length) {
+            this.source = source;
+            this.position = position;
+            this.length = length;
+        }
+
+        /**
+         * @return the bytes at the offset into the TIFF data, in its byte order
+         */
+        private ByteBuffer bytes(long offset, int count) throws IOException {
+            if (offset < 0 || count < 0 || offset > length - count) {
+                throw new EOFException(count + " bytes at " + offset + " are past the end of the TIFF data");
+            }
+            ByteBuffer bytes = source.bytes(position + offset, count);
+            if (bytes.remaining() < count) {
+                throw new EOFException(count + " bytes at " + offset + " are past the end of the file");
+            }
+            return bytes.order(byteOrder);
+        }
+
+        /**
+         * @return the entries of the IFD at the offset
+         */
+        private ByteBuffer ifd(long offset) throws IOException {
+            int entries = bytes(offset, 2).getShort(0) & 0xffff;
+            if (entries > MAX_ENTRIES) {
+                throw new IOException("The IFD at " + offset + " has " + entries + " entries");
+            }
+            return bytes(offset + 2, entries * ENTRY_LENGTH);
+        }
+
+        /**
+         * @return the value of the ASCII entry up to its first NUL, which is held in the entry itself if it fits, or
+         * null if there isn't an entry or it isn't ASCII
+         */
+        private ByteBuffer ascii(ByteBuffer ifd, int entry) throws IOException {
+            if (entry < 0 || (ifd.getShort(entry + 2) & 0xffff) != TYPE_ASCII) {
+                return null;
+            }
+            long count = ifd.getInt(entry + 4) & 0xffffffffL;
+            if (count > MAX_ASCII_LENGTH) {
+                return null;
+            }
+            ByteBuffer value = count <= 4 ? ifd.slice(entry + 8, (int) count)
+                : bytes(ifd.getInt(entry + 8) & 0xffffffffL, (int) count);
+            int end = 0;
+            while (end < value.limit() && value.get(end) != 0) {
+                end++;
+            }
+            return value.limit(end);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The XXH64 hash, which is fast enough to hash whole media files without the cost of a cryptographic hash, and good
+ * enough that two different files are all but certain to have different hashes. Data can be given to it in any number
+ * of pieces.
+ */
+public class XxHash64 {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE_LENGTH = 32;
+    private static final long MAX_MAPPED_BYTES = 64L * 1024 * 1024;
+
+    private final long seed;
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long length;
+
+    public XxHash64() {
+        this(0);
+    }
+
+    public XxHash64(long seed) {
+        this.seed = seed;
+        v1 = seed + PRIME_1 + PRIME_2;
+        v2 = seed + PRIME_2;
+        v3 = seed;
+        v4 = seed - PRIME_1;
+    }
+
+    /**
+     * Hash the whole of the given file, mapping it into memory a piece at a time rather than copying it onto the heap
+     *
+     * @param path the file to hash
+     * @return the hash of the contents of the file
+     * @throws IOException if the file can't be read
+     */
+    public static long hash(Path path) throws IOException {
+        XxHash64 hash = new XxHash64();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_MAPPED_BYTES) {
+                hash.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAX_MAPPED_BYTES, size - position)));
+            }
+        }
+        return hash.getValue();
+    }
+
+    /**
+     * Hash the given bytes
+     *
+     * @param bytes the bytes to hash
+     * @return the hash of the bytes
+     */
+    public static long hash(byte[] bytes) {
+        XxHash64 hash = new XxHash64();
+        hash.update(ByteBuffer.wrap(bytes));
+        return hash.getValue();
+    }
+
+    /**
+     * Add the remaining bytes of the buffer to the hash, leaving the buffer's position where it was
+     *
+     * @param buffer the bytes to add
+     */
+    public void update(ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        length += input.remaining();
+
+        if (pending.position() > 0) {
+            while (pending.hasRemaining() && input.hasRemaining()) {
+                pending.put(input.get());
+            }
+            if (pending.hasRemaining()) {
+                return;
+            }
+            pending.flip();
+            consumeStripe(pending);
+            pending.clear();
+        }
+
+        while (input.remaining() >= STRIPE_LENGTH) {
+            consumeStripe(input);
+        }
+        pending.put(input);
+    }
+
+    /**
+     * @return the hash of all the bytes added so far
+     */
+    public long getValue() {
+        long hash;
+        if (length >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME_5;
+        }
+        hash += length;
+
+        ByteBuffer remaining = pending.duplicate().flip().order(ByteOrder.LITTLE_ENDIAN);
+        while (remaining.remaining() >= Long.BYTES) {
+            hash ^= round(0, remaining.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+        if (remaining.remaining() >= Integer.BYTES) {
+            hash ^= (remaining.getInt() & 0xFFFFFFFFL) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+        }
+        while (remaining.hasRemaining()) {
+            hash ^= (remaining.get() & 0xFFL) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void consumeStripe(ByteBuffer input) {
+        v1 = round(v1, input.getLong());
+        v2 = round(v2, input.getLong());
+        v3 = round(v3, input.getLong());
+        v4 = round(v4, input.getLong());
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME_1 + PRIME_4;
+    }
+}
@@ -1,7 +1,6 @@
 package com.benjaminsproule.mediaorganiser;
 
 import com.benjaminsproule.mediaorganiser.domain.DateConstants;
-import com.benjaminsproule.mediaorganiser.domain.Progress;
 import com.benjaminsproule.mediaorganiser.test.Constants;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -88,6 +87,28 @@ public class MainITest {
         assertThat(exists(expectedFile), is(true));
     }
 
+    @Test
+    public void testMainDryRunWritesAPlanThatCanBeAppliedLater() throws Exception {
+        Path inputDirectoryPath = new File(inputDirectory + separator + "image.jpg").toPath();
+        copy(getFile("image.jpg").toPath(), inputDirectoryPath);
+        Path planFile = Files.createTempDirectory("test").resolve("plan.jsonl");
+        Path expectedFile = new File(
+            outputDirectory + separator + "2015" + separator + "02" + separator + "15" + separator + "image.jpg")
+            .toPath();
+
+        Main.main(new String[]{"-id", inputDirectory, "-od", outputDirectory, "-of", DateConstants.YYYY_MM_DD, "-dr",
+            planFile.toString()});
+
+        assertThat(exists(planFile), is(true));
+        assertThat(exists(inputDirectoryPath), is(true));
+        assertThat(exists(expectedFile), is(false));
+
+        Main.main(new String[]{"-ap", planFile.toString()});
+
+        assertThat(exists(inputDirectoryPath), is(false));
+        assertThat(exists(expectedFile), is(true));
+    }
+
     @Disabled("Find a tiff file with a created timestamp")
     @Test
     public void testMainMovesTifImageWithImageMetadataIntoCorrectPlace() throws Exception {
@@ -134,57 +155,4 @@ public class MainITest {
             .toPath();
         assertThat(exists(expectedFile), is(true));
     }
-
-    @Test
-    public void testMainSetsTheProgressDetails_oneImage() throws Exception {
-        Path inputDirectoryPath = new File(inputDirectory + separator + "image.jpg").toPath();
-        Path staticPath = getFile("image.jpg").toPath();
-        copy(staticPath, inputDirectoryPath);
-
-        String[] args = new String[]{"-id", inputDirectory, "-od", outputDirectory, "-of", DateConstants.YYYY_MM_DD};
-        Main.main(args);
-
-        assertThat(Progress.getNumberOfFilesProcessed(), is(1));
-        assertThat(Progress.getTotalNumberOfFiles(), is(1));
-    }
-
-    @Test
-    public void testMainSetsTheProgressDetails_twoImages() throws Exception {
-        Path inputDirectoryPath = new File(inputDirectory + separator + "image.jpg").toPath();
-        Path staticPath = getFile("image.jpg").toPath();
-        copy(staticPath, inputDirectoryPath);
-        inputDirectoryPath = new File(inputDirectory + separator + "3661100.jpg").toPath();
-        staticPath = getFile("3661100.jpg").toPath();
-        copy(staticPath, inputDirectoryPath);
-
-        String[] args = new String[]{"-id", inputDirectory, "-od", outputDirectory, "-of", DateConstants.YYYY_MM_DD};
-        Main.main(args);
-
-        assertThat(Progress.getNumberOfFilesProcessed(), is(2));
-        assertThat(Progress.getTotalNumberOfFiles(), is(2));
-    }
-
-    @Test
-    public void testMainSetsTheProgressDetails_resetsProgress() throws Exception {
-        Path inputDirectoryPath = new File(inputDirectory + separator + "image.jpg").toPath();
-        Path staticPath = getFile("image.jpg").toPath();
-        copy(staticPath, inputDirectoryPath);
-
-        String[] args = new String[]{"-id", inputDirectory, "-od", outputDirectory, "-of", DateConstants.YYYY_MM_DD};
-        Main.main(args);
-
-        assertThat(Progress.getNumberOfFilesProcessed(), is(1));
-        assertThat(Progress.getTotalNumberOfFiles(), is(1));
-
-        // Service deletes input directory when it's empty, so need to re-create it
-        inputDirectory = Files.createTempDirectory(Constants.SOURCE_PATH).toString();
-        args = new String[]{"-id", inputDirectory, "-od", outputDirectory, "-of", DateConstants.YYYY_MM_DD};
-
-        Main.main(args);
-
-        assertThat("Counter either not reset or image still in input directory", Progress.getNumberOfFilesProcessed(),
-            is(0));
-        assertThat("Counter either not reset or image still in input directory", Progress.getTotalNumberOfFiles(),
-            is(0));
-    }
 }
@@ -1,6 +1,5 @@
 package com.benjaminsproule.mediaorganiser;
 
-import static java.util.Collections.emptyList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -11,6 +10,9 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +20,7 @@ import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 
 import com.benjaminsproule.mediaorganiser.domain.DateConstants;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
 import com.benjaminsproule.mediaorganiser.service.MediaService;
 import com.benjaminsproule.mediaorganiser.test.Constants;
 import com.benjaminsproule.mediaorganiser.util.MimeTypesUtil;
@@ -32,7 +35,7 @@ public class MainTest {
         mockedMimeTypesUtil.when(MimeTypesUtil::requiresMimeTypesFile).thenReturn(false);
 
         mockedMediaService = mockConstruction(MediaService.class, (mock, context) -> {
-            when(mock.organise(anyString(), anyString(), anyString())).thenReturn(emptyList());
+            when(mock.organise(anyString(), anyString(), anyString())).thenReturn(new OutcomeSummary(null, Map.of(), List.of()));
         });
     }
 
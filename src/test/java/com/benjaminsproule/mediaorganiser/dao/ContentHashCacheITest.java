@@ -0,0 +1,107 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.util.XxHash64;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Random;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ContentHashCacheITest {
+    private ContentHashCache contentHashCache;
+    private Path path;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        contentHashCache = new ContentHashCache();
+        path = Files.write(createTempDirectory("test").resolve("image.jpg"), "image".getBytes());
+        Files.setLastModifiedTime(path, FileTime.from(Instant.parse("2015-02-15T19:41:23Z")));
+    }
+
+    @Test
+    public void testHashOnlyReadsEachFileOnce() throws IOException {
+        long first = contentHashCache.hash(path);
+        long second = contentHashCache.hash(path);
+
+        assertThat(first, is(XxHash64.hash("image".getBytes())));
+        assertThat(second, is(first));
+        assertThat(contentHashCache.getFilesHashed(), is(1L));
+        assertThat(contentHashCache.getCacheHits(), is(1L));
+    }
+
+    @Test
+    public void testHashReadsTheFileAgainIfItHasChanged() throws IOException {
+        contentHashCache.hash(path);
+        Files.write(path, "changed".getBytes());
+
+        assertThat(contentHashCache.hash(path), is(XxHash64.hash("changed".getBytes())));
+        assertThat(contentHashCache.getFilesHashed(), is(2L));
+    }
+
+    @Test
+    public void testMovedKeepsTheHashForTheNewLocation() throws IOException {
+        contentHashCache.hash(path);
+        Path newPath = Files.move(path, path.resolveSibling("moved.jpg"));
+
+        contentHashCache.moved(path, newPath);
+
+        assertThat(contentHashCache.hash(newPath), is(XxHash64.hash("image".getBytes())));
+        assertThat(contentHashCache.getFilesHashed(), is(1L));
+    }
+
+    @Test
+    public void testClearForgetsTheHashes() throws IOException {
+        contentHashCache.hash(path);
+
+        contentHashCache.clear();
+        contentHashCache.hash(path);
+
+        assertThat(contentHashCache.getFilesHashed(), is(2L));
+    }
+
+    @Test
+    public void testPartialHashOfSmallFileIsTheFullHash() throws IOException {
+        long partialHash = contentHashCache.partialHash(path);
+        long hash = contentHashCache.hash(path);
+
+        assertThat(partialHash, is(XxHash64.hash("image".getBytes())));
+        assertThat(hash, is(partialHash));
+        assertThat(contentHashCache.getFilesHashed(), is(1L));
+        assertThat(contentHashCache.getBytesRead(), is(5L));
+    }
+
+    @Test
+    public void testPartialHashOfLargeFileOnlyReadsTheStartAndEnd() throws IOException {
+        byte[] content = new byte[1024 * 1024];
+        new Random(1).nextBytes(content);
+        Files.write(path, content);
+
+        long partialHash = contentHashCache.partialHash(path);
+
+        byte[] startAndEnd = new byte[2 * ContentHashCache.PARTIAL_HASH_BYTES];
+        System.arraycopy(content, 0, startAndEnd, 0, ContentHashCache.PARTIAL_HASH_BYTES);
+        System.arraycopy(content, content.length - ContentHashCache.PARTIAL_HASH_BYTES, startAndEnd,
+            ContentHashCache.PARTIAL_HASH_BYTES, ContentHashCache.PARTIAL_HASH_BYTES);
+        assertThat(partialHash, is(XxHash64.hash(startAndEnd)));
+        assertThat(contentHashCache.getBytesRead(), is(2L * ContentHashCache.PARTIAL_HASH_BYTES));
+        assertThat(contentHashCache.getFilesHashed(), is(0L));
+        assertThat(contentHashCache.getFilesPartiallyHashed(), is(1L));
+    }
+
+    @Test
+    public void testPartialHashOnlyReadsEachFileOnce() throws IOException {
+        contentHashCache.partialHash(path);
+        contentHashCache.partialHash(path);
+
+        assertThat(contentHashCache.getFilesPartiallyHashed(), is(1L));
+        assertThat(contentHashCache.getCacheHits(), is(1L));
+    }
+}
@@ -0,0 +1,99 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static java.nio.file.Files.createDirectory;
+import static java.nio.file.Files.createSymbolicLink;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.createTempFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DirectoryWalkerITest {
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionIfParallelismIsLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new DirectoryWalker(0));
+    }
+
+    @Test
+    public void testGetParallelismReturnsTheConfiguredParallelism() {
+        assertThat(new DirectoryWalker(3).getParallelism(), is(3));
+    }
+
+    @Test
+    public void testWalkReturnsNothingForEmptyDirectory() throws IOException {
+        Queue<Path> paths = new ConcurrentLinkedQueue<>();
+
+        new DirectoryWalker(2).walk(createTempDirectory("test"), (path, attributes) -> paths.add(path));
+
+        assertThat(paths, is(empty()));
+    }
+
+    @Test
+    public void testWalkReturnsFilesFromSiblingAndNestedSubDirectories() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path root = createTempFile(tempPath, "test", ".jpg");
+        Path first = createTempFile(createDirectory(tempPath.resolve("first")), "test", ".jpg");
+        Path second = createTempFile(createDirectory(tempPath.resolve("second")), "test", ".jpg");
+        Path nested = createTempFile(createDirectory(tempPath.resolve("second").resolve("nested")), "test", ".jpg");
+        Queue<Path> paths = new ConcurrentLinkedQueue<>();
+
+        new DirectoryWalker(4).walk(tempPath, (path, attributes) -> paths.add(path));
+
+        assertThat(paths, containsInAnyOrder(root, first, second, nested));
+    }
+
+    @Test
+    public void testWalkPassesTheAttributesReadDuringTheListing() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        createTempFile(tempPath, "test", ".jpg");
+        Queue<Boolean> regularFiles = new ConcurrentLinkedQueue<>();
+
+        new DirectoryWalker(1).walk(tempPath, (path, attributes) -> regularFiles.add(attributes.isRegularFile()));
+
+        assertThat(regularFiles, containsInAnyOrder(true));
+    }
+
+    @Test
+    public void testWalkDoesNotLoopOnSymbolicLinkToParentDirectory() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path directory = createDirectory(tempPath.resolve("directory"));
+        Path path = createTempFile(directory, "test", ".jpg");
+        createSymbolicLink(directory.resolve("loop"), tempPath);
+        Queue<Path> paths = new ConcurrentLinkedQueue<>();
+
+        new DirectoryWalker(2).walk(tempPath, (file, attributes) -> paths.add(file));
+
+        assertThat(paths, containsInAnyOrder(path));
+    }
+
+    @Test
+    public void testWalkSkipsBrokenSymbolicLinks() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path path = createTempFile(tempPath, "test", ".jpg");
+        createSymbolicLink(tempPath.resolve("broken.jpg"), tempPath.resolve("missing.jpg"));
+        Queue<Path> paths = new ConcurrentLinkedQueue<>();
+
+        new DirectoryWalker(1).walk(tempPath, (file, attributes) -> paths.add(file));
+
+        assertThat(paths, containsInAnyOrder(path));
+    }
+
+    @Test
+    public void testWalkThrowsNotDirectoryExceptionIfGivenAFile() throws IOException {
+        Path path = createTempFile(createTempDirectory("test"), "test", ".jpg");
+
+        assertThrows(NotDirectoryException.class, () -> new DirectoryWalker(1).walk(path, (file, attributes) -> {
+        }));
+    }
+}
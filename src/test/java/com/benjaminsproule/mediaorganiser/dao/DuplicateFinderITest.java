@@ -0,0 +1,119 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DuplicateFinderITest {
+    private static final int LARGE_SIZE = 1024 * 1024;
+
+    private DuplicateFinder duplicateFinder;
+    private Path tempPath;
+    private byte[] content;
+    private Path path;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        duplicateFinder = new DuplicateFinder();
+        tempPath = createTempDirectory("test");
+        content = new byte[LARGE_SIZE];
+        new Random(1).nextBytes(content);
+        path = Files.write(tempPath.resolve("image.jpg"), content);
+    }
+
+    @Test
+    public void testFindDuplicateRulesOutFileWithoutCandidatesBySizeWithoutReadingIt() throws IOException {
+        Path duplicate = duplicateFinder.findDuplicate(path, LARGE_SIZE, List.of());
+
+        assertThat(duplicate, is(nullValue()));
+        assertThat(duplicateFinder.getResolvedBySize(), is(1L));
+        assertThat(duplicateFinder.getBytesSavedBySize(), is((long) LARGE_SIZE));
+        assertThat(duplicateFinder.getBytesRead(), is(0L));
+    }
+
+    @Test
+    public void testFindDuplicateRulesOutFileWithDifferentStartByPartialHash() throws IOException {
+        Path candidate = writeCandidate(0);
+
+        Path duplicate = duplicateFinder.findDuplicate(path, LARGE_SIZE, List.of(candidate));
+
+        assertThat(duplicate, is(nullValue()));
+        assertThat(duplicateFinder.getResolvedByPartialHash(), is(1L));
+        assertThat(duplicateFinder.getBytesSavedByPartialHash(),
+            is(LARGE_SIZE - 2L * ContentHashCache.PARTIAL_HASH_BYTES));
+        assertThat(duplicateFinder.getBytesRead(), is(4L * ContentHashCache.PARTIAL_HASH_BYTES));
+    }
+
+    @Test
+    public void testFindDuplicateRulesOutFileWithDifferentEndByPartialHash() throws IOException {
+        Path candidate = writeCandidate(LARGE_SIZE - 1);
+
+        Path duplicate = duplicateFinder.findDuplicate(path, LARGE_SIZE, List.of(candidate));
+
+        assertThat(duplicate, is(nullValue()));
+        assertThat(duplicateFinder.getResolvedByPartialHash(), is(1L));
+        assertThat(duplicateFinder.getResolvedByFullHash(), is(0L));
+    }
+
+    @Test
+    public void testFindDuplicateHashesInFullIfOnlyTheMiddleDiffers() throws IOException {
+        Path candidate = writeCandidate(LARGE_SIZE / 2);
+
+        Path duplicate = duplicateFinder.findDuplicate(path, LARGE_SIZE, List.of(candidate));
+
+        assertThat(duplicate, is(nullValue()));
+        assertThat(duplicateFinder.getResolvedByFullHash(), is(1L));
+        assertThat(duplicateFinder.getBytesRead(), is(4L * ContentHashCache.PARTIAL_HASH_BYTES + 2L * LARGE_SIZE));
+    }
+
+    @Test
+    public void testFindDuplicateReturnsCandidateWithTheSameContents() throws IOException {
+        Path different = writeCandidate(LARGE_SIZE / 2);
+        Path same = Files.write(tempPath.resolve("same.jpg"), content);
+
+        Path duplicate = duplicateFinder.findDuplicate(path, LARGE_SIZE, List.of(different, same));
+
+        assertThat(duplicate, is(same));
+        assertThat(duplicateFinder.getResolvedByFullHash(), is(1L));
+    }
+
+    @Test
+    public void testFindDuplicateDecidesSmallFilesByPartialHash() throws IOException {
+        byte[] smallContent = new byte[ContentHashCache.PARTIAL_HASH_BYTES];
+        new Random(2).nextBytes(smallContent);
+        Path small = Files.write(tempPath.resolve("small.jpg"), smallContent);
+        Path same = Files.write(tempPath.resolve("same.jpg"), smallContent);
+
+        Path duplicate = duplicateFinder.findDuplicate(small, smallContent.length, List.of(same));
+
+        assertThat(duplicate, is(same));
+        assertThat(duplicateFinder.getResolvedByPartialHash(), is(1L));
+        assertThat(duplicateFinder.getResolvedByFullHash(), is(0L));
+        assertThat(duplicateFinder.getBytesRead(), is(2L * smallContent.length));
+    }
+
+    @Test
+    public void testFindDuplicateIgnoresCandidatesThatHaveBeenRemoved() throws IOException {
+        Path removed = tempPath.resolve("removed.jpg");
+
+        Path duplicate = duplicateFinder.findDuplicate(path, LARGE_SIZE, List.of(removed));
+
+        assertThat(duplicate, is(nullValue()));
+    }
+
+    private Path writeCandidate(int differentByte) throws IOException {
+        byte[] candidateContent = content.clone();
+        candidateContent[differentByte]++;
+        return Files.write(tempPath.resolve("candidate" + differentByte + ".jpg"), candidateContent);
+    }
+}
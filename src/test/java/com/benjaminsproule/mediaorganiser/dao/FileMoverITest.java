@@ -0,0 +1,140 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Random;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.exists;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileMoverITest {
+    private FileMover fileMover;
+    private Path source;
+    private Path targetDirectory;
+    private byte[] content;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fileMover = new FileMover(FileMover.DEFAULT_COPY_PARALLELISM);
+        Path tempPath = createTempDirectory("test");
+        content = new byte[3 * 1024 * 1024 + 17];
+        new Random(1).nextBytes(content);
+        source = Files.write(tempPath.resolve("image.jpg"), content);
+        Files.setLastModifiedTime(source, FileTime.from(Instant.parse("2015-02-15T19:41:23Z")));
+        targetDirectory = Files.createDirectory(tempPath.resolve("output"));
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionIfCopyParallelismIsLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new FileMover(0));
+    }
+
+    @Test
+    public void testMoveRenamesFileOnTheSameFileStore() throws IOException {
+        Path target = targetDirectory.resolve("image.jpg");
+
+        fileMover.move(source, target);
+
+        assertThat(exists(source), is(false));
+        assertThat(Files.readAllBytes(target), is(content));
+        assertThat(fileMover.getRenames(), is(1L));
+        assertThat(fileMover.getCopies(), is(0L));
+    }
+
+    @Test
+    public void testMoveOnlyChecksForTheTargetOnTheSameFileStore() throws IOException {
+        MetadataCalls metadataCalls = new MetadataCalls();
+        FileMover fileMover = new FileMover(FileMover.DEFAULT_COPY_PARALLELISM,
+            new FileStoreLimiter(FileStoreLimiter.DEFAULT_FILE_STORE_PARALLELISM), metadataCalls);
+
+        fileMover.move(source, targetDirectory.resolve("image.jpg"));
+
+        assertThat(exists(source), is(false));
+        assertThat(Files.readAllBytes(targetDirectory.resolve("image.jpg")), is(content));
+        assertThat(metadataCalls.getAttributeReads(), is(1L));
+        assertThat(fileMover.getRenames(), is(1L));
+    }
+
+    @Test
+    public void testMoveThrowsFileAlreadyExistsExceptionAndLeavesBothFilesIfTargetExists() throws IOException {
+        Path target = Files.write(targetDirectory.resolve("image.jpg"), new byte[]{1});
+
+        assertThrows(FileAlreadyExistsException.class, () -> fileMover.move(source, target));
+
+        assertThat(Files.readAllBytes(source), is(content));
+        assertThat(Files.readAllBytes(target), is(new byte[]{1}));
+    }
+
+    @Test
+    public void testLinkHardLinksFileOnTheSameFileStore() throws IOException {
+        Path target = targetDirectory.resolve("image.jpg");
+
+        fileMover.link(source, target);
+
+        assertThat(Files.readAllBytes(source), is(content));
+        assertThat(Files.isSameFile(source, target), is(true));
+        assertThat(fileMover.getLinks(), is(1L));
+        assertThat(fileMover.getCopies(), is(0L));
+    }
+
+    @Test
+    public void testLinkThrowsFileAlreadyExistsExceptionAndLeavesBothFilesIfTargetExists() throws IOException {
+        Path target = Files.write(targetDirectory.resolve("image.jpg"), new byte[]{1});
+
+        assertThrows(FileAlreadyExistsException.class, () -> fileMover.link(source, target));
+
+        assertThat(Files.readAllBytes(source), is(content));
+        assertThat(Files.readAllBytes(target), is(new byte[]{1}));
+        assertThat(fileMover.getLinks(), is(0L));
+    }
+
+    @Test
+    public void testCopyThenDeleteCopiesTheWholeFileAndDeletesTheSource() throws IOException {
+        Path target = targetDirectory.resolve("image.jpg");
+
+        fileMover.copyThenDelete(source, target);
+
+        assertThat(exists(source), is(false));
+        assertThat(Files.readAllBytes(target), is(content));
+        assertThat(fileMover.getCopies(), is(1L));
+    }
+
+    @Test
+    public void testCopyThenDeleteKeepsTheLastModifiedTime() throws IOException {
+        Path target = targetDirectory.resolve("image.jpg");
+
+        fileMover.copyThenDelete(source, target);
+
+        assertThat(Files.getLastModifiedTime(target), is(FileTime.from(Instant.parse("2015-02-15T19:41:23Z"))));
+    }
+
+    @Test
+    public void testCopyThenDeleteLeavesTheSourceIfTargetExists() throws IOException {
+        Path target = Files.write(targetDirectory.resolve("image.jpg"), new byte[]{1});
+
+        assertThrows(FileAlreadyExistsException.class, () -> fileMover.copyThenDelete(source, target));
+
+        assertThat(Files.readAllBytes(source), is(content));
+        assertThat(Files.readAllBytes(target), is(new byte[]{1}));
+        assertThat(fileMover.getCopies(), is(0L));
+    }
+
+    @Test
+    public void testCopyThenDeleteLeavesTheSourceIfTargetDirectoryDoesNotExist() throws IOException {
+        Path target = targetDirectory.resolve("missing").resolve("image.jpg");
+
+        assertThrows(IOException.class, () -> fileMover.copyThenDelete(source, target));
+
+        assertThat(Files.readAllBytes(source), is(content));
+    }
+}
@@ -0,0 +1,74 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileStoreLimiterITest {
+    private FileStoreLimiter fileStoreLimiter;
+    private Path tempPath;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fileStoreLimiter = new FileStoreLimiter(1);
+        tempPath = createTempDirectory("test");
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionIfParallelismIsLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new FileStoreLimiter(0));
+    }
+
+    @Test
+    public void testGetFileStoreOfDirectoryThatDoesNotExistIsTheFileStoreOfItsParent() throws IOException {
+        Path directory = tempPath.resolve("2015").resolve("02");
+
+        assertThat(fileStoreLimiter.getFileStore(directory), is(Files.getFileStore(tempPath)));
+    }
+
+    @Test
+    public void testAcquireOnlyTakesOnePermitForDirectoriesOnTheSameFileStore() throws Exception {
+        Path source = Files.createDirectory(tempPath.resolve("source"));
+        Path target = Files.createDirectory(tempPath.resolve("target"));
+
+        CompletableFuture<Void> acquired = CompletableFuture.runAsync(() -> {
+            try (FileStoreLimiter.Permits permits = fileStoreLimiter.acquire(source, target)) {
+                // Would wait forever if a second permit of the same file store was needed
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        acquired.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAcquireWaitsUntilThePermitsOfTheFileStoreAreClosed() throws Exception {
+        Path source = Files.createDirectory(tempPath.resolve("source"));
+        Path target = Files.createDirectory(tempPath.resolve("target"));
+
+        FileStoreLimiter.Permits permits = fileStoreLimiter.acquire(source);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try (FileStoreLimiter.Permits otherPermits = fileStoreLimiter.acquire(target)) {
+                // Only gets here once the first permits are closed
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        permits.close();
+        waiting.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -1,21 +1,40 @@
 package com.benjaminsproule.mediaorganiser.dao;
 
+import com.benjaminsproule.mediaorganiser.dao.MediaDao.ProbedFile;
+import com.benjaminsproule.mediaorganiser.dao.MediaDao.SavedFile;
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
 import com.benjaminsproule.mediaorganiser.test.Constants;
+import com.benjaminsproule.mediaorganiser.test.JpegBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
 import static java.io.File.separator;
 import static java.nio.file.Files.*;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -158,6 +177,17 @@ public class MediaDaoITest {
         assertThat(paths.get(0), is(path));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {".cr2", ".nef", ".arw", ".dng"})
+    public void testGetFilesReturnsRawFile(String extension) throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path path = createTempFile(tempPath, "test", extension);
+
+        List<Path> paths = mediaDao.getFiles(tempPath.toString());
+        assertThat(paths.size(), is(1));
+        assertThat(paths.get(0), is(path));
+    }
+
     @Test
     public void testGetFilesReturnsAviFile() throws IOException {
         Path tempPath = createTempDirectory("test");
@@ -199,6 +229,150 @@ public class MediaDaoITest {
         assertThat(paths.get(0), is(path));
     }
 
+    @Test
+    public void testGetFilesTrustingExtensionsReturnsKnownMediaExtensionWithoutCheckingContent() throws IOException {
+        mediaDao = new MediaDao(1, true);
+        Path tempPath = createTempDirectory("test");
+        Path path = createTempFile(tempPath, "test", ".mov");
+        write(path, "not a video".getBytes());
+
+        List<Path> paths = mediaDao.getFiles(tempPath.toString());
+        assertThat(paths, contains(path));
+    }
+
+    @Test
+    public void testGetFilesTrustingExtensionsDoesNotReturnKnownNonMediaExtension() throws IOException, URISyntaxException {
+        mediaDao = new MediaDao(1, true);
+        Path tempPath = createTempDirectory("test");
+        copy(getFile("image.jpg").toPath(), tempPath.resolve("image.txt"));
+
+        List<Path> paths = mediaDao.getFiles(tempPath.toString());
+        assertThat(paths.size(), is(0));
+    }
+
+    @Test
+    public void testGetFilesTrustingExtensionsChecksContentOfUnknownExtension() throws IOException, URISyntaxException {
+        mediaDao = new MediaDao(1, true);
+        Path tempPath = createTempDirectory("test");
+        Path path = tempPath.resolve("image");
+        copy(getFile("image.jpg").toPath(), path);
+
+        List<Path> paths = mediaDao.getFiles(tempPath.toString());
+        assertThat(paths, contains(path));
+    }
+
+    @Test
+    public void testStreamFilesThrowsIllegalArgumentExceptionIfInputDirectoryIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> mediaDao.streamFiles(null, path -> {
+        }));
+    }
+
+    @Test
+    public void testStreamFilesPassesMediaFilesWithinSubDirectoriesToTheConsumer() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path path = createTempFile(createTempDirectory(tempPath, "test"), "test", ".jpg");
+        createTempFile(tempPath, "test", ".txt");
+        Queue<Path> paths = new ConcurrentLinkedQueue<>();
+
+        mediaDao.streamFiles(tempPath.toString(), paths::add);
+
+        assertThat(paths, contains(path));
+    }
+
+    @Test
+    public void testGetFilesToProbeReturnsEveryFileWithoutCheckingContent() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path image = createTempFile(createTempDirectory(tempPath, "test"), "test", ".jpg");
+        Path text = createTempFile(tempPath, "test", ".txt");
+
+        List<Path> paths = mediaDao.getFilesToProbe(tempPath.toString()).stream().map(ScannedFile::path).toList();
+        assertThat(paths, containsInAnyOrder(image, text));
+    }
+
+    @Test
+    public void testGetFilesToProbeTrustingExtensionsDoesNotReturnKnownNonMediaExtension() throws IOException {
+        mediaDao = new MediaDao(1, true);
+        Path tempPath = createTempDirectory("test");
+        Path image = createTempFile(tempPath, "test", ".jpg");
+        createTempFile(tempPath, "test", ".txt");
+
+        List<Path> paths = mediaDao.getFilesToProbe(tempPath.toString()).stream().map(ScannedFile::path).toList();
+        assertThat(paths, contains(image));
+    }
+
+    @Test
+    public void testGetFilesToProbeReturnsTheAttributesReadWhilstScanning() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path image = Files.write(tempPath.resolve("image.jpg"), new byte[42]);
+
+        List<ScannedFile> files = mediaDao.getFilesToProbe(tempPath.toString());
+
+        assertThat(files, contains(new ScannedFile(image, 42, getLastModifiedTime(image),
+            readAttributes(image, BasicFileAttributes.class).fileKey())));
+    }
+
+    @Test
+    public void testGetFilesToProbeReadsTheAttributesOfEachFileOnce() throws IOException {
+        Path emptyPath = createTempDirectory("test");
+        Path tempPath = createTempDirectory("test");
+        for (int i = 0; i < 3; i++) {
+            createTempFile(tempPath, "test", ".jpg");
+        }
+        mediaDao.getFilesToProbe(emptyPath.toString());
+        long attributeReadsPerScan = mediaDao.getMetadataCalls().getAttributeReads();
+
+        mediaDao.getFilesToProbe(tempPath.toString());
+
+        assertThat(mediaDao.getMetadataCalls().getAttributeReads(), is(2 * attributeReadsPerScan + 3));
+        assertThat(mediaDao.getMetadataCalls().getDirectoryListings(), is(2L));
+    }
+
+    @Test
+    public void testStreamFilesToProbePassesEveryFileToTheConsumer() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path image = createTempFile(tempPath, "test", ".jpg");
+        Path text = createTempFile(tempPath, "test", ".txt");
+        Queue<Path> paths = new ConcurrentLinkedQueue<>();
+
+        mediaDao.streamFilesToProbe(tempPath.toString(), file -> paths.add(file.path()));
+
+        assertThat(paths, containsInAnyOrder(image, text));
+    }
+
+    @Test
+    public void testProbeReadsTheHeaderOfAMediaFile() throws IOException, URISyntaxException {
+        Path path = getFile("image.jpg").toPath();
+
+        ProbedFile probedFile = mediaDao.probe(path);
+
+        assertThat(probedFile.media(), is(true));
+        assertThat(probedFile.header().size(), is(size(path)));
+    }
+
+    @Test
+    public void testProbeFindsAMediaFileByItsContentWhateverItsExtension() throws IOException, URISyntaxException {
+        Path path = createTempDirectory("test").resolve("image");
+        copy(getFile("image.jpg").toPath(), path);
+
+        assertThat(mediaDao.probe(path).media(), is(true));
+    }
+
+    @Test
+    public void testProbeFindsARawFileToBeMedia() throws IOException {
+        Path path = createTempFile("test", ".nef");
+        write(path, JpegBuilder.tiff(ByteOrder.LITTLE_ENDIAN, Map.of()));
+
+        assertThat(mediaDao.probe(path).media(), is(true));
+    }
+
+    @Test
+    public void testProbeDoesNotFindATextFileToBeMedia() throws IOException {
+        Path path = createTempFile("test", ".txt");
+        write(path, "not an image".getBytes());
+
+        assertThat(mediaDao.probe(path).media(), is(false));
+    }
+
     @Test
     public void testSaveFileThrowsIllegalArgumentExceptionIfOutputDirectoryIsNull() throws IOException {
         Path tempPath = createTempDirectory("test");
@@ -223,7 +397,7 @@ public class MediaDaoITest {
     @Test
     public void testSaveFileThrowsIllegalArgumentExceptionIfFileIsNull() {
         assertThrows(IllegalArgumentException.class,
-            () -> mediaDao.saveFile(createTempDirectory("test").toString(), null));
+            () -> mediaDao.saveFile(createTempDirectory("test").toString(), (Path) null));
     }
 
     @Test
@@ -241,6 +415,38 @@ public class MediaDaoITest {
         checkOnlyFilesExist(new File(destinationDirectory + separator + "image.jpg").toPath());
     }
 
+    @Test
+    public void testSaveFileOfAScannedFileOnlyChecksTheTargetOnceTheOutputDirectoryIsKnown() throws IOException {
+        Path source = createTempDirectory(Constants.SOURCE_PATH);
+        ScannedFile first = ScannedFile.read(Files.write(source.resolve("first.jpg"), new byte[1]));
+        ScannedFile second = ScannedFile.read(Files.write(source.resolve("second.jpg"), new byte[2]));
+        destinationDirectory = createTempDirectory(Constants.DESTINATION_PATH).toString();
+        mediaDao.saveFile(destinationDirectory, first);
+        long attributeReads = mediaDao.getMetadataCalls().getAttributeReads();
+        long directoryListings = mediaDao.getMetadataCalls().getDirectoryListings();
+
+        mediaDao.saveFile(destinationDirectory, second);
+
+        assertThat(mediaDao.getMetadataCalls().getAttributeReads(), is(attributeReads + 1));
+        assertThat(mediaDao.getMetadataCalls().getDirectoryListings(), is(directoryListings));
+        assertThat(exists(Path.of(destinationDirectory, "second.jpg")), is(true));
+    }
+
+    @Test
+    public void testLinkFileOfAScannedFileDoesNotReadAnyAttributesOnceTheOutputDirectoryIsKnown() throws IOException {
+        Path source = createTempDirectory(Constants.SOURCE_PATH);
+        ScannedFile first = ScannedFile.read(Files.write(source.resolve("first.jpg"), new byte[1]));
+        ScannedFile second = ScannedFile.read(Files.write(source.resolve("second.jpg"), new byte[2]));
+        destinationDirectory = createTempDirectory(Constants.DESTINATION_PATH).toString();
+        mediaDao.linkFile(destinationDirectory, first);
+        long attributeReads = mediaDao.getMetadataCalls().getAttributeReads();
+
+        mediaDao.linkFile(destinationDirectory, second);
+
+        assertThat(mediaDao.getMetadataCalls().getAttributeReads(), is(attributeReads));
+        assertThat(exists(Path.of(destinationDirectory, "second.jpg")), is(true));
+    }
+
     @Test
     public void testSaveFileCreatesDirectoriesIfTheyDoNotExist() throws IOException, URISyntaxException {
         createImageInTempDirectory();
@@ -273,11 +479,75 @@ public class MediaDaoITest {
         checkOnlyFilesExist(preCreatedFile);
     }
 
+    @Test
+    public void testSaveFileDoesNothingIfExistingFileInNewLocationHasSameContentsButADifferentName() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        Path preCreatedFile = addFileToDestination("IMG_20150215_194123.jpg");
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, sourceImagePath);
+
+        assertThat(savedFile.moved(), is(false));
+        assertThat(savedFile.target(), is(preCreatedFile));
+        assertThat(exists(sourceImagePath), is(true));
+        checkOnlyFilesExist(preCreatedFile);
+    }
+
+    @Test
+    public void testSaveFileIncrementsFileIndexIfExistingFileHasSameNameAndSizeButDifferentContents() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        byte[] differentContents = readAllBytes(staticPath);
+        differentContents[differentContents.length - 1]++;
+        Path preCreatedFile = write(new File(destinationDirectory + separator + "image.jpg").toPath(),
+            differentContents);
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, sourceImagePath);
+
+        Path expectedPath = new File(destinationDirectory + separator + "image0.jpg").toPath();
+        assertThat(savedFile.moved(), is(true));
+        assertThat(savedFile.target(), is(expectedPath));
+        checkOnlyFilesExist(preCreatedFile, expectedPath);
+    }
+
+    @Test
+    public void testSaveFileDoesNothingIfFileWithSameContentsWasMovedIntoNewLocationEarlier() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        Path secondSourcePath = sourceImagePath.resolveSibling("IMG_20150215_194123.jpg");
+        copy(staticPath, secondSourcePath);
+        mediaDao.saveFile(destinationDirectory, sourceImagePath);
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, secondSourcePath);
+
+        assertThat(savedFile.moved(), is(false));
+        assertThat(savedFile.target(), is(new File(destinationDirectory + separator + "image.jpg").toPath()));
+        assertThat(exists(secondSourcePath), is(true));
+    }
+
+    @Test
+    public void testSaveFileReturnsTheExistingFileIfItHasSameNameAndSize() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        Path preCreatedFile = addFileToDestination("image.jpg");
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, sourceImagePath);
+
+        assertThat(savedFile.moved(), is(false));
+        assertThat(savedFile.target(), is(preCreatedFile));
+    }
+
+    @Test
+    public void testSaveFileReturnsTheNewFile() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, sourceImagePath);
+
+        assertThat(savedFile.moved(), is(true));
+        assertThat(savedFile.target(), is(new File(destinationDirectory + separator + "image.jpg").toPath()));
+    }
+
     @Test
     public void testSaveFileIncrementsRenamedFileIndexIfFileInOutputAlreadyHasThatName() throws IOException, URISyntaxException {
         createImageInTempDirectory();
         Path preCreatedFile = addFileToDestination("1970-01-01_01-01-01.jpg", "image.jpg");
-        Path preCreatedFileIncremented = addFileToDestination("image0.jpg");
+        Path preCreatedFileIncremented = addFileToDestination("image.png", "image0.jpg");
 
         mediaDao.saveFile(destinationDirectory, sourceImagePath);
 
@@ -286,69 +556,267 @@ public class MediaDaoITest {
     }
 
     @Test
-    public void testDeleteEmptyDirectoryDoesNothingIfPathParentNotEmpty() throws IOException, URISyntaxException {
+    public void testSaveFileGivesDifferentFilesWithTheSameNameSavedAtOnceDifferentNames() throws Exception {
         createImageInTempDirectory();
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path source = Files.createTempDirectory(Constants.SOURCE_PATH).resolve("image.jpg");
+            write(source, ("image " + i).getBytes());
+            sources.add(source);
+        }
+        Queue<SavedFile> savedFiles = new ConcurrentLinkedQueue<>();
 
-        mediaDao.deleteEmptyDirectory(sourceImagePath);
+        try (ExecutorService executorService = Executors.newFixedThreadPool(8)) {
+            for (Path source : sources) {
+                executorService.submit(() -> savedFiles.add(mediaDao.saveFile(destinationDirectory, source)));
+            }
+        }
+
+        assertThat(savedFiles.size(), is(20));
+        assertThat(savedFiles.stream().map(SavedFile::target).distinct().count(), is(20L));
+        try (Stream<Path> list = list(destinationPath)) {
+            assertThat(list.count(), is(20L));
+        }
+    }
+
+    @Test
+    public void testSaveFileOnlyMovesOneOfTheFilesWithTheSameContentsSavedAtOnce() throws Exception {
+        createImageInTempDirectory();
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sources.add(write(Files.createTempDirectory(Constants.SOURCE_PATH).resolve("image" + i + ".jpg"),
+                "the same image".getBytes()));
+        }
+        Queue<SavedFile> savedFiles = new ConcurrentLinkedQueue<>();
+
+        try (ExecutorService executorService = Executors.newFixedThreadPool(8)) {
+            for (Path source : sources) {
+                executorService.submit(() -> savedFiles.add(mediaDao.saveFile(destinationDirectory, source)));
+            }
+        }
 
+        assertThat(savedFiles.size(), is(20));
+        assertThat(savedFiles.stream().filter(SavedFile::moved).count(), is(1L));
+        assertThat(savedFiles.stream().map(SavedFile::target).distinct().count(), is(1L));
+        try (Stream<Path> list = list(destinationPath)) {
+            assertThat(list.count(), is(1L));
+        }
+    }
+
+    @Test
+    public void testSaveFileTriesTheNextNameIfTheReservedOneIsCreatedBySomethingElse() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        mediaDao.saveFile(destinationDirectory, sourceImagePath);
+        Path createdElsewhere = addFileToDestination("image.png", "image0.jpg");
+        Path secondSourcePath = Files.createTempDirectory(Constants.SOURCE_PATH).resolve("image.jpg");
+        write(secondSourcePath, "different".getBytes());
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, secondSourcePath);
+
+        Path expectedPath = new File(destinationDirectory + separator + "image1.jpg").toPath();
+        assertThat(savedFile.target(), is(expectedPath));
+        checkOnlyFilesExist(new File(destinationDirectory + separator + "image.jpg").toPath(), createdElsewhere,
+            expectedPath);
+    }
+
+    @Test
+    public void testSaveFileAddsIndexToTheEndOfAFileNameWithoutAnExtension() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        Path existing = write(destinationPath.resolve("image"), "existing".getBytes());
+        Path source = Files.createTempDirectory(Constants.SOURCE_PATH).resolve("image");
+        write(source, "different".getBytes());
+
+        SavedFile savedFile = mediaDao.saveFile(destinationDirectory, source);
+
+        assertThat(savedFile.target(), is(destinationPath.resolve("image0")));
+        assertThat(exists(existing), is(true));
+    }
+
+    @Test
+    public void testCreateDirectoryCreatesDirectoriesIfTheyDoNotExist() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path directory = tempPath.resolve("2015").resolve("02");
+
+        mediaDao.createDirectory(directory.toString());
+
+        assertThat(isDirectory(directory), is(true));
+    }
+
+    @Test
+    public void testCreateDirectoryOnlyCreatesEachDirectoryOnce() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        Path directory = tempPath.resolve("directory");
+        mediaDao.createDirectory(directory.toString());
+        Files.delete(directory);
+
+        mediaDao.createDirectory(directory.toString());
+
+        assertThat(exists(directory), is(false));
+    }
+
+    @Test
+    public void testLinkFileLeavesTheFileWhereItIsAndLinksItIntoTheOutputDirectory() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+
+        SavedFile savedFile = mediaDao.linkFile(destinationDirectory, sourceImagePath);
+
+        assertThat(savedFile.moved(), is(true));
+        assertThat(savedFile.target(), is(destinationPath.resolve("image.jpg")));
+        assertThat(exists(sourceImagePath), is(true));
+        assertThat(isSameFile(sourceImagePath, savedFile.target()), is(true));
+    }
+
+    @Test
+    public void testLinkFileDoesNothingIfTheFileHasAlreadyBeenLinked() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+        Path linked = mediaDao.linkFile(destinationDirectory, sourceImagePath).target();
+
+        SavedFile savedFile = mediaDao.linkFile(destinationDirectory, sourceImagePath);
+
+        assertThat(savedFile.moved(), is(false));
+        assertThat(savedFile.target(), is(linked));
+        checkOnlyFilesExist(linked);
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesDoesNothingIfDirectoryNotEmpty() throws IOException, URISyntaxException {
+        createImageInTempDirectory();
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(sourceImagePath.getParent()), null);
+
+        assertThat(deleted, is(empty()));
         assertThat(exists(sourceImagePath.getParent()), is(true));
         assertThat(exists(sourceImagePath), is(true));
     }
 
     @Test
-    public void testDeleteEmptyDirectoryDeletesPathIfPathParentEmpty() throws IOException {
-        sourceImagePath = new File(
-            Files.createTempDirectory(Constants.SOURCE_PATH).toString() + separator + "image.jpg").toPath();
+    public void testDeleteEmptyDirectoriesDeletesDirectoryIfEmpty() throws IOException {
+        Path tempDirectory = createTempDirectory(Constants.SOURCE_PATH);
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(tempDirectory), null);
+
+        assertThat(deleted, contains(tempDirectory.toAbsolutePath().normalize()));
+        assertThat(exists(tempDirectory), is(false));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesDoesNotListADirectoryThatIsEmpty() throws IOException {
+        Path tempDirectory = createTempDirectory(Constants.SOURCE_PATH);
 
-        mediaDao.deleteEmptyDirectory(sourceImagePath);
+        mediaDao.deleteEmptyDirectories(List.of(tempDirectory), null);
 
-        assertThat(exists(sourceImagePath.getParent()), is(false));
+        assertThat(mediaDao.getMetadataCalls().getDirectoryListings(), is(0L));
     }
 
     @Test
-    public void testDeleteEmptyDirectoryDeletesPathIfPathParentOnlyContainsThumbsDb() throws IOException {
+    public void testDeleteEmptyDirectoriesDeletesDirectoryIfItOnlyContainsThumbsDb() throws IOException {
         Path tempDirectory = createTempDirectory(Constants.SOURCE_PATH);
-        sourceImagePath = new File(tempDirectory.toString() + separator + "image.jpg").toPath();
-        File thumbsDb = new File(tempDirectory.resolve("Thumbs.db").toString());
-        Files.createFile(thumbsDb.toPath());
-        assertThat(exists(thumbsDb.toPath()), is(true));
+        Path thumbsDb = Files.createFile(tempDirectory.resolve("Thumbs.db"));
 
-        mediaDao.deleteEmptyDirectory(sourceImagePath);
+        mediaDao.deleteEmptyDirectories(List.of(tempDirectory), null);
 
         assertThat(exists(tempDirectory), is(false));
-        assertThat(exists(thumbsDb.toPath()), is(false));
+        assertThat(exists(thumbsDb), is(false));
     }
 
     @Test
-    public void testDeleteEmptyDirectoryDeletesPathIfPathParentOnlyContainsDsStore() throws IOException {
+    public void testDeleteEmptyDirectoriesDeletesDirectoryIfItOnlyContainsDsStore() throws IOException {
         Path tempDirectory = createTempDirectory(Constants.SOURCE_PATH);
-        sourceImagePath = new File(tempDirectory.toString() + separator + "image.jpg").toPath();
-        File dsStore = new File(tempDirectory.resolve(".DS_Store").toString());
-        Files.createFile(dsStore.toPath());
-        assertThat(exists(dsStore.toPath()), is(true));
+        Path dsStore = Files.createFile(tempDirectory.resolve(".DS_Store"));
 
-        mediaDao.deleteEmptyDirectory(sourceImagePath);
+        mediaDao.deleteEmptyDirectories(List.of(tempDirectory), null);
 
         assertThat(exists(tempDirectory), is(false));
-        assertThat(exists(dsStore.toPath()), is(false));
+        assertThat(exists(dsStore), is(false));
     }
 
     @Test
-    public void testDeleteEmptyDirectoryDeletesPathIfPathParentOnlyContainsThumbsDbAndDsStore() throws IOException {
+    public void testDeleteEmptyDirectoriesDeletesDirectoryIfItOnlyContainsThumbsDbAndDsStore() throws IOException {
         Path tempDirectory = createTempDirectory(Constants.SOURCE_PATH);
-        sourceImagePath = new File(tempDirectory.toString() + separator + "image.jpg").toPath();
-        File thumbsDb = new File(tempDirectory.resolve("Thumbs.db").toString());
-        File dsStore = new File(tempDirectory.resolve(".DS_Store").toString());
-        Files.createFile(thumbsDb.toPath());
-        Files.createFile(dsStore.toPath());
-        assertThat(exists(thumbsDb.toPath()), is(true));
-        assertThat(exists(dsStore.toPath()), is(true));
+        Path thumbsDb = Files.createFile(tempDirectory.resolve("Thumbs.db"));
+        Path dsStore = Files.createFile(tempDirectory.resolve(".DS_Store"));
 
-        mediaDao.deleteEmptyDirectory(sourceImagePath);
+        mediaDao.deleteEmptyDirectories(List.of(tempDirectory), null);
 
         assertThat(exists(tempDirectory), is(false));
-        assertThat(exists(thumbsDb.toPath()), is(false));
-        assertThat(exists(dsStore.toPath()), is(false));
+        assertThat(exists(thumbsDb), is(false));
+        assertThat(exists(dsStore), is(false));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesDeletesParentsLeftEmptyUpToAndIncludingTheRoot() throws IOException {
+        Path root = createTempDirectory(Constants.SOURCE_PATH);
+        Path deepest = createDirectories(root.resolve("2015").resolve("02").resolve("15"));
+        Path sibling = createDirectories(root.resolve("2015").resolve("03"));
+        Files.createFile(root.resolve("2015").resolve("02").resolve(".DS_Store"));
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(deepest, sibling), root);
+
+        assertThat(deleted, hasSize(5));
+        assertThat(exists(root), is(false));
+        assertThat(exists(root.getParent()), is(true));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesKeepsParentsThatStillHaveFiles() throws IOException {
+        Path root = createTempDirectory(Constants.SOURCE_PATH);
+        Path emptied = createDirectories(root.resolve("emptied"));
+        Path remaining = Files.createFile(root.resolve("remaining.jpg"));
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(emptied), root);
+
+        assertThat(deleted, contains(emptied.toAbsolutePath().normalize()));
+        assertThat(exists(emptied), is(false));
+        assertThat(exists(remaining), is(true));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesDoesNotDeleteParentsWithoutARoot() throws IOException {
+        Path parent = createTempDirectory(Constants.SOURCE_PATH);
+        Path emptied = createDirectories(parent.resolve("emptied"));
+
+        mediaDao.deleteEmptyDirectories(List.of(emptied), null);
+
+        assertThat(exists(emptied), is(false));
+        assertThat(exists(parent), is(true));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesKeepsASymbolicLinkToADirectoryThatStillHasFiles() throws IOException {
+        Path root = createTempDirectory(Constants.SOURCE_PATH);
+        Path linkedDirectory = createTempDirectory("test");
+        Path remaining = Files.createFile(linkedDirectory.resolve("notes.txt"));
+        Path link = createSymbolicLink(root.resolve("linked"), linkedDirectory);
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(link), root);
+
+        assertThat(deleted, is(empty()));
+        assertThat(isSymbolicLink(link), is(true));
+        assertThat(exists(remaining), is(true));
+        assertThat(exists(root), is(true));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesDeletesASymbolicLinkToAnEmptyDirectory() throws IOException {
+        Path root = createTempDirectory(Constants.SOURCE_PATH);
+        Path linkedDirectory = createTempDirectory("test");
+        Path link = createSymbolicLink(root.resolve("linked"), linkedDirectory);
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(link), null);
+
+        assertThat(deleted, contains(link.toAbsolutePath().normalize()));
+        assertThat(exists(link, LinkOption.NOFOLLOW_LINKS), is(false));
+        assertThat(exists(linkedDirectory), is(true));
+    }
+
+    @Test
+    public void testDeleteEmptyDirectoriesIgnoresDirectoriesThatHaveGone() throws IOException {
+        Path tempDirectory = createTempDirectory(Constants.SOURCE_PATH);
+
+        List<Path> deleted = mediaDao.deleteEmptyDirectories(List.of(tempDirectory.resolve("gone")), null);
+
+        assertThat(deleted, is(empty()));
+        assertThat(exists(tempDirectory), is(true));
     }
 
     private Path addFileToDestination(String fileName) throws IOException {
@@ -0,0 +1,92 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.PlanEntry;
+import com.benjaminsproule.mediaorganiser.domain.PlannedMove;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MovePlanITest {
+    private static final FileDate DATE = new FileDate(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]"),
+        DateSource.EXIF);
+
+    private Path planFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        planFile = createTempDirectory("test").resolve("plans").resolve("plan.jsonl");
+    }
+
+    @Test
+    public void testReadReturnsTheEntriesWritten() throws IOException {
+        Path root = planFile.getParent().getParent();
+        List<PlanEntry> entries = List.of(
+            new PlanEntry(new PlannedMove(root.resolve("in/image.jpg"), 100L, DATE, root + "/out/2015/02/15"), null),
+            new PlanEntry(new PlannedMove(root.resolve("in/copy \"of\" image.jpg"), 100L,
+                new FileDate(ZonedDateTime.parse("1970-01-01T01:01:01Z"), DateSource.FILE_NAME),
+                root + "/out/1970/01/01"), root.resolve("out/1970/01/01/image.jpg")));
+
+        MovePlan.write(planFile, entries);
+
+        assertThat(MovePlan.read(planFile), is(entries));
+    }
+
+    @Test
+    public void testWriteMakesRelativePathsAbsoluteSoThePlanCanBeAppliedFromAnotherDirectory() throws IOException {
+        Path workingDirectory = Path.of("").toAbsolutePath();
+        Path source = Files.write(createTempDirectory("test").resolve("image.jpg"), new byte[]{1});
+        Path targetDirectory = createTempDirectory("test").resolve("2015").resolve("02").resolve("15");
+        Path duplicateOf = targetDirectory.resolve("other.jpg");
+        MovePlan.write(planFile, List.of(new PlanEntry(new PlannedMove(workingDirectory.relativize(source), 1L, DATE,
+            workingDirectory.relativize(targetDirectory).toString()), workingDirectory.relativize(duplicateOf))));
+
+        PlanEntry entry = MovePlan.read(planFile).get(0);
+        new MediaDao().saveFile(entry.move().targetDirectory(), entry.move().path());
+
+        assertThat(entry.move().path(), is(source.toAbsolutePath().normalize()));
+        assertThat(entry.move().targetDirectory(), is(targetDirectory.toAbsolutePath().normalize().toString()));
+        assertThat(entry.duplicateOf(), is(duplicateOf.toAbsolutePath().normalize()));
+        assertThat(Files.exists(source), is(false));
+        assertThat(Files.readAllBytes(targetDirectory.resolve("image.jpg")), is(new byte[]{1}));
+    }
+
+    @Test
+    public void testWriteWritesOneLinePerEntry() throws IOException {
+        MovePlan.write(planFile, List.of(
+            new PlanEntry(new PlannedMove(Path.of("a.jpg"), 1L, DATE, "out"), null),
+            new PlanEntry(new PlannedMove(Path.of("b.jpg"), 2L, DATE, "out"), null)));
+
+        assertThat(Files.readAllLines(planFile).size(), is(2));
+    }
+
+    @Test
+    public void testReadReturnsNoEntriesForAnEmptyPlan() throws IOException {
+        MovePlan.write(planFile, List.of());
+
+        assertThat(MovePlan.read(planFile), is(empty()));
+    }
+
+    @Test
+    public void testReadThrowsIOExceptionIfALineIsNotAPlannedMove() throws IOException {
+        Files.createDirectories(planFile.getParent());
+        Files.writeString(planFile, "{\"source\":\"a.jpg\",\"size\":1}\n");
+
+        IOException exception = assertThrows(IOException.class, () -> MovePlan.read(planFile));
+
+        assertThat(exception.getMessage(), containsString("Line 1"));
+    }
+}
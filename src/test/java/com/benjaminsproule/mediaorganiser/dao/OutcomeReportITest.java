@@ -0,0 +1,135 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome.Status;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
+import com.benjaminsproule.mediaorganiser.util.JsonUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OutcomeReportITest {
+    private static final FileDate DATE = new FileDate(ZonedDateTime.parse("2015-02-15T19:41:23Z"), DateSource.EXIF);
+
+    private Path reportFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        reportFile = createTempDirectory("test").resolve("reports").resolve("report.jsonl");
+    }
+
+    @Test
+    public void testCloseWritesEachOutcomeOnItsOwnLine() throws IOException {
+        try (OutcomeReport report = OutcomeReport.open(reportFile)) {
+            report.record(new FileOutcome(Status.MOVED, Path.of("in/image.jpg"), Path.of("out/2015/image.jpg"), DATE,
+                Duration.ofMillis(5), null));
+            report.record(new FileOutcome(Status.FAILED, Path.of("in/file"), null, null, Duration.ofMillis(1),
+                "Could not \"read\" in/file"));
+        }
+
+        List<String> lines = Files.readAllLines(reportFile);
+        assertThat(lines, hasSize(2));
+        Map<String, String> moved = JsonUtil.parseObject(lines.get(0));
+        assertThat(moved.get("status"), is("MOVED"));
+        assertThat(moved.get("source"), is(Path.of("in/image.jpg").toString()));
+        assertThat(moved.get("target"), is(Path.of("out/2015/image.jpg").toString()));
+        assertThat(moved.get("date"), is("2015-02-15T19:41:23Z"));
+        assertThat(moved.get("dateSource"), is("EXIF"));
+        assertThat(moved.get("elapsedMillis"), is("5"));
+        assertThat(moved.get("message"), is(nullValue()));
+        Map<String, String> failed = JsonUtil.parseObject(lines.get(1));
+        assertThat(failed.get("status"), is("FAILED"));
+        assertThat(failed.get("target"), is(nullValue()));
+        assertThat(failed.get("dateSource"), is(nullValue()));
+        assertThat(failed.get("message"), is("Could not \"read\" in/file"));
+    }
+
+    @Test
+    public void testOpenReplacesAnExistingReport() throws IOException {
+        try (OutcomeReport report = OutcomeReport.open(reportFile)) {
+            report.record(new FileOutcome(Status.MOVED, Path.of("image.jpg"), null, DATE, Duration.ZERO, null));
+        }
+
+        OutcomeReport.open(reportFile).close();
+
+        assertThat(Files.readAllLines(reportFile), hasSize(0));
+    }
+
+    @Test
+    public void testRecordDoesNotLoseOutcomesFromConcurrentWorkers() throws IOException {
+        try (OutcomeReport report = OutcomeReport.open(reportFile)) {
+            try (ExecutorService executorService = Executors.newFixedThreadPool(8)) {
+                for (int i = 0; i < 8; i++) {
+                    int worker = i;
+                    executorService.submit(() -> {
+                        for (int j = 0; j < 5_000; j++) {
+                            report.record(new FileOutcome(Status.MOVED, Path.of(worker + "-" + j + ".jpg"), null,
+                                DATE, Duration.ZERO, null));
+                        }
+                    });
+                }
+            }
+        }
+
+        OutcomeSummary summary = OutcomeReport.summarise(reportFile);
+
+        assertThat(summary.getCount(Status.MOVED), is(40_000L));
+        assertThat(Files.readAllLines(reportFile), hasSize(40_000));
+    }
+
+    @Test
+    public void testRecordFailsOnceTheWriterHasStopped() throws IOException {
+        OutcomeReport report = OutcomeReport.open(reportFile);
+        report.close();
+
+        assertThrows(IllegalStateException.class, () -> report.record(new FileOutcome(Status.MOVED,
+            Path.of("a.jpg"), Path.of("b.jpg"), DATE, Duration.ZERO, null)));
+    }
+
+    @Test
+    public void testSummariseCountsEachStatusAndListsTheErrors() throws IOException {
+        try (OutcomeReport report = OutcomeReport.open(reportFile)) {
+            report.record(new FileOutcome(Status.MOVED, Path.of("a.jpg"), Path.of("out/a.jpg"), DATE, Duration.ZERO,
+                null));
+            report.record(new FileOutcome(Status.MOVED, Path.of("b.jpg"), Path.of("out/b.jpg"), DATE, Duration.ZERO,
+                null));
+            report.record(new FileOutcome(Status.DUPLICATE_SKIPPED, Path.of("c.jpg"), Path.of("out/c.jpg"), DATE,
+                Duration.ZERO, null));
+            report.record(new FileOutcome(Status.UNDATABLE, Path.of("d"), null, null, Duration.ZERO,
+                "No date for d"));
+            report.record(new FileOutcome(Status.PREVIOUSLY_UNDATABLE, Path.of("e"), null, null, Duration.ZERO,
+                null));
+            report.record(new FileOutcome(Status.FAILED, Path.of("f.jpg"), null, DATE, Duration.ZERO,
+                "Could not move f.jpg"));
+        }
+
+        OutcomeSummary summary = OutcomeReport.summarise(reportFile);
+
+        assertThat(summary.reportFile(), is(reportFile));
+        assertThat(summary.getCount(Status.MOVED), is(2L));
+        assertThat(summary.getCount(Status.DUPLICATE_SKIPPED), is(1L));
+        assertThat(summary.getCount(Status.UNDATABLE), is(1L));
+        assertThat(summary.getCount(Status.PREVIOUSLY_UNDATABLE), is(1L));
+        assertThat(summary.getCount(Status.FAILED), is(1L));
+        assertThat(summary.errors(), contains("No date for d", "Could not move f.jpg"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class OutputDirectoryIndexITest {
+    private Path directory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = createTempDirectory("test");
+    }
+
+    @Test
+    public void testLoadReturnsEmptyIndexIfDirectoryDoesNotExist() throws IOException {
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory.resolve("missing"));
+
+        assertThat(index.reserve("image.jpg"), is("image.jpg"));
+        assertThat(index.getFilesWithSize(0), is(empty()));
+    }
+
+    @Test
+    public void testLoadIndexesTheFilesBySize() throws IOException {
+        Path file = Files.write(directory.resolve("image.jpg"), new byte[3]);
+        Files.write(directory.resolve("other.jpg"), new byte[4]);
+
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory);
+
+        assertThat(index.getFilesWithSize(3), contains(file));
+    }
+
+    @Test
+    public void testReserveSkipsNamesAlreadyInTheDirectory() throws IOException {
+        Files.write(directory.resolve("image.jpg"), new byte[1]);
+        Files.write(directory.resolve("image0.jpg"), new byte[1]);
+        Files.createDirectory(directory.resolve("image1.jpg"));
+
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory);
+
+        assertThat(index.reserve("image.jpg"), is("image2.jpg"));
+    }
+
+    @Test
+    public void testReserveGivesEachCallerADifferentName() throws IOException {
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory);
+
+        assertThat(index.reserve("image.jpg"), is("image.jpg"));
+        assertThat(index.reserve("image.jpg"), is("image0.jpg"));
+        assertThat(index.reserve("image.jpg"), is("image1.jpg"));
+        assertThat(index.reserve("image0.jpg"), is("image00.jpg"));
+    }
+
+    @Test
+    public void testReserveGivesConcurrentCallersDifferentNames() throws IOException {
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory);
+        Set<String> names = ConcurrentHashMap.newKeySet();
+
+        try (ExecutorService executorService = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                executorService.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        names.add(index.reserve("IMG_20170430_172516.jpg"));
+                    }
+                });
+            }
+        }
+
+        assertThat(names.size(), is(8000));
+    }
+
+    @Test
+    public void testReleaseLetsTheNameBeReservedAgain() throws IOException {
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory);
+        index.reserve("image.jpg");
+
+        index.release("image.jpg");
+
+        assertThat(index.reserve("image.jpg"), is("image.jpg"));
+    }
+
+    @Test
+    public void testAddFileIndexesTheFileBySize() throws IOException {
+        OutputDirectoryIndex index = OutputDirectoryIndex.load(directory);
+        Path file = directory.resolve("image.jpg");
+
+        index.addFile(file, 10);
+
+        assertThat(index.getFilesWithSize(10), is(List.of(file)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "image.jpg,image3.jpg",
+        "PXL_20221227_152002772.MP.jpg,PXL_20221227_152002772.MP3.jpg",
+        "file,file3",
+        ".hidden,.hidden3"
+    })
+    public void testIndexedNameAddsTheIndexBeforeTheExtension(String fileName, String expectedName) {
+        assertThat(OutputDirectoryIndex.indexedName(fileName, 3), is(expectedName));
+    }
+}
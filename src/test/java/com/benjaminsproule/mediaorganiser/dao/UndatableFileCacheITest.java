@@ -0,0 +1,149 @@
+package com.benjaminsproule.mediaorganiser.dao;
+
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.write;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class UndatableFileCacheITest {
+    private Path cacheFile;
+    private Path path;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Path tempPath = createTempDirectory("test");
+        cacheFile = tempPath.resolve("cache").resolve("undatable.cache");
+        path = createTempFile(tempPath, "test", ".jpg");
+        write(path, "not an image".getBytes());
+    }
+
+    @Test
+    public void testLoadReturnsEmptyCacheIfFileDoesNotExist() {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testLoadReturnsEmptyCacheIfFileIsNotACache() throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        write(cacheFile, "not a cache".getBytes());
+
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testContainsReturnsFalseIfFileNotAdded() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+
+        assertThat(cache.contains(path), is(false));
+    }
+
+    @Test
+    public void testContainsReturnsTrueIfFileAdded() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+
+        cache.add(path);
+
+        assertThat(cache.contains(path), is(true));
+    }
+
+    @Test
+    public void testContainsReturnsFalseIfFileRemoved() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        cache.add(path);
+
+        cache.remove(path);
+
+        assertThat(cache.contains(path), is(false));
+    }
+
+    @Test
+    public void testContainsReturnsFalseIfFileSizeChangedSinceAdded() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        cache.add(path);
+
+        write(path, "a different length".getBytes());
+
+        assertThat(cache.contains(path), is(false));
+    }
+
+    @Test
+    public void testContainsReturnsFalseIfFileModifiedTimeChangedSinceAdded() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        cache.add(path);
+
+        Files.setLastModifiedTime(path, FileTime.fromMillis(0L));
+
+        assertThat(cache.contains(path), is(false));
+    }
+
+    @Test
+    public void testContainsScannedFileUsesTheAttributesItWasScannedWith() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        ScannedFile file = ScannedFile.read(path);
+        cache.add(file);
+
+        write(path, "a different length".getBytes());
+
+        assertThat(cache.contains(file), is(true));
+        assertThat(cache.contains(path), is(false));
+        assertThat(cache.contains(ScannedFile.read(path)), is(false));
+    }
+
+    @Test
+    public void testForgetUnseenForgetsFilesUnderTheRootThatWereNotSeen() throws IOException {
+        Path unseen = createTempFile(path.getParent(), "test", ".jpg");
+        Path outsideRoot = createTempFile(createTempDirectory("test"), "test", ".jpg");
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        cache.add(path);
+        cache.add(unseen);
+        cache.add(outsideRoot);
+        cache.save();
+        Files.delete(outsideRoot);
+        UndatableFileCache loadedCache = UndatableFileCache.load(cacheFile);
+
+        loadedCache.seen(path);
+        loadedCache.forgetUnseen(path.getParent());
+
+        assertThat(loadedCache.size(), is(2));
+        assertThat(loadedCache.contains(path), is(true));
+        assertThat(loadedCache.contains(unseen), is(false));
+    }
+
+    @Test
+    public void testForgetUnseenKeepsFilesAddedSinceLoading() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        cache.add(path);
+
+        cache.forgetUnseen(path.getParent());
+
+        assertThat(cache.contains(path), is(true));
+    }
+
+    @Test
+    public void testSaveWritesCacheThatCanBeLoadedAgain() throws IOException {
+        UndatableFileCache cache = UndatableFileCache.load(cacheFile);
+        cache.add(path);
+
+        cache.save();
+        UndatableFileCache loadedCache = UndatableFileCache.load(cacheFile);
+
+        assertThat(exists(cacheFile), is(true));
+        assertThat(loadedCache.size(), is(1));
+        assertThat(loadedCache.contains(path), is(true));
+    }
+}
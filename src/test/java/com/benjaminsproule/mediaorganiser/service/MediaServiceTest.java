@@ -1,28 +1,56 @@
 package com.benjaminsproule.mediaorganiser.service;
 
 import com.benjaminsproule.mediaorganiser.dao.MediaDao;
+import com.benjaminsproule.mediaorganiser.dao.MediaDao.ProbedFile;
+import com.benjaminsproule.mediaorganiser.dao.MediaDao.SavedFile;
+import com.benjaminsproule.mediaorganiser.dao.MovePlan;
+import com.benjaminsproule.mediaorganiser.dao.UndatableFileCache;
 import com.benjaminsproule.mediaorganiser.domain.DateConstants;
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.FileOutcome.Status;
+import com.benjaminsproule.mediaorganiser.domain.OrganiseOptions;
+import com.benjaminsproule.mediaorganiser.domain.OutcomeSummary;
+import com.benjaminsproule.mediaorganiser.domain.PlanEntry;
+import com.benjaminsproule.mediaorganiser.domain.PlannedMove;
 import com.benjaminsproule.mediaorganiser.domain.Progress;
+import com.benjaminsproule.mediaorganiser.domain.ProgressSnapshot;
+import com.benjaminsproule.mediaorganiser.domain.ScannedFile;
+import com.benjaminsproule.mediaorganiser.util.FileHeader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
-import static com.jayway.awaitility.Awaitility.await;
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
 import static java.util.Collections.singletonList;
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.openMocks;
 
@@ -30,102 +58,610 @@ public class MediaServiceTest {
     @Mock
     private MediaDao mediaDao;
 
-    @InjectMocks
     private MediaService mediaService;
     private Path path;
+    private ScannedFile file;
 
     @BeforeEach
     public void setup() throws Exception {
         openMocks(this).close();
+        mediaService = new MediaService(mediaDao);
         URL url = getClass().getClassLoader().getResource("image.jpg");
         path = new File(url.toURI()).toPath();
+        file = ScannedFile.read(path);
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class)))
+            .thenAnswer(invocation -> savedFile(invocation.getArgument(0), true));
+        when(mediaDao.probe(any(ScannedFile.class))).thenAnswer(invocation -> new ProbedFile(true,
+            FileHeader.read(invocation.<ScannedFile>getArgument(0).path(), FileHeader.DEFAULT_HEADER_BYTES)));
     }
 
     @Test
     public void testOrganise_GetsFiles_PassesTheOutputDirectoryPathWithTheZonedDateTimeIntoSaveFiles_DeletePath() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(singletonList(path));
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
         mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao).saveFile("outputDirectory/2015/02/15", path);
-        verify(mediaDao).deleteEmptyDirectory(path);
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao).deleteEmptyDirectories(List.of(path.getParent()), Path.of("inputDirectory"));
+        verify(mediaDao).finishRun();
+    }
+
+    @Test
+    public void testOrganise_CreatesEachOutputDirectoryOnceBeforeSavingFiles() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, file));
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+        InOrder inOrder = inOrder(mediaDao);
+        inOrder.verify(mediaDao).createDirectory("outputDirectory/2015/02/15");
+        inOrder.verify(mediaDao, times(2)).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao).createDirectory(anyString());
+    }
+
+    @Test
+    public void testOrganise_SetsTheProgressDetails_oneImage() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class))).thenAnswer(invocation -> savedFile(invocation.getArgument(0), true));
+        Progress progress = new Progress();
+
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, progress);
+
+        assertThat(progress.getNumberOfFilesProcessed(), is(1L));
+        assertThat(progress.getTotalNumberOfFiles(), is(1L));
+        assertThat(progress.getBytesProcessed(), is(Files.size(path)));
+        assertThat(progress.getSkippedDuplicates(), is(0L));
+    }
+
+    @Test
+    public void testOrganise_SetsTheProgressDetails_twoImages() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, ScannedFile.read(getFile("3661100.jpg").toPath())));
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class))).thenAnswer(invocation -> savedFile(invocation.getArgument(0), true));
+        Progress progress = new Progress();
+
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, progress);
+
+        assertThat(progress.getNumberOfFilesProcessed(), is(2L));
+        assertThat(progress.getTotalNumberOfFiles(), is(2L));
+    }
+
+    @Test
+    public void testOrganise_SetsTheProgressDetails_countsSkippedDuplicates() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class))).thenAnswer(invocation -> savedFile(invocation.getArgument(0), false));
+        Progress progress = new Progress();
+
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, progress);
+
+        assertThat(progress.getSkippedDuplicates(), is(1L));
+        assertThat(progress.getBytesProcessed(), is(0L));
+    }
+
+    @Test
+    public void testOrganise_SetsTheProgressDetails_separatelyForEachRun() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file), new ArrayList<>());
+        Progress firstProgress = new Progress();
+        Progress secondProgress = new Progress();
+
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, firstProgress);
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, secondProgress);
+
+        assertThat(firstProgress.getNumberOfFilesProcessed(), is(1L));
+        assertThat(firstProgress.getTotalNumberOfFiles(), is(1L));
+        assertThat(secondProgress.getNumberOfFilesProcessed(), is(0L));
+        assertThat(secondProgress.getTotalNumberOfFiles(), is(0L));
+    }
+
+    @Test
+    public void testOrganise_TellsProgressListenersWhenFinished() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        Progress progress = new Progress();
+        List<ProgressSnapshot> snapshots = new CopyOnWriteArrayList<>();
+        progress.subscribe(snapshots::add, 60_000L);
+
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, progress);
+
+        assertThat(snapshots.get(snapshots.size() - 1).numberOfFilesProcessed(), is(1L));
     }
 
     @Test
     public void testOrganise_GetsFiles_DoesNotCallSaveFile_DoesNotDeleteDirectory_NoFilesReturned() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(new ArrayList<>());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(new ArrayList<>());
         mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao, never()).saveFile(anyString(), any(Path.class));
-        verify(mediaDao, never()).deleteEmptyDirectory(any(Path.class));
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao, never()).saveFile(anyString(), any(ScannedFile.class));
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
     }
 
     @Test
     public void testOrganise_GetFiles_CallsSaveFileWithCorrectOutputFormat_YYYYMMDD_DeletesDirectory() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(singletonList(path));
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
         mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao).saveFile("outputDirectory/2015/02/15", path);
-        verify(mediaDao).deleteEmptyDirectory(path);
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao).deleteEmptyDirectories(List.of(path.getParent()), Path.of("inputDirectory"));
     }
 
     @Test
     public void testOrganise_GetsFiles_CallsSaveFileWithCorrectOutputFormat_YYYYMMMMDD_DeletesDirectory() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(singletonList(path));
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
         mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MMMM_DD);
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao).saveFile("outputDirectory/2015/February/15", path);
-        verify(mediaDao).deleteEmptyDirectory(path);
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao).saveFile("outputDirectory/2015/February/15", file);
+        verify(mediaDao).deleteEmptyDirectories(List.of(path.getParent()), Path.of("inputDirectory"));
     }
 
     @Test
     public void testOrganise_GetFiles_CallsSaveFileWithCorrectOutputFormat_YYYYMMMMMMDD_DeletesDirectory() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(singletonList(path));
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
         mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_MMMM_DD);
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao).saveFile("outputDirectory/2015/02 - February/15", path);
-        verify(mediaDao).deleteEmptyDirectory(path);
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao).saveFile("outputDirectory/2015/02 - February/15", file);
+        verify(mediaDao).deleteEmptyDirectories(List.of(path.getParent()), Path.of("inputDirectory"));
     }
 
     @Test
     public void testOrganise_MediaDaoGetFiles_ThrowsIOException() throws Exception {
-        doThrow(new IOException("IOException that was thrown")).when(mediaDao).getFiles(anyString());
+        doThrow(new IOException("IOException that was thrown")).when(mediaDao).getFilesToProbe(anyString());
         try {
             mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
         } catch (IOException exception) {
             assertThat(exception.getMessage(), is("IOException that was thrown"));
         }
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao, never()).saveFile(anyString(), any(Path.class));
-        verify(mediaDao, never()).deleteEmptyDirectory(any(Path.class));
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao, never()).saveFile(anyString(), any(ScannedFile.class));
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
     }
 
     @Test
     public void testOrganise_MediaDaoSaveFiles_ThrowsIOException() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(singletonList(path));
-        doThrow(new IOException("IOException that was thrown")).when(mediaDao).saveFile(anyString(), any(Path.class));
-        List<String> errors = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
-        await().atMost(5, SECONDS)
-            .until(() -> Progress.getNumberOfFilesProcessed() == Progress.getTotalNumberOfFiles());
-
-        assertThat(errors, hasSize(1));
-        assertThat(errors.get(0), is("IOException that was thrown"));
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao).saveFile("outputDirectory/2015/02/15", path);
-        verify(mediaDao, never()).deleteEmptyDirectory(any(Path.class));
-    }
-
-    @Test
-    public void testOrganise_MediaDaoDeleteEmptyDirectory_ThrowsIOException() throws Exception {
-        when(mediaDao.getFiles(anyString())).thenReturn(singletonList(path));
-        doThrow(new IOException("IOException that was thrown")).when(mediaDao).deleteEmptyDirectory(any(Path.class));
-        List<String> errors = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
-        await().atMost(5, SECONDS)
-            .until(() -> Progress.getNumberOfFilesProcessed() == Progress.getTotalNumberOfFiles());
-
-        assertThat(errors, hasSize(1));
-        assertThat(errors.get(0), is("IOException that was thrown"));
-        verify(mediaDao).getFiles("inputDirectory");
-        verify(mediaDao).saveFile("outputDirectory/2015/02/15", path);
-        verify(mediaDao).deleteEmptyDirectory(path);
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        doThrow(new IOException("IOException that was thrown")).when(mediaDao).saveFile(anyString(), any(ScannedFile.class));
+        Progress progress = new Progress();
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            progress);
+
+        assertThat(progress.getNumberOfFilesProcessed(), is(progress.getTotalNumberOfFiles()));
+        assertThat(progress.getErrors(), is(1L));
+
+        assertThat(summary.errors(), hasSize(1));
+        assertThat(summary.errors().get(0), is("IOException that was thrown"));
+        verify(mediaDao).getFilesToProbe("inputDirectory");
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testOrganise_MediaDaoSaveFiles_ThrowsRuntimeException() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        doThrow(new IllegalStateException("RuntimeException that was thrown")).when(mediaDao)
+            .saveFile(anyString(), any(ScannedFile.class));
+        Progress progress = new Progress();
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            progress);
+
+        assertThat(summary.getCount(Status.FAILED), is(1L));
+        assertThat(summary.errors(), contains("RuntimeException that was thrown"));
+        assertThat(progress.getNumberOfFilesProcessed(), is(progress.getTotalNumberOfFiles()));
+        assertThat(progress.getErrors(), is(1L));
+    }
+
+    @Test
+    public void testOrganise_DuplicateLeftInPlace_DoesNotDeleteDirectory() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class)))
+            .thenAnswer(invocation -> savedFile(invocation.getArgument(0), false));
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.getCount(Status.DUPLICATE_SKIPPED), is(1L));
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testOrganise_DeletesEachEmptiedDirectoryOnceAfterMovingEveryFile() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, file, file));
+        mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        InOrder inOrder = inOrder(mediaDao);
+        inOrder.verify(mediaDao, times(3)).saveFile(anyString(), any(ScannedFile.class));
+        inOrder.verify(mediaDao).deleteEmptyDirectories(List.of(path.getParent()), Path.of("inputDirectory"));
+        verify(mediaDao).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testOrganise_FileLeftInDirectory_DoesNotDeleteDirectory() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, file));
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class)))
+            .thenAnswer(invocation -> savedFile(invocation.getArgument(0), true))
+            .thenThrow(new IOException("IOException that was thrown"));
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.getCount(Status.MOVED), is(1L));
+        assertThat(summary.getCount(Status.FAILED), is(1L));
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testOrganise_PlansAndMovesOnSeparatelySizedExecutors() throws Exception {
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().planParallelism(3).moveParallelism(5).build());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+
+        try (MockedStatic<Executors> executors = mockStatic(Executors.class, CALLS_REAL_METHODS)) {
+            mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+            executors.verify(() -> Executors.newFixedThreadPool(3));
+            executors.verify(() -> Executors.newFixedThreadPool(5));
+        }
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+    }
+
+    @Test
+    public void testOrganise_Streaming_PlansAndMovesOnSeparatelySizedExecutors() throws Exception {
+        mediaService = new MediaService(mediaDao,
+            OrganiseOptions.builder().streaming(true).planParallelism(3).moveParallelism(5).build());
+        doAnswer(invocation -> {
+            Consumer<ScannedFile> consumer = invocation.getArgument(1);
+            consumer.accept(file);
+            return null;
+        }).when(mediaDao).streamFilesToProbe(anyString(), any());
+
+        try (MockedStatic<Executors> executors = mockStatic(Executors.class, CALLS_REAL_METHODS)) {
+            mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+            executors.verify(() -> Executors.newFixedThreadPool(3));
+            executors.verify(() -> Executors.newFixedThreadPool(5));
+        }
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+    }
+
+    @Test
+    public void testOrganise_VirtualThreads_MovesEachFile() throws Exception {
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().virtualThreads(true).build());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, file));
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.getCount(Status.MOVED), is(2L));
+        verify(mediaDao, times(2)).saveFile("outputDirectory/2015/02/15", file);
+    }
+
+    @Test
+    public void testOrganise_Streaming_VirtualThreads_MovesEachFile() throws Exception {
+        mediaService = new MediaService(mediaDao,
+            OrganiseOptions.builder().streaming(true).virtualThreads(true).queueCapacity(1).build());
+        doAnswer(invocation -> {
+            Consumer<ScannedFile> consumer = invocation.getArgument(1);
+            consumer.accept(file);
+            consumer.accept(file);
+            return null;
+        }).when(mediaDao).streamFilesToProbe(anyString(), any());
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.getCount(Status.MOVED), is(2L));
+        verify(mediaDao, times(2)).saveFile("outputDirectory/2015/02/15", file);
+    }
+
+    @Test
+    public void testOrganise_Link_LinksEachFileAndDoesNotDeleteDirectory() throws Exception {
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().link(true).build());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        when(mediaDao.linkFile(anyString(), any(ScannedFile.class)))
+            .thenAnswer(invocation -> savedFile(invocation.getArgument(0), true));
+        Progress progress = new Progress();
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            progress);
+
+        assertThat(summary.getCount(Status.LINKED), is(1L));
+        assertThat(summary.getCount(Status.MOVED), is(0L));
+        assertThat(progress.getNumberOfFilesProcessed(), is(1L));
+        verify(mediaDao).linkFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao, never()).saveFile(anyString(), any(ScannedFile.class));
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testOrganise_ProbesEachFileOnceAndSkipsThoseThatAreNotMedia() throws Exception {
+        ScannedFile notMedia = ScannedFile.read(getFile("file").toPath());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, notMedia));
+        when(mediaDao.probe(notMedia)).thenReturn(new ProbedFile(false, null));
+        Progress progress = new Progress();
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            progress);
+
+        assertThat(summary.getCount(Status.MOVED), is(1L));
+        assertThat(summary.getCount(Status.FAILED), is(0L));
+        assertThat(progress.getTotalNumberOfFiles(), is(1L));
+        assertThat(progress.getNumberOfFilesProcessed(), is(1L));
+        verify(mediaDao).probe(file);
+        verify(mediaDao).probe(notMedia);
+        verify(mediaDao).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao, never()).saveFile(anyString(), eq(notMedia));
+    }
+
+    @Test
+    public void testOrganise_Streaming_StreamsFiles_PassesTheOutputDirectoryPathIntoSaveFiles_DeletePath() throws Exception {
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().streaming(true).queueCapacity(1).build());
+        doAnswer(invocation -> {
+            Consumer<ScannedFile> consumer = invocation.getArgument(1);
+            consumer.accept(file);
+            consumer.accept(file);
+            return null;
+        }).when(mediaDao).streamFilesToProbe(anyString(), any());
+
+        Progress progress = new Progress();
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            progress);
+
+        assertThat(summary.errors(), hasSize(0));
+        assertThat(progress.getTotalNumberOfFiles(), is(2L));
+        assertThat(progress.getNumberOfFilesProcessed(), is(2L));
+        verify(mediaDao).streamFilesToProbe(eq("inputDirectory"), any());
+        verify(mediaDao, never()).getFilesToProbe(anyString());
+        verify(mediaDao, times(2)).saveFile("outputDirectory/2015/02/15", file);
+        verify(mediaDao).deleteEmptyDirectories(List.of(path.getParent()), Path.of("inputDirectory"));
+    }
+
+    @Test
+    public void testOrganise_Streaming_MediaDaoStreamFiles_ThrowsIOException() throws Exception {
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().streaming(true).build());
+        doThrow(new IOException("IOException that was thrown")).when(mediaDao).streamFilesToProbe(anyString(), any());
+
+        IOException exception = assertThrows(IOException.class,
+            () -> mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD));
+
+        assertThat(exception.getMessage(), is("IOException that was thrown"));
+        verify(mediaDao, never()).saveFile(anyString(), any(ScannedFile.class));
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testOrganise_Streaming_RecordsUnexpectedPlanningErrorsAndCarriesOn() throws Exception {
+        mediaService = new MediaService(mediaDao,
+            OrganiseOptions.builder().streaming(true).planParallelism(1).queueCapacity(1).build());
+        doAnswer(invocation -> {
+            Consumer<ScannedFile> consumer = invocation.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                consumer.accept(file);
+            }
+            return null;
+        }).when(mediaDao).streamFilesToProbe(anyString(), any());
+        doThrow(new IllegalStateException("Corrupt file")).when(mediaDao).probe(any(ScannedFile.class));
+        Progress progress = new Progress();
+
+        OutcomeSummary summary = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> mediaService.organise(
+            "inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD, progress));
+
+        assertThat(summary.getCount(Status.FAILED), is(3L));
+        assertThat(summary.errors(), contains("Corrupt file", "Corrupt file", "Corrupt file"));
+        assertThat(progress.getNumberOfFilesProcessed(), is(3L));
+        assertThat(progress.getErrors(), is(3L));
+    }
+
+    @Test
+    public void testOrganise_UndatableCache_SkipsFileThatCouldNotBeDatedOnPreviousRun() throws Exception {
+        Path tempPath = Files.createTempDirectory("test");
+        Path undatablePath = tempPath.resolve("file");
+        Files.copy(getFile("file").toPath(), undatablePath);
+        Path cacheFile = tempPath.resolve("undatable.cache");
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().undatableCacheFile(cacheFile).build());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(ScannedFile.read(undatablePath)));
+
+        OutcomeSummary firstSummary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+        OutcomeSummary secondSummary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(firstSummary.errors(), hasSize(1));
+        assertThat(firstSummary.getCount(Status.UNDATABLE), is(1L));
+        assertThat(secondSummary.errors(), hasSize(0));
+        assertThat(secondSummary.getCount(Status.PREVIOUSLY_UNDATABLE), is(1L));
+        assertThat(UndatableFileCache.load(cacheFile).contains(undatablePath), is(true));
+        verify(mediaDao, never()).saveFile(anyString(), any(ScannedFile.class));
+    }
+
+    @Test
+    public void testOrganise_UndatableCache_ForgetsFilesTheScanNoLongerFinds() throws Exception {
+        Path tempPath = Files.createTempDirectory("test");
+        Path inputDirectory = Files.createDirectory(tempPath.resolve("input"));
+        Path undatablePath = inputDirectory.resolve("file");
+        Files.copy(getFile("file").toPath(), undatablePath);
+        Path cacheFile = tempPath.resolve("undatable.cache");
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().undatableCacheFile(cacheFile).build());
+        when(mediaDao.getFilesToProbe(anyString()))
+            .thenReturn(singletonList(ScannedFile.read(undatablePath)), new ArrayList<>());
+
+        mediaService.organise(inputDirectory.toString(), "outputDirectory", DateConstants.YYYY_MM_DD);
+        assertThat(UndatableFileCache.load(cacheFile).size(), is(1));
+        mediaService.organise(inputDirectory.toString(), "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(UndatableFileCache.load(cacheFile).size(), is(0));
+    }
+
+    @Test
+    public void testOrganise_UndatableCache_RecheckTriesFileThatCouldNotBeDatedOnPreviousRun() throws Exception {
+        Path tempPath = Files.createTempDirectory("test");
+        Path undatablePath = tempPath.resolve("file");
+        Files.copy(getFile("file").toPath(), undatablePath);
+        Path cacheFile = tempPath.resolve("undatable.cache");
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(ScannedFile.read(undatablePath)));
+        new MediaService(mediaDao, OrganiseOptions.builder().undatableCacheFile(cacheFile).build())
+            .organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        mediaService = new MediaService(mediaDao,
+            OrganiseOptions.builder().undatableCacheFile(cacheFile).recheckUndatable(true).build());
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.errors(), hasSize(1));
+    }
+
+    @Test
+    public void testOrganise_WritesTheOutcomeOfEachFileToTheReportFile() throws Exception {
+        Path reportFile = Files.createTempDirectory("test").resolve("report.jsonl");
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().reportFile(reportFile).build());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, ScannedFile.read(getFile("file").toPath())));
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.reportFile(), is(reportFile));
+        assertThat(summary.getCount(Status.MOVED), is(1L));
+        assertThat(summary.getCount(Status.UNDATABLE), is(1L));
+        List<String> lines = Files.readAllLines(reportFile);
+        assertThat(lines, hasSize(2));
+        String movedLine = lines.stream().filter(line -> line.contains("\"MOVED\"")).findFirst().orElseThrow();
+        assertThat(movedLine, containsString("\"dateSource\":\"" + DateSource.EXIF + "\""));
+        assertThat(movedLine, containsString("\"target\":\"" + Path.of("outputDirectory/2015/02/15")
+            .resolve(path.getFileName()) + "\""));
+    }
+
+    @Test
+    public void testOrganise_DeletesTheTemporaryReportOnceSummarised() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        List<Path> reportFiles = new ArrayList<>();
+
+        OutcomeSummary summary;
+        try (MockedStatic<Files> files = mockStatic(Files.class, CALLS_REAL_METHODS)) {
+            files.when(() -> Files.createTempFile("media-organiser-report", ".jsonl")).thenAnswer(invocation -> {
+                Path reportFile = (Path) invocation.callRealMethod();
+                reportFiles.add(reportFile);
+                return reportFile;
+            });
+            summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+        }
+
+        assertThat(summary.reportFile(), is(nullValue()));
+        assertThat(summary.getCount(Status.MOVED), is(1L));
+        assertThat(reportFiles, hasSize(1));
+        assertThat(Files.exists(reportFiles.get(0)), is(false));
+    }
+
+    @Test
+    public void testOrganise_RecordsDuplicatesInTheReport() throws Exception {
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        when(mediaDao.saveFile(anyString(), any(ScannedFile.class)))
+            .thenAnswer(invocation -> savedFile(invocation.getArgument(0), false));
+
+        OutcomeSummary summary = mediaService.organise("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD);
+
+        assertThat(summary.getCount(Status.DUPLICATE_SKIPPED), is(1L));
+        assertThat(summary.getCount(Status.MOVED), is(0L));
+        assertThat(summary.errors(), hasSize(0));
+    }
+
+    @Test
+    public void testPlan_WritesThePlanWithoutMovingAnything() throws Exception {
+        Path tempPath = Files.createTempDirectory("test");
+        Path planFile = tempPath.resolve("plan.jsonl");
+        Path duplicateOf = Path.of("outputDirectory/2015/02/15/image.jpg");
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(List.of(file, ScannedFile.read(getFile("file").toPath())));
+        when(mediaDao.findDuplicate("outputDirectory/2015/02/15", file)).thenReturn(duplicateOf);
+        Progress progress = new Progress();
+
+        OutcomeSummary summary = mediaService.plan("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            planFile, progress);
+
+        assertThat(summary.getCount(Status.PLANNED), is(1L));
+        assertThat(summary.getCount(Status.UNDATABLE), is(1L));
+        assertThat(progress.getNumberOfFilesProcessed(), is(2L));
+        List<PlanEntry> entries = MovePlan.read(planFile);
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).move().path(), is(path));
+        assertThat(entries.get(0).move().targetDirectory(),
+            is(Path.of("outputDirectory/2015/02/15").toAbsolutePath().toString()));
+        assertThat(entries.get(0).move().fileDate().source(), is(DateSource.EXIF));
+        assertThat(entries.get(0).duplicateOf(), is(duplicateOf.toAbsolutePath()));
+        verify(mediaDao, never()).saveFile(anyString(), any(ScannedFile.class));
+        verify(mediaDao, never()).createDirectory(anyString());
+        verify(mediaDao, never()).deleteEmptyDirectories(any(), any());
+    }
+
+    @Test
+    public void testPlan_RecordsUnexpectedErrorsCheckingForDuplicatesAsFailed() throws Exception {
+        Path planFile = Files.createTempDirectory("test").resolve("plan.jsonl");
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(file));
+        when(mediaDao.findDuplicate(anyString(), any(ScannedFile.class)))
+            .thenThrow(new IllegalStateException("RuntimeException that was thrown"));
+        Progress progress = new Progress();
+
+        OutcomeSummary summary = mediaService.plan("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            planFile, progress);
+
+        assertThat(summary.getCount(Status.FAILED), is(1L));
+        assertThat(progress.getNumberOfFilesProcessed(), is(1L));
+        assertThat(MovePlan.read(planFile), hasSize(0));
+    }
+
+    @Test
+    public void testPlan_DoesNotSaveTheUndatableCache() throws Exception {
+        Path tempPath = Files.createTempDirectory("test");
+        Path undatablePath = tempPath.resolve("file");
+        Files.copy(getFile("file").toPath(), undatablePath);
+        Path cacheFile = tempPath.resolve("undatable.cache");
+        mediaService = new MediaService(mediaDao, OrganiseOptions.builder().undatableCacheFile(cacheFile).build());
+        when(mediaDao.getFilesToProbe(anyString())).thenReturn(singletonList(ScannedFile.read(undatablePath)));
+
+        OutcomeSummary planSummary = mediaService.plan("inputDirectory", "outputDirectory", DateConstants.YYYY_MM_DD,
+            tempPath.resolve("plan.jsonl"));
+        OutcomeSummary organiseSummary = mediaService.organise("inputDirectory", "outputDirectory",
+            DateConstants.YYYY_MM_DD);
+
+        assertThat(planSummary.getCount(Status.UNDATABLE), is(1L));
+        assertThat(organiseSummary.getCount(Status.UNDATABLE), is(1L));
+        assertThat(organiseSummary.getCount(Status.PREVIOUSLY_UNDATABLE), is(0L));
+    }
+
+    @Test
+    public void testApplyPlan_MovesTheFilesOrderedBySourceAndTargetDirectory() throws Exception {
+        mediaService = new MediaService(mediaDao);
+        Path tempPath = Files.createTempDirectory("test");
+        Path planFile = tempPath.resolve("plan.jsonl");
+        FileDate fileDate = new FileDate(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]"), DateSource.EXIF);
+        Path first = tempPath.resolve("a").resolve("1.jpg");
+        Path second = tempPath.resolve("a").resolve("2.jpg");
+        Path third = tempPath.resolve("b").resolve("1.jpg");
+        String firstTarget = tempPath.resolve("outputDirectory").resolve("2015").toString();
+        String secondTarget = tempPath.resolve("outputDirectory").resolve("2016").toString();
+        MovePlan.write(planFile, List.of(
+            new PlanEntry(new PlannedMove(third, 1L, fileDate, firstTarget), null),
+            new PlanEntry(new PlannedMove(second, 1L, fileDate, secondTarget), null),
+            new PlanEntry(new PlannedMove(first, 1L, fileDate, firstTarget), null)));
+        List<Path> saved = new CopyOnWriteArrayList<>();
+        when(mediaDao.saveFile(anyString(), any(Path.class))).thenAnswer(invocation -> {
+            saved.add(invocation.getArgument(1));
+            return savedFile(invocation.getArgument(0), true);
+        });
+
+        OutcomeSummary summary;
+        try (MockedStatic<Executors> executors = mockStatic(Executors.class, CALLS_REAL_METHODS)) {
+            executors.when(() -> Executors.newFixedThreadPool(anyInt()))
+                .thenAnswer(invocation -> Executors.newSingleThreadExecutor());
+            summary = mediaService.applyPlan(planFile);
+        }
+
+        assertThat(summary.getCount(Status.MOVED), is(3L));
+        assertThat(saved, contains(first, second, third));
+        InOrder inOrder = inOrder(mediaDao);
+        inOrder.verify(mediaDao).createDirectory(firstTarget);
+        inOrder.verify(mediaDao).createDirectory(secondTarget);
+        inOrder.verify(mediaDao).saveFile(firstTarget, first);
+        verify(mediaDao, never()).getFilesToProbe(anyString());
+        verify(mediaDao).deleteEmptyDirectories(any(), isNull());
+    }
+
+    @Test
+    public void testApplyPlan_RecordsFilesThatHaveGoneAsFailed() throws Exception {
+        Path planFile = Files.createTempDirectory("test").resolve("plan.jsonl");
+        Path missing = planFile.resolveSibling("missing.jpg");
+        String outputDirectory = planFile.resolveSibling("outputDirectory").toString();
+        FileDate fileDate = new FileDate(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]"), DateSource.EXIF);
+        MovePlan.write(planFile, List.of(new PlanEntry(new PlannedMove(missing, 1L, fileDate, outputDirectory),
+            null)));
+        doThrow(new NoSuchFileException("missing.jpg")).when(mediaDao).saveFile(outputDirectory, missing);
+
+        OutcomeSummary summary = mediaService.applyPlan(planFile);
+
+        assertThat(summary.getCount(Status.FAILED), is(1L));
+    }
+
+    private SavedFile savedFile(String outputDirectory, boolean moved) {
+        return new SavedFile(Path.of(outputDirectory).resolve(path.getFileName()), moved);
     }
 }
@@ -0,0 +1,111 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import com.benjaminsproule.mediaorganiser.dao.MediaDao;
+import com.benjaminsproule.mediaorganiser.domain.DateConstants;
+import com.benjaminsproule.mediaorganiser.test.Constants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static com.jayway.awaitility.Awaitility.await;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.exists;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MediaWatcherITest {
+    private Path inputDirectory;
+    private Path outputDirectory;
+    private MediaWatcher mediaWatcher;
+    private ExecutorService executorService;
+    private Future<?> watching;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        inputDirectory = Files.createTempDirectory(Constants.SOURCE_PATH);
+        outputDirectory = Files.createTempDirectory(Constants.DESTINATION_PATH);
+        MediaDao mediaDao = new MediaDao();
+        mediaWatcher = new MediaWatcher(new MediaService(mediaDao), mediaDao, 100L);
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        mediaWatcher.close();
+        if (watching != null) {
+            watching.get(5, SECONDS);
+        }
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionIfQuietPeriodIsLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new MediaWatcher(null, null, 0L));
+    }
+
+    @Test
+    public void testWatchThrowsIllegalArgumentExceptionIfInputDirectoryIsBlank() {
+        assertThrows(IllegalArgumentException.class,
+            () -> mediaWatcher.watch(" ", outputDirectory.toString(), DateConstants.YYYY_MM_DD));
+    }
+
+    @Test
+    public void testWatchOrganisesFilesAlreadyInTheInputDirectory() throws Exception {
+        copy(getFile("image.jpg").toPath(), inputDirectory.resolve("image.jpg"));
+
+        startWatching();
+
+        await().atMost(10, SECONDS).until(() -> exists(expectedImagePath()));
+    }
+
+    @Test
+    public void testWatchOrganisesFilesAddedToTheInputDirectory() throws Exception {
+        startWatching();
+
+        copy(getFile("image.jpg").toPath(), inputDirectory.resolve("image.jpg"));
+
+        await().atMost(10, SECONDS).until(() -> exists(expectedImagePath()));
+        assertThat(exists(inputDirectory), is(true));
+    }
+
+    @Test
+    public void testWatchOrganisesFilesAddedToNewSubDirectories() throws Exception {
+        startWatching();
+
+        Path subDirectory = Files.createDirectory(inputDirectory.resolve("directory"));
+        copy(getFile("image.jpg").toPath(), subDirectory.resolve("image.jpg"));
+
+        await().atMost(10, SECONDS).until(() -> exists(expectedImagePath()));
+    }
+
+    @Test
+    public void testWatchDoesNotOrganiseFilesThatAreNotMedia() throws Exception {
+        startWatching();
+
+        Path text = Files.writeString(inputDirectory.resolve("test.txt"), "not media");
+        Thread.sleep(500L);
+
+        assertThat(exists(text), is(true));
+    }
+
+    private void startWatching() {
+        watching = executorService.submit(() -> {
+            mediaWatcher.watch(inputDirectory.toString(), outputDirectory.toString(), DateConstants.YYYY_MM_DD);
+            return null;
+        });
+    }
+
+    private Path expectedImagePath() {
+        return outputDirectory.resolve("2015").resolve("02").resolve("15").resolve("image.jpg");
+    }
+}
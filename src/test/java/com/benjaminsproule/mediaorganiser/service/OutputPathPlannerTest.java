@@ -0,0 +1,35 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import com.benjaminsproule.mediaorganiser.domain.DateConstants;
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.domain.PlannedMove;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OutputPathPlannerTest {
+    private static final FileDate DATE = new FileDate(ZonedDateTime.parse("2015-02-15T19:41:23Z"), DateSource.EXIF);
+
+    @Test
+    public void testConstructorThrowsIllegalArgumentExceptionIfOutputFormatIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new OutputPathPlanner("outputDirectory", "yyyy/{"));
+    }
+
+    @Test
+    public void testPlanPutsFileInTheDirectoryForItsDate() {
+        OutputPathPlanner planner = new OutputPathPlanner("outputDirectory", DateConstants.YYYY_MM_MMMM_DD);
+
+        PlannedMove plannedMove = planner.plan(Path.of("image.jpg"), 100L, DATE);
+
+        assertThat(plannedMove.path(), is(Path.of("image.jpg")));
+        assertThat(plannedMove.size(), is(100L));
+        assertThat(plannedMove.fileDate(), is(DATE));
+        assertThat(plannedMove.targetDirectory(), is("outputDirectory/2015/02 - February/15"));
+    }
+}
@@ -1,30 +1,136 @@
 package com.benjaminsproule.mediaorganiser.service;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 
 import com.benjaminsproule.mediaorganiser.domain.Progress;
+import com.benjaminsproule.mediaorganiser.domain.ProgressListener;
+import com.benjaminsproule.mediaorganiser.domain.ProgressSnapshot;
 
 public class ProgressTest {
 
     @Test
-    public void testReset_setsTotalNumberOfFiles_toZero() {
-        Progress.reset();
-        assertThat(Progress.getTotalNumberOfFiles(), is(0));
+    public void testNewProgress_hasNoFiles() {
+        Progress progress = new Progress();
+        assertThat(progress.getTotalNumberOfFiles(), is(0L));
+        assertThat(progress.getNumberOfFilesProcessed(), is(0L));
     }
 
     @Test
-    public void testReset_setsNumberOfFilesProcessed_toZero() {
-        Progress.reset();
-        assertThat(Progress.getNumberOfFilesProcessed(), is(0));
+    public void testInc_IncrementsNumberOfFilesProcessed() {
+        Progress progress = new Progress();
+        progress.inc();
+        assertThat(progress.getNumberOfFilesProcessed(), is(1L));
     }
 
     @Test
-    public void testInc_IncrementsNumberOfFilesProcessed() {
-        Progress.reset();
-        Progress.inc();
-        assertThat(Progress.getNumberOfFilesProcessed(), is(1));
+    public void testIncTotal_IncrementsTotalNumberOfFiles() {
+        Progress progress = new Progress();
+        progress.addTotalNumberOfFiles(2);
+        progress.incTotal();
+        assertThat(progress.getTotalNumberOfFiles(), is(3L));
+    }
+
+    @Test
+    public void testInc_DoesNotLoseCountsFromConcurrentWorkers() {
+        Progress progress = new Progress();
+        try (ExecutorService executorService = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                executorService.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        progress.inc();
+                    }
+                });
+            }
+        }
+        assertThat(progress.getNumberOfFilesProcessed(), is(80_000L));
+    }
+
+    @Test
+    public void testSnapshot_CountsBytesErrorsAndSkippedDuplicates() {
+        Progress progress = new Progress();
+        progress.addBytes(100);
+        progress.addBytes(50);
+        progress.incErrors();
+        progress.incSkippedDuplicates();
+        progress.incSkippedDuplicates();
+
+        ProgressSnapshot snapshot = progress.snapshot();
+
+        assertThat(snapshot.bytesProcessed(), is(150L));
+        assertThat(snapshot.errors(), is(1L));
+        assertThat(snapshot.skippedDuplicates(), is(2L));
+    }
+
+    @Test
+    public void testSnapshot_WorksOutRatesAndTimeRemaining() {
+        ProgressSnapshot snapshot = new ProgressSnapshot(100, 25, 50L * 1024 * 1024, 0, 0, Duration.ofSeconds(10));
+
+        assertThat(snapshot.getPercentComplete(), is(25.0));
+        assertThat(snapshot.getFilesPerSecond(), is(2.5));
+        assertThat(snapshot.getMegabytesPerSecond(), is(closeTo(5.0, 0.001)));
+        assertThat(snapshot.getEstimatedTimeRemaining(), is(Duration.ofSeconds(30)));
+    }
+
+    @Test
+    public void testSnapshot_HasNoTimeRemainingBeforeAnyFilesAreProcessed() {
+        ProgressSnapshot snapshot = new ProgressSnapshot(100, 0, 0, 0, 0, Duration.ofSeconds(10));
+
+        assertThat(snapshot.getPercentComplete(), is(0.0));
+        assertThat(snapshot.getEstimatedTimeRemaining(), is(nullValue()));
+    }
+
+    @Test
+    public void testSubscribe_ThrottlesCallsToTheListener() {
+        Progress progress = new Progress();
+        List<ProgressSnapshot> snapshots = new CopyOnWriteArrayList<>();
+        progress.subscribe(snapshots::add, 60_000L);
+
+        for (int i = 0; i < 100; i++) {
+            progress.inc();
+        }
+
+        assertThat(snapshots, hasSize(1));
+    }
+
+    @Test
+    public void testFinish_TellsTheListenerAboutTheFinalProgress() {
+        Progress progress = new Progress();
+        List<ProgressSnapshot> snapshots = new CopyOnWriteArrayList<>();
+        progress.subscribe(snapshots::add, 60_000L);
+        progress.addTotalNumberOfFiles(2);
+        progress.inc();
+        progress.inc();
+
+        progress.finish();
+
+        assertThat(snapshots, hasSize(2));
+        assertThat(snapshots.get(1).numberOfFilesProcessed(), is(2L));
+        assertThat(snapshots.get(1).totalNumberOfFiles(), is(2L));
+    }
+
+    @Test
+    public void testUnsubscribe_StopsTellingTheListener() {
+        Progress progress = new Progress();
+        List<ProgressSnapshot> snapshots = new CopyOnWriteArrayList<>();
+        ProgressListener listener = snapshots::add;
+        progress.subscribe(listener, 0L);
+        progress.unsubscribe(listener);
+
+        progress.inc();
+        progress.finish();
+
+        assertThat(snapshots, hasSize(0));
     }
 }
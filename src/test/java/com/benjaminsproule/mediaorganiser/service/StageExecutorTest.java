@@ -0,0 +1,63 @@
+package com.benjaminsproule.mediaorganiser.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StageExecutorTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testCreateThrowsIllegalArgumentExceptionIfParallelismIsLessThanOne(boolean virtualThreads) {
+        assertThrows(IllegalArgumentException.class, () -> StageExecutor.create(0, virtualThreads));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testCloseWaitsForEveryTaskWithNoMoreThanTheParallelismRunningAtOnce(boolean virtualThreads) {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+
+        try (StageExecutor executor = StageExecutor.create(3, virtualThreads)) {
+            for (int i = 0; i < 50; i++) {
+                executor.submit(() -> {
+                    mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    finished.incrementAndGet();
+                });
+            }
+        }
+
+        assertThat(finished.get(), is(50));
+        assertThat(mostRunning.get(), lessThanOrEqualTo(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testATaskThrowingDoesNotStopTheTasksAfterIt(boolean virtualThreads) {
+        AtomicInteger finished = new AtomicInteger();
+
+        try (StageExecutor executor = StageExecutor.create(1, virtualThreads)) {
+            executor.submit(() -> {
+                throw new IllegalStateException("Task that failed");
+            });
+            for (int i = 0; i < 5; i++) {
+                executor.submit(finished::incrementAndGet);
+            }
+        }
+
+        assertThat(finished.get(), is(5));
+    }
+}
@@ -0,0 +1,91 @@
+package com.benjaminsproule.mediaorganiser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.benjaminsproule.mediaorganiser.test.Mp4Builder.box;
+
+/**
+ * Builds minimal HEIF files holding nothing but an EXIF item, as the metadata of real images can't be controlled
+ */
+public class HeifBuilder {
+    private static final int EXIF_ITEM = 1;
+
+    private byte[] tiff = new byte[0];
+    private boolean inItemData = true;
+
+    public static HeifBuilder heif() {
+        return new HeifBuilder();
+    }
+
+    /**
+     * Set the TIFF data of the EXIF item, such as that built by {@link JpegBuilder#tiff}
+     */
+    public HeifBuilder tiff(byte[] tiff) {
+        this.tiff = tiff;
+        return this;
+    }
+
+    /**
+     * Put the EXIF item in an mdat box after the meta box, located by its offset into the file, rather than in the
+     * idat box of the meta box
+     */
+    public HeifBuilder inMediaData() {
+        this.inItemData = false;
+        return this;
+    }
+
+    public Path write(Path path) throws IOException {
+        return Files.write(path, toByteArray());
+    }
+
+    public byte[] toByteArray() {
+        byte[] exif = ByteBuffer.allocate(10 + tiff.length).putInt(6)
+            .put("Exif\0\0".getBytes(StandardCharsets.US_ASCII)).put(tiff).array();
+        byte[] fileType = box("ftyp", "heic\0\0\0\0mif1heic".getBytes(StandardCharsets.US_ASCII));
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(fileType);
+        if (inItemData) {
+            file.writeBytes(meta(itemLocation(1, 0, exif.length), box("idat", exif)));
+        } else {
+            // The meta box is the same size whatever the offset is, so it can be worked out from an empty one
+            int mediaData = fileType.length + meta(itemLocation(0, 0, exif.length), new byte[0]).length + 8;
+            file.writeBytes(meta(itemLocation(0, mediaData, exif.length), new byte[0]));
+            file.writeBytes(box("mdat", exif));
+        }
+        return file.toByteArray();
+    }
+
+    private static byte[] meta(byte[] itemLocation, byte[] itemData) {
+        ByteArrayOutputStream children = new ByteArrayOutputStream();
+        children.writeBytes(new byte[4]);
+        children.writeBytes(box("hdlr", ByteBuffer.allocate(25).putInt(8, 0x70696374).array()));
+        children.writeBytes(box("iinf", ByteBuffer.allocate(6 + 21).putShort(4, (short) 1)
+            .put(6, box("infe", ByteBuffer.allocate(13).put((byte) 2).putShort(4, (short) EXIF_ITEM)
+                .put(8, "Exif".getBytes(StandardCharsets.US_ASCII)).array()))
+            .array()));
+        children.writeBytes(itemLocation);
+        children.writeBytes(itemData);
+        return box("meta", children.toByteArray());
+    }
+
+    /**
+     * Build an iloc box, of version 1 for an offset into the idat box and version 0 for an offset into the file
+     */
+    private static byte[] itemLocation(int constructionMethod, int offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(constructionMethod == 1 ? 24 : 22);
+        buffer.put((byte) constructionMethod).put(new byte[3]);
+        buffer.put((byte) 0x44).put((byte) 0);
+        buffer.putShort((short) 1).putShort((short) EXIF_ITEM);
+        if (constructionMethod == 1) {
+            buffer.putShort((short) constructionMethod);
+        }
+        buffer.putShort((short) 0).putShort((short) 1).putInt(offset).putInt(length);
+        return box("iloc", buffer.array());
+    }
+}
@@ -0,0 +1,119 @@
+package com.benjaminsproule.mediaorganiser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds minimal JPEG files holding just the EXIF dates, as the metadata of real photos can't be controlled
+ */
+public class JpegBuilder {
+    public static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    public static final int TAG_OFFSET_TIME_ORIGINAL = 0x9011;
+    public static final int TAG_SUB_SEC_TIME_ORIGINAL = 0x9291;
+
+    private static final int TAG_EXIF_IFD_POINTER = 0x8769;
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_LONG = 4;
+
+    private final Map<Integer, String> exifTags = new TreeMap<>();
+    private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+    private boolean jfif;
+
+    public static JpegBuilder jpeg() {
+        return new JpegBuilder();
+    }
+
+    public JpegBuilder byteOrder(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+        return this;
+    }
+
+    /**
+     * Put a JFIF APP0 segment before the EXIF one, as many cameras and editors do
+     */
+    public JpegBuilder jfif() {
+        this.jfif = true;
+        return this;
+    }
+
+    public JpegBuilder dateTimeOriginal(String dateTimeOriginal) {
+        exifTags.put(TAG_DATE_TIME_ORIGINAL, dateTimeOriginal);
+        return this;
+    }
+
+    public JpegBuilder subSecTimeOriginal(String subSecTimeOriginal) {
+        exifTags.put(TAG_SUB_SEC_TIME_ORIGINAL, subSecTimeOriginal);
+        return this;
+    }
+
+    public JpegBuilder offsetTimeOriginal(String offsetTimeOriginal) {
+        exifTags.put(TAG_OFFSET_TIME_ORIGINAL, offsetTimeOriginal);
+        return this;
+    }
+
+    public Path write(Path path) throws IOException {
+        return Files.write(path, toByteArray());
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        jpeg.writeBytes(new byte[]{(byte) 0xff, (byte) 0xd8});
+        if (jfif) {
+            jpeg.writeBytes(segment(0xe0, new byte[]{'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0}));
+        }
+        byte[] tiff = tiff(byteOrder, exifTags);
+        ByteBuffer exif = ByteBuffer.allocate(6 + tiff.length);
+        exif.put(new byte[]{'E', 'x', 'i', 'f', 0, 0}).put(tiff);
+        jpeg.writeBytes(segment(0xe1, exif.array()));
+        jpeg.writeBytes(segment(0xda, new byte[]{1, 1, 0, 0, 0x3f, 0}));
+        jpeg.writeBytes(new byte[]{0, (byte) 0xff, (byte) 0xd9});
+        return jpeg.toByteArray();
+    }
+
+    /**
+     * Build TIFF data with an IFD0 that only points to an Exif IFD holding the given ASCII tags
+     */
+    public static byte[] tiff(ByteOrder byteOrder, Map<Integer, String> exifTags) {
+        int exifIfd = 8 + 2 + 12 + 4;
+        int values = exifIfd + 2 + 12 * exifTags.size() + 4;
+        int valuesLength = exifTags.values().stream().mapToInt(value -> value.length() + 1).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(values + valuesLength).order(byteOrder);
+        buffer.put(byteOrder == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.put(buffer.get(0));
+        buffer.putShort((short) 42);
+        buffer.putInt(8);
+
+        buffer.putShort((short) 1);
+        buffer.putShort((short) TAG_EXIF_IFD_POINTER).putShort((short) TYPE_LONG).putInt(1).putInt(exifIfd);
+        buffer.putInt(0);
+
+        buffer.putShort((short) exifTags.size());
+        int valuePosition = values;
+        for (Map.Entry<Integer, String> tag : exifTags.entrySet()) {
+            byte[] value = (tag.getValue() + "\0").getBytes(StandardCharsets.US_ASCII);
+            buffer.putShort(tag.getKey().shortValue()).putShort((short) TYPE_ASCII).putInt(value.length);
+            if (value.length <= 4) {
+                buffer.put(value).put(new byte[4 - value.length]);
+            } else {
+                buffer.putInt(valuePosition);
+                buffer.put(valuePosition, value);
+                valuePosition += value.length;
+            }
+        }
+        buffer.putInt(0);
+        return buffer.array();
+    }
+
+    private static byte[] segment(int marker, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + payload.length);
+        buffer.put((byte) 0xff).put((byte) marker).putShort((short) (2 + payload.length)).put(payload);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,140 @@
+package com.benjaminsproule.mediaorganiser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Builds minimal MP4 and QuickTime files, as the metadata of real videos can't be controlled
+ */
+public class Mp4Builder {
+    private static final long SECONDS_FROM_1904_TO_1970 = 2082844800L;
+
+    private final ByteArrayOutputStream boxes = new ByteArrayOutputStream();
+
+    public static Mp4Builder mp4() {
+        return new Mp4Builder().append(box("ftyp", brands("isom", "isom", "mp42")));
+    }
+
+    public static Mp4Builder quickTime() {
+        return new Mp4Builder().append(box("ftyp", brands("qt  ", "qt  ")));
+    }
+
+    public Mp4Builder mediaData(int size) {
+        return append(box("mdat", new byte[size]));
+    }
+
+    public Mp4Builder movie(Instant creationTime) {
+        return append(box("moov", box("mvhd", movieHeader(creationTime))));
+    }
+
+    /**
+     * Add a movie box with the given movie header and tracks
+     */
+    public Mp4Builder movie(byte[] movieHeader, byte[]... tracks) {
+        ByteArrayOutputStream children = new ByteArrayOutputStream();
+        children.writeBytes(box("mvhd", movieHeader));
+        for (byte[] track : tracks) {
+            children.writeBytes(track);
+        }
+        return append(box("moov", children.toByteArray()));
+    }
+
+    public Mp4Builder append(byte[] box) {
+        boxes.writeBytes(box);
+        return this;
+    }
+
+    public Path write(Path path) throws IOException {
+        return Files.write(path, boxes.toByteArray());
+    }
+
+    public byte[] toByteArray() {
+        return boxes.toByteArray();
+    }
+
+    public static byte[] box(String type, byte[] payload) {
+        return box(type, payload, false);
+    }
+
+    public static byte[] largeBox(String type, byte[] payload) {
+        return box(type, payload, true);
+    }
+
+    public static byte[] movieHeader(Instant creationTime) {
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        buffer.putInt(0);
+        buffer.putInt((int) (creationTime.getEpochSecond() + SECONDS_FROM_1904_TO_1970));
+        buffer.putInt((int) (creationTime.getEpochSecond() + SECONDS_FROM_1904_TO_1970));
+        buffer.putInt(1000);
+        buffer.putInt(0);
+        buffer.putInt(0x00010000);
+        buffer.putShort((short) 0x0100);
+        return buffer.array();
+    }
+
+    /**
+     * Build a version 1 movie header, which has 64 bit times
+     */
+    public static byte[] largeMovieHeader(Instant creationTime) {
+        ByteBuffer buffer = ByteBuffer.allocate(112);
+        buffer.putInt(0x01000000);
+        buffer.putLong(creationTime.getEpochSecond() + SECONDS_FROM_1904_TO_1970);
+        buffer.putLong(creationTime.getEpochSecond() + SECONDS_FROM_1904_TO_1970);
+        buffer.putInt(1000);
+        buffer.putLong(0);
+        buffer.putInt(0x00010000);
+        buffer.putShort((short) 0x0100);
+        return buffer.array();
+    }
+
+    /**
+     * Build a track with a media header of the given creation time and a handler of the given type, such as vide, soun
+     * or meta
+     */
+    public static byte[] track(String handlerType, Instant creationTime) {
+        ByteBuffer mediaHeader = ByteBuffer.allocate(24);
+        mediaHeader.putInt(0);
+        mediaHeader.putInt((int) (creationTime.getEpochSecond() + SECONDS_FROM_1904_TO_1970));
+        mediaHeader.putInt((int) (creationTime.getEpochSecond() + SECONDS_FROM_1904_TO_1970));
+        mediaHeader.putInt(1000);
+        mediaHeader.putInt(0);
+        mediaHeader.putShort((short) 0x55c4);
+
+        ByteBuffer handler = ByteBuffer.allocate(25);
+        handler.putInt(0);
+        handler.putInt(0);
+        handler.put(handlerType.getBytes(StandardCharsets.ISO_8859_1));
+
+        ByteArrayOutputStream media = new ByteArrayOutputStream();
+        media.writeBytes(box("mdhd", mediaHeader.array()));
+        media.writeBytes(box("hdlr", handler.array()));
+        return box("trak", box("mdia", media.toByteArray()));
+    }
+
+    private static byte[] box(String type, byte[] payload, boolean large) {
+        int headerLength = large ? 16 : 8;
+        ByteBuffer buffer = ByteBuffer.allocate(headerLength + payload.length);
+        buffer.putInt(large ? 1 : headerLength + payload.length);
+        buffer.put(type.getBytes(StandardCharsets.ISO_8859_1));
+        if (large) {
+            buffer.putLong(headerLength + payload.length);
+        }
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    private static byte[] brands(String majorBrand, String... compatibleBrands) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 4 * compatibleBrands.length);
+        buffer.put(majorBrand.getBytes(StandardCharsets.ISO_8859_1));
+        buffer.putInt(0);
+        for (String compatibleBrand : compatibleBrands) {
+            buffer.put(compatibleBrand.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return buffer.array();
+    }
+}
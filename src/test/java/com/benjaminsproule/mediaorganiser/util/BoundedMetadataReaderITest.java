@@ -0,0 +1,82 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.benjaminsproule.mediaorganiser.test.Mp4Builder;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.mov.QuickTimeDirectory;
+import com.drew.metadata.mp4.Mp4Directory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BoundedMetadataReaderITest {
+    private static final Instant CREATION_TIME = Instant.parse("2023-05-19T22:38:49Z");
+
+    @Test
+    public void testReadMetadata_ReadsExifFromJpegHeader() throws Exception {
+        Metadata metadata = BoundedMetadataReader.readMetadata(getFile("image.jpg"), 64 * 1024);
+
+        assertThat(metadata, is(notNullValue()));
+        ExifSubIFDDirectory directory = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+        assertThat(directory.getDateOriginal().toInstant(), is(Instant.parse("2015-02-15T19:41:23Z")));
+    }
+
+    @Test
+    public void testReadMetadata_DoesNotReadExif_JpegHeaderLargerThanMaxBytes() throws Exception {
+        Metadata metadata = BoundedMetadataReader.readMetadata(getFile("image.jpg"), 16);
+
+        assertThat(metadata == null || !metadata.containsDirectoryOfType(ExifSubIFDDirectory.class), is(true));
+    }
+
+    @Test
+    public void testReadMetadata_ReturnsNull_UnsupportedFileType() throws Exception {
+        assertThat(BoundedMetadataReader.readMetadata(getFile("file"), 64 * 1024), is(nullValue()));
+    }
+
+    @Test
+    public void testReadMetadata_ReadsMovieBoxAfterMediaData_mp4() throws Exception {
+        File file = Mp4Builder.mp4().mediaData(2 * 1024 * 1024).movie(CREATION_TIME)
+            .write(Files.createTempFile("test", ".mp4")).toFile();
+
+        Metadata metadata = BoundedMetadataReader.readMetadata(file, 64 * 1024);
+
+        assertThat(metadata, is(notNullValue()));
+        Mp4Directory directory = metadata.getFirstDirectoryOfType(Mp4Directory.class);
+        assertThat(directory.getDate(Mp4Directory.TAG_CREATION_TIME).toInstant(), is(CREATION_TIME));
+    }
+
+    @Test
+    public void testReadMetadata_ReadsMovieBoxAfterMediaData_mov() throws Exception {
+        File file = Mp4Builder.quickTime().mediaData(2 * 1024 * 1024).movie(CREATION_TIME)
+            .write(Files.createTempFile("test", ".mov")).toFile();
+
+        Metadata metadata = BoundedMetadataReader.readMetadata(file, 64 * 1024);
+
+        assertThat(metadata, is(notNullValue()));
+        QuickTimeDirectory directory = metadata.getFirstDirectoryOfType(QuickTimeDirectory.class);
+        assertThat(directory.getDate(QuickTimeDirectory.TAG_CREATION_TIME).toInstant(), is(CREATION_TIME));
+    }
+
+    @Test
+    public void testReadMetadata_ReturnsNull_NoMovieBox() throws Exception {
+        Path path = Mp4Builder.mp4().mediaData(1024).write(Files.createTempFile("test", ".mp4"));
+
+        assertThat(BoundedMetadataReader.readMetadata(path.toFile(), 64 * 1024), is(nullValue()));
+    }
+
+    @Test
+    public void testReadMetadata_ReturnsNull_MovieBoxLargerThanMaxBytes() throws Exception {
+        Path path = Mp4Builder.mp4().movie(CREATION_TIME).write(Files.createTempFile("test", ".mp4"));
+
+        assertThat(BoundedMetadataReader.readMetadata(path.toFile(), 64), is(nullValue()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DateSourcePredictorITest {
+    private DateSourcePredictor predictor;
+    private Path directory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        predictor = new DateSourcePredictor();
+        directory = Files.createTempDirectory("predictor");
+    }
+
+    @Test
+    public void testPredictsFileNamePatternOfFilesInTheSameDirectory() throws Exception {
+        getDate(copy("file", "PXL_20221227_152002772.jpg"));
+        ZonedDateTime zonedDateTime = getDate(copy("file", "PXL_20221228_152002772.jpg"));
+
+        assertThat(zonedDateTime, is(ZonedDateTime.parse("2022-12-28T15:20:02.772Z")));
+        assertThat(predictor.getFileNamePredictions(), is(1L));
+        assertThat(predictor.getFileNameHits(), is(1L));
+    }
+
+    @Test
+    public void testCountsMissedFileNamePatternPredictions() throws Exception {
+        getDate(copy("file", "PXL_20221227_152002772.jpg"));
+        ZonedDateTime zonedDateTime = getDate(copy("file", "IMG-20170430-WA0000.jpg"));
+
+        assertThat(zonedDateTime, is(ZonedDateTime.parse("2017-04-30T00:00:00Z")));
+        assertThat(predictor.getFileNamePredictions(), is(1L));
+        assertThat(predictor.getFileNameHits(), is(0L));
+    }
+
+    @Test
+    public void testDoesNotPredictFileNamePatternOfFilesInOtherDirectories() throws Exception {
+        getDate(copy("file", "PXL_20221227_152002772.jpg"));
+        directory = Files.createTempDirectory("predictor");
+        getDate(copy("file", "PXL_20221228_152002772.jpg"));
+
+        assertThat(predictor.getFileNamePredictions(), is(0L));
+    }
+
+    @Test
+    public void testPredictsMetadataDirectoryOfFilesInTheSameDirectory() throws Exception {
+        getDate(copy("image.jpg", "first.jpg"));
+        ZonedDateTime zonedDateTime = getDate(copy("image.jpg", "second.jpg"));
+
+        assertThat(zonedDateTime, is(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]")));
+        assertThat(predictor.getMetadataPredictions(), is(1L));
+        assertThat(predictor.getMetadataHits(), is(1L));
+    }
+
+    @Test
+    public void testGivesTheSameDatesAsNotPredicting() throws Exception {
+        String[] resources = {"image.jpg", "20230325_110242428_iOS.heic", "image.jpg", "19700101_010101.jpg",
+            "IMG-20170430-WA0000.jpg", "3661100.jpg", "image.heic", "PXL_20221227_152002772.jpg"};
+        for (String resource : resources) {
+            File file = getFile(resource);
+            assertThat(FileDateUtil.getDateFromFile(file, FileDateUtil.DEFAULT_MAX_METADATA_BYTES, predictor),
+                is(FileDateUtil.getDateFromFile(file)));
+        }
+    }
+
+    private File copy(String resource, String name) throws Exception {
+        return Files.copy(getFile(resource).toPath(), directory.resolve(name)).toFile();
+    }
+
+    private ZonedDateTime getDate(File file) throws Exception {
+        return FileDateUtil.getDateFromFile(file, FileDateUtil.DEFAULT_MAX_METADATA_BYTES, predictor);
+    }
+}
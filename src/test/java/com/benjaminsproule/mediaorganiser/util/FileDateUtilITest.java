@@ -1,13 +1,24 @@
 package com.benjaminsproule.mediaorganiser.util;
 
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
 import com.benjaminsproule.mediaorganiser.exception.InvalidDateException;
+import com.benjaminsproule.mediaorganiser.test.HeifBuilder;
+import com.benjaminsproule.mediaorganiser.test.JpegBuilder;
+import com.benjaminsproule.mediaorganiser.test.Mp4Builder;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Map;
 
 import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -114,6 +125,123 @@ public class FileDateUtilITest {
         assertThat(zonedDateTime.getNano(), is(0));
     }
 
+    @Test
+    public void testGetDateFromFile_UsesVideoMetadata_mp4_movieBoxAfterMediaData() throws Exception {
+        File file = Mp4Builder.mp4().mediaData(2 * 1024 * 1024).movie(Instant.parse("2023-05-19T22:38:49Z"))
+            .write(Files.createTempFile("test", ".mp4")).toFile();
+
+        ZonedDateTime zonedDateTime = FileDateUtil.getDateFromFile(file, 64 * 1024);
+
+        assertThat(zonedDateTime, is(ZonedDateTime.parse("2023-05-19T22:38:49Z[UTC]")));
+    }
+
+    @Test
+    public void testGetDateFromFile_FallsBackToAllMetadata_maxMetadataBytesTooSmall() throws Exception {
+        File file = getFile("image.jpg");
+
+        ZonedDateTime zonedDateTime = FileDateUtil.getDateFromFile(file, 16);
+
+        assertThat(zonedDateTime, is(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]")));
+    }
+
+    @Test
+    public void testGetDateFromFile_ReadsAllMetadata_maxMetadataBytesZero() throws Exception {
+        File file = getFile("image.heic");
+
+        ZonedDateTime zonedDateTime = FileDateUtil.getDateFromFile(file, 0);
+
+        assertThat(zonedDateTime, is(ZonedDateTime.parse("2023-03-25T11:02:42.428Z[UTC]")));
+    }
+
+    @Test
+    public void testGetFileDate_RecordsTheMetadataDirectoryAsTheSource() throws Exception {
+        FileDate fileDate = FileDateUtil.getFileDate(getFile("image.jpg"), FileDateUtil.DEFAULT_MAX_METADATA_BYTES,
+            null);
+
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]")));
+        assertThat(fileDate.source(), is(DateSource.EXIF));
+    }
+
+    @Test
+    public void testGetFileDate_RecordsTheFileNameAsTheSource() throws Exception {
+        FileDate fileDate = FileDateUtil.getFileDate(getFile("19700101_010101.jpg"),
+            FileDateUtil.DEFAULT_MAX_METADATA_BYTES, null);
+
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("1970-01-01T01:01:01Z")));
+        assertThat(fileDate.source(), is(DateSource.FILE_NAME));
+    }
+
+    @Test
+    public void testGetFileDate_RecordsMp4AsTheSource() throws Exception {
+        File file = Mp4Builder.mp4().movie(Instant.parse("2023-05-19T22:38:49Z"))
+            .write(Files.createTempFile("test", ".mp4")).toFile();
+
+        FileDate fileDate = FileDateUtil.getFileDate(file, FileDateUtil.DEFAULT_MAX_METADATA_BYTES, null);
+
+        assertThat(fileDate.source(), is(DateSource.MP4));
+    }
+
+    @Test
+    public void testGetFileDate_RecordsMp4MediaAsTheSource_MetaTrack() throws Exception {
+        File file = Mp4Builder.mp4().movie(Mp4Builder.movieHeader(Instant.parse("2023-05-19T22:38:49Z")),
+            Mp4Builder.track("meta", Instant.parse("2023-05-19T21:38:49Z"))).write(Files.createTempFile("test", ".mp4"))
+            .toFile();
+
+        FileDate fileDate = FileDateUtil.getFileDate(file, FileDateUtil.DEFAULT_MAX_METADATA_BYTES, null);
+
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("2023-05-19T21:38:49Z[UTC]")));
+        assertThat(fileDate.source(), is(DateSource.MP4_MEDIA));
+    }
+
+    @Test
+    public void testGetFileDate_RecordsExifAsTheSource_Raw() throws Exception {
+        File file = Files.write(Files.createTempFile("test", ".nef"), JpegBuilder.tiff(ByteOrder.LITTLE_ENDIAN,
+            Map.of(JpegBuilder.TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49"))).toFile();
+
+        FileDate fileDate = FileDateUtil.getFileDate(file, FileDateUtil.DEFAULT_MAX_METADATA_BYTES, null);
+
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("2023-05-19T22:38:49Z[UTC]")));
+        assertThat(fileDate.source(), is(DateSource.EXIF));
+    }
+
+    @Test
+    public void testGetFileDate_RecordsExifAsTheSource_Heif() throws Exception {
+        File file = HeifBuilder.heif().tiff(JpegBuilder.tiff(ByteOrder.BIG_ENDIAN,
+            Map.of(JpegBuilder.TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49")))
+            .write(Files.createTempFile("test", ".heic")).toFile();
+
+        FileDate fileDate = FileDateUtil.getFileDate(file, FileDateUtil.DEFAULT_MAX_METADATA_BYTES, null);
+
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("2023-05-19T22:38:49Z[UTC]")));
+        assertThat(fileDate.source(), is(DateSource.EXIF));
+    }
+
+    @Test
+    public void testGetFileDate_ReadsTheMetadataFromTheHeaderWithoutOpeningTheFileAgain() throws Exception {
+        Path path = Files.createTempFile("test", ".jpg");
+        Files.copy(getFile("image.jpg").toPath(), path, StandardCopyOption.REPLACE_EXISTING);
+        FileHeader header = FileHeader.read(path, FileHeader.DEFAULT_HEADER_BYTES);
+        Files.delete(path);
+
+        FileDate fileDate = FileDateUtil.getFileDate(path.toFile(), header, FileDateUtil.DEFAULT_MAX_METADATA_BYTES,
+            null);
+
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("2015-02-15T19:41:23Z[UTC]")));
+        assertThat(fileDate.source(), is(DateSource.EXIF));
+    }
+
+    @Test
+    public void testGetFileDate_ReadsTheRestOfTheFileIfTheMetadataIsPastTheHeader() throws Exception {
+        Path path = Mp4Builder.mp4().mediaData(2 * 1024 * 1024).movie(Instant.parse("2023-05-19T22:38:49Z"))
+            .write(Files.createTempFile("test", ".mp4"));
+        FileHeader header = FileHeader.read(path, FileHeader.DEFAULT_HEADER_BYTES);
+
+        FileDate fileDate = FileDateUtil.getFileDate(path.toFile(), header, 64 * 1024, null);
+
+        assertThat(header.isWholeFile(), is(false));
+        assertThat(fileDate.dateTime(), is(ZonedDateTime.parse("2023-05-19T22:38:49Z[UTC]")));
+    }
+
     @Disabled("Find an avi file with a created timestamp")
     public void testGetDateFromFile_UsesVideoMetadata_avi() throws Exception {
         File file = getFile("video.avi");
@@ -0,0 +1,120 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FilenameDateParserTest {
+
+    @ParameterizedTest
+    @MethodSource("fileNames")
+    public void testParseGivesTheSameDateAsTheLegacyParsers(String fileName) {
+        assertThat(FilenameDateParser.parse(fileName), is(LegacyFilenameDateParser.parse(fileName)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNames")
+    public void testParseGivesTheSameDateWhicheverPatternIsPredicted(String fileName) {
+        ZonedDateTime expected = LegacyFilenameDateParser.parse(fileName);
+        for (int pattern = FilenameDateParser.NO_PATTERN; pattern < 8; pattern++) {
+            FilenameDateParser.Match match = FilenameDateParser.parse(fileName, pattern);
+            assertThat(match == null ? null : match.dateTime(), is(expected));
+        }
+    }
+
+    @Test
+    public void testParseReturnsThePatternThatMatched() {
+        FilenameDateParser.Match match = FilenameDateParser.parse("PXL_20221227_152002772", 0);
+
+        assertThat(match.pattern(), is(3));
+        assertThat(FilenameDateParser.parse("PXL_20221227_152002772", 3).pattern(), is(3));
+    }
+
+    @Test
+    public void testParseReturnsNullForUnknownFormat() {
+        assertThat(FilenameDateParser.parse("holiday"), is(nullValue()));
+    }
+
+    @Test
+    public void testParseMovesDayPastTheEndOfTheMonthToTheLastDay() {
+        assertThat(FilenameDateParser.parse("20230231_101010"), is(ZonedDateTime.parse("2023-02-28T10:10:10Z")));
+    }
+
+    @Test
+    public void testParseTreatsEndOfDayAsMidnightOfTheNextDay() {
+        assertThat(FilenameDateParser.parse("20231231_240000"), is(ZonedDateTime.parse("2024-01-01T00:00:00Z")));
+    }
+
+    /**
+     * The names of the test resources, along with variations of them and names that are nearly, but not quite, in a
+     * known format
+     */
+    static Stream<String> fileNames() throws URISyntaxException {
+        List<String> fileNames = new ArrayList<>();
+        File[] resources = getFile("file").getParentFile().listFiles();
+        for (File resource : resources) {
+            String fileName = resource.getName().split("\\.")[0];
+            fileNames.add(fileName);
+            fileNames.add(fileName.toLowerCase(Locale.ROOT));
+            fileNames.add(fileName.toUpperCase(Locale.ROOT));
+            fileNames.add(fileName + "_");
+            fileNames.add("x" + fileName);
+            fileNames.add(fileName.replace('1', '9'));
+            fileNames.add(fileName.replace('0', '3'));
+        }
+        fileNames.addAll(Arrays.asList(
+            "",
+            "-1",
+            "+1",
+            "-",
+            "9223372036854775807",
+            "9223372036854775808",
+            "-9223372036854775808",
+            "-9223372036854775809",
+            "١٢٣",
+            "20230231_101010",
+            "20240230_101010",
+            "20231231_240000",
+            "20231231_240001",
+            "20231231_235960",
+            "20231231_236000",
+            "20231331_101010",
+            "20231200_101010",
+            "20231232_101010",
+            "00000101_101010",
+            "119700101_010101",
+            "+19700101_010101",
+            "+119700101_010101",
+            "+01970-01-01_01-01-01",
+            "1970-1-01_01-01-01",
+            "19700101_010101000",
+            "19700101_240000000",
+            "19700101_240000001",
+            "PXL_19700101_010101000_iOS",
+            "20170430172516_COVER",
+            "Burst_Cover_GIF_Action_20170401114720_COVER",
+            "burst_cover_collage_20170430172710",
+            "img-20170430-WA0000",
+            "IMG-20170430",
+            "20170430-WA",
+            "20170430-WA12",
+            "IMG-20170431-WA0000",
+            "Screenshot_IMG_1970-01-01_01-01-01"
+        ));
+        return fileNames.stream();
+    }
+}
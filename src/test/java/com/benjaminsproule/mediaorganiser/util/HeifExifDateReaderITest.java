@@ -0,0 +1,112 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.benjaminsproule.mediaorganiser.test.HeifBuilder;
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.TAG_DATE_TIME_ORIGINAL;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.TAG_SUB_SEC_TIME_ORIGINAL;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.tiff;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class HeifExifDateReaderITest {
+    private static final int MAX_BYTES = FileDateUtil.DEFAULT_MAX_METADATA_BYTES;
+    private static final byte[] TIFF =
+        tiff(ByteOrder.BIG_ENDIAN, Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49"));
+
+    @Test
+    public void testReadDateOriginal_GivesTheSameDateAsTheFullMetadata() throws Exception {
+        File file = getFile("image.heic");
+
+        Instant dateTime = HeifExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-03-25T11:02:42.428Z")));
+        assertThat(dateTime, is(ImageMetadataReader.readMetadata(file)
+            .getFirstDirectoryOfType(ExifSubIFDDirectory.class).getDateOriginal().toInstant()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReadsAnExifItemInTheItemData() throws Exception {
+        File file = HeifBuilder.heif().tiff(tiff(ByteOrder.LITTLE_ENDIAN,
+                Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49", TAG_SUB_SEC_TIME_ORIGINAL, "428")))
+            .write(Files.createTempFile("test", ".heic")).toFile();
+
+        Instant dateTime = HeifExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49.428Z")));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReadsAnExifItemInTheMediaData() throws Exception {
+        File file = HeifBuilder.heif().tiff(TIFF).inMediaData().write(Files.createTempFile("test", ".heic")).toFile();
+
+        Instant dateTime = HeifExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49Z")));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReadsTheDateFromTheHeaderWithoutTheFile() throws Exception {
+        Path path = HeifBuilder.heif().tiff(TIFF).write(Files.createTempFile("test", ".heic"));
+        FileHeader header = FileHeader.read(path, FileHeader.DEFAULT_HEADER_BYTES);
+        Files.delete(path);
+
+        Instant dateTime = HeifExifDateReader.readDateOriginal(path.toFile(), header, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49Z")));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_NoExifItem() throws Exception {
+        File file = HeifBuilder.heif().tiff(TIFF).write(Files.createTempFile("test", ".heic")).toFile();
+        byte[] heif = Files.readAllBytes(file.toPath());
+        int type = indexOf(heif, "Exif\0");
+        heif[type] = 'm';
+        Files.write(file.toPath(), heif);
+
+        assertThat(HeifExifDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_MetaLargerThanMaxBytes() throws Exception {
+        assertThat(HeifExifDateReader.readDateOriginal(getFile("image.heic"), 16), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_Truncated() throws Exception {
+        byte[] heif = HeifBuilder.heif().tiff(TIFF).inMediaData().toByteArray();
+        File file = Files.write(Files.createTempFile("test", ".heic"), Arrays.copyOf(heif, heif.length - 40)).toFile();
+
+        assertThat(HeifExifDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_NotAHeif() throws Exception {
+        assertThat(HeifExifDateReader.readDateOriginal(getFile("image.jpg"), MAX_BYTES), is(nullValue()));
+        assertThat(HeifExifDateReader.readDateOriginal(getFile("file"), MAX_BYTES), is(nullValue()));
+        assertThat(HeifExifDateReader.readDateOriginal(getFile("20230325_110242428_iOS.heic"), MAX_BYTES),
+            is(nullValue()));
+    }
+
+    private static int indexOf(byte[] bytes, String value) {
+        byte[] target = value.getBytes();
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + target.length, target, 0, target.length)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(value + " is not in the bytes");
+    }
+}
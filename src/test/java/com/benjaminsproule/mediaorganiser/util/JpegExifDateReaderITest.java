@@ -0,0 +1,139 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.benjaminsproule.mediaorganiser.test.JpegBuilder;
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class JpegExifDateReaderITest {
+    private static final int MAX_BYTES = FileDateUtil.DEFAULT_MAX_METADATA_BYTES;
+
+    @Test
+    public void testReadDateOriginal_ReadsTheDateOfAJpeg() throws Exception {
+        Instant dateTime = JpegExifDateReader.readDateOriginal(getFile("image.jpg"), MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2015-02-15T19:41:23Z")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"image.jpg", "PXL_20221227_152002772.jpg", "PXL_20221227_152002772.MP.jpg",
+        "20221227_152002772-COLLAGE.jpg", "IMG-20170430-WA0000.jpg", "00000IMG_00000_BURST20170430172516.jpg",
+        "Burst_Cover_Collage_20170430172710.jpg"})
+    public void testReadDateOriginal_GivesTheSameDateAsTheFullMetadataOrNull(String fileName) throws Exception {
+        File file = getFile(fileName);
+
+        Instant dateTime = JpegExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        if (dateTime != null) {
+            assertThat(dateTime, is(readDateOriginalFromAllMetadata(file)));
+        }
+    }
+
+    @Test
+    public void testReadDateOriginal_ReadsTheDateFromTheHeaderWithoutTheFile() throws Exception {
+        Path path = JpegBuilder.jpeg().dateTimeOriginal("2023:05:19 22:38:49")
+            .write(Files.createTempFile("test", ".jpg"));
+        FileHeader header = FileHeader.read(path, FileHeader.DEFAULT_HEADER_BYTES);
+        Files.delete(path);
+
+        Instant dateTime = JpegExifDateReader.readDateOriginal(path.toFile(), header, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49Z")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"BIG_ENDIAN", "LITTLE_ENDIAN"})
+    public void testReadDateOriginal_ReadsEitherByteOrderAfterAJfifSegment(String byteOrder) throws Exception {
+        File file = JpegBuilder.jpeg().jfif().byteOrder(toByteOrder(byteOrder)).dateTimeOriginal("2023:05:19 22:38:49")
+            .write(Files.createTempFile("test", ".jpg")).toFile();
+
+        Instant dateTime = JpegExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49Z")));
+        assertThat(dateTime, is(readDateOriginalFromAllMetadata(file)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"4", "428", "4289", "  ", "428 "})
+    public void testReadDateOriginal_AddsTheSubSecondsInTheSameWayAsTheFullMetadata(String subSeconds)
+        throws Exception {
+        File file = JpegBuilder.jpeg().dateTimeOriginal("2023:05:19 22:38:49").subSecTimeOriginal(subSeconds)
+            .write(Files.createTempFile("test", ".jpg")).toFile();
+
+        Instant dateTime = JpegExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(readDateOriginalFromAllMetadata(file)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"+01:00", "-05:30", "+00:00", "1:00", "+1:000"})
+    public void testReadDateOriginal_AppliesTheOffsetInTheSameWayAsTheFullMetadata(String offset) throws Exception {
+        File file = JpegBuilder.jpeg().dateTimeOriginal("2023:05:19 22:38:49").offsetTimeOriginal(offset)
+            .write(Files.createTempFile("test", ".jpg")).toFile();
+
+        Instant dateTime = JpegExifDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(readDateOriginalFromAllMetadata(file)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0000:00:00 00:00:00", "2023:02:30 22:38:49", "2023-05-19 22:38:49", "2023:05:19 22:38",
+        "2023:05:19 24:00:00", "    :  :     :  :  "})
+    public void testReadDateOriginal_ReturnsNull_DateNotInTheStandardForm(String dateTimeOriginal) throws Exception {
+        File file = JpegBuilder.jpeg().dateTimeOriginal(dateTimeOriginal)
+            .write(Files.createTempFile("test", ".jpg")).toFile();
+
+        assertThat(JpegExifDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_NoDateTimeOriginal() throws Exception {
+        File file = JpegBuilder.jpeg().subSecTimeOriginal("428").write(Files.createTempFile("test", ".jpg")).toFile();
+
+        assertThat(JpegExifDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_ExifLargerThanMaxBytes() throws Exception {
+        assertThat(JpegExifDateReader.readDateOriginal(getFile("image.jpg"), 16), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_NotAJpeg() throws Exception {
+        assertThat(JpegExifDateReader.readDateOriginal(getFile("image.png"), MAX_BYTES), is(nullValue()));
+        assertThat(JpegExifDateReader.readDateOriginal(getFile("file"), MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_TruncatedExif() throws Exception {
+        byte[] jpeg = JpegBuilder.jpeg().dateTimeOriginal("2023:05:19 22:38:49").toByteArray();
+        File file = Files.write(Files.createTempFile("test", ".jpg"), Arrays.copyOf(jpeg, 40)).toFile();
+
+        assertThat(JpegExifDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    private static Instant readDateOriginalFromAllMetadata(File file) throws Exception {
+        ExifSubIFDDirectory directory = ImageMetadataReader.readMetadata(file)
+            .getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+        return directory == null || directory.getDateOriginal() == null ? null
+            : directory.getDateOriginal().toInstant();
+    }
+
+    private static ByteOrder toByteOrder(String byteOrder) {
+        return byteOrder.equals("LITTLE_ENDIAN") ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    }
+}
@@ -0,0 +1,59 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonUtilTest {
+
+    @Test
+    public void testToJsonWritesNumbersAndNullWithoutQuotes() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("status", "MOVED");
+        fields.put("elapsedMillis", 12L);
+        fields.put("message", null);
+
+        assertThat(JsonUtil.toJson(fields), is("{\"status\":\"MOVED\",\"elapsedMillis\":12,\"message\":null}"));
+    }
+
+    @Test
+    public void testToJsonEscapesStrings() {
+        assertThat(JsonUtil.toJson(Map.of("message", "a \"b\"\\c\nd\u0001")),
+            is("{\"message\":\"a \\\"b\\\"\\\\c\\nd\\u0001\"}"));
+    }
+
+    @Test
+    public void testParseObjectReadsWhatToJsonWrites() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("source", "C:\\photos\\\"quoted\"\tname.jpg");
+        fields.put("elapsedMillis", 12L);
+        fields.put("message", null);
+
+        Map<String, String> parsed = JsonUtil.parseObject(JsonUtil.toJson(fields));
+
+        assertThat(parsed.get("source"), is("C:\\photos\\\"quoted\"\tname.jpg"));
+        assertThat(parsed.get("elapsedMillis"), is("12"));
+        assertThat(parsed.containsKey("message"), is(true));
+        assertThat(parsed.get("message"), is(nullValue()));
+    }
+
+    @Test
+    public void testParseObjectReadsEmptyObject() {
+        assertThat(JsonUtil.parseObject(" { } ").isEmpty(), is(true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "[]", "{", "{\"a\"}", "{\"a\":}", "{\"a\":\"b}", "{\"a\":1,}", "{\"a\":1} x",
+        "{\"a\":\"\\u00\"}"})
+    public void testParseObjectThrowsIllegalArgumentExceptionIfJsonIsMalformed(String json) {
+        assertThrows(IllegalArgumentException.class, () -> JsonUtil.parseObject(json));
+    }
+}
@@ -0,0 +1,176 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static java.time.Instant.ofEpochMilli;
+
+/**
+ * The chain of file name parsers that {@link FilenameDateParser} replaced, kept to check it gives the same dates
+ */
+class LegacyFilenameDateParser {
+
+    static ZonedDateTime parse(String fileName) {
+        ZonedDateTime zonedDateTime = getDateByEpochMilli(fileName);
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByDateUnderscoreTime(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByImgUnderscoreDateUnderscoreTime(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByDateHyphenatedUnderscoreTimeHyphenated(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByScreenshotUnderscoreDateHyphenatedTimeHyphenated(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByDateUnderscoreTimeUnderscoreiOS(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByPXLUnderscoreDateUnderscoreTime(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByDateUnderscoreTimeHyphenCOLLAGE(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByIndexedBurstFileName(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByBurstActionFileName(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByBurstCollageFileName(fileName);
+        }
+
+        if (zonedDateTime == null) {
+            zonedDateTime = getDateByIMGDateWhatsApp(fileName);
+        }
+
+        return zonedDateTime;
+    }
+
+    private static ZonedDateTime getDateByEpochMilli(String fileName) {
+        try {
+            long epochMilli = Long.parseLong(fileName);
+            return ZonedDateTime.ofInstant(ofEpochMilli(epochMilli), ZoneId.of("UTC"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByDateUnderscoreTime(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssZ");
+            return ZonedDateTime.parse(fileName + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByImgUnderscoreDateUnderscoreTime(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssZ");
+            return ZonedDateTime.parse(fileName.replaceFirst("(?i)IMG_", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByDateHyphenatedUnderscoreTimeHyphenated(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ssZ");
+            return ZonedDateTime.parse(fileName + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByScreenshotUnderscoreDateHyphenatedTimeHyphenated(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ssZ");
+            return ZonedDateTime.parse(fileName.replaceFirst("(?i)Screenshot_", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByDateUnderscoreTimeUnderscoreiOS(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSSZ");
+            return ZonedDateTime.parse(fileName.replaceFirst("(?i)_iOS", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByPXLUnderscoreDateUnderscoreTime(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSSZ");
+            return ZonedDateTime.parse(fileName.replaceFirst("(?i)PXL_", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByDateUnderscoreTimeHyphenCOLLAGE(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSSZ");
+            return ZonedDateTime.parse(fileName.replaceFirst("(?i)-COLLAGE", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByIndexedBurstFileName(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
+            return ZonedDateTime.parse(fileName
+                .replaceFirst("(?i)(\\d{5})(IMG|XTR)_(\\d{5})_BURST", "")
+                .replaceFirst("(?i)_COVER", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByBurstActionFileName(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
+            return ZonedDateTime.parse(fileName
+                .replaceFirst("(?i)Burst_Cover_GIF_Action_", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByBurstCollageFileName(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
+            return ZonedDateTime.parse(fileName
+                .replaceFirst("(?i)Burst_Cover_Collage_", "") + "+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime getDateByIMGDateWhatsApp(String fileName) {
+        try {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssZ");
+            return ZonedDateTime.parse(fileName.replaceFirst("IMG-", "").replaceFirst("-WA(\\d+)", "") + "000000+0000", dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -114,4 +114,37 @@ public class MimeTypesUtilITest {
         Files.createFile(mimeTypes);
         Files.write(mimeTypes, asList(str));
     }
+
+    @Test
+    public void testIsMediaMimeType_ReturnsTrue_MediaMimeTypeIgnoringCase() {
+        assertThat(isMediaMimeType("IMAGE/JPEG"), is(true));
+        assertThat(isMediaMimeType(VIDEO_QUICKTIME), is(true));
+        assertThat(isMediaMimeType("image/x-nikon-nef"), is(true));
+    }
+
+    @Test
+    public void testIsMediaMimeType_ReturnsFalse_NonMediaOrNullMimeType() {
+        assertThat(isMediaMimeType("image/gif"), is(false));
+        assertThat(isMediaMimeType(null), is(false));
+    }
+
+    @Test
+    public void testGetExtensionType_ReturnsMedia_KnownMediaExtensionIgnoringCase() {
+        assertThat(getExtensionType("image.JPG"), is(ExtensionType.MEDIA));
+        assertThat(getExtensionType("PXL_20221227_152002772.MP.mp4"), is(ExtensionType.MEDIA));
+        assertThat(getExtensionType("IMG_0001.CR2"), is(ExtensionType.MEDIA));
+    }
+
+    @Test
+    public void testGetExtensionType_ReturnsNotMedia_KnownNonMediaExtension() {
+        assertThat(getExtensionType("notes.txt"), is(ExtensionType.NOT_MEDIA));
+        assertThat(getExtensionType("Thumbs.db"), is(ExtensionType.NOT_MEDIA));
+    }
+
+    @Test
+    public void testGetExtensionType_ReturnsUnknown_UnknownOrMissingExtension() {
+        assertThat(getExtensionType("file"), is(ExtensionType.UNKNOWN));
+        assertThat(getExtensionType("file."), is(ExtensionType.UNKNOWN));
+        assertThat(getExtensionType("file.xyz"), is(ExtensionType.UNKNOWN));
+    }
 }
@@ -0,0 +1,157 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.benjaminsproule.mediaorganiser.domain.DateSource;
+import com.benjaminsproule.mediaorganiser.domain.FileDate;
+import com.benjaminsproule.mediaorganiser.test.Mp4Builder;
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.mp4.Mp4Directory;
+import com.drew.metadata.mp4.media.Mp4MetaDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static com.benjaminsproule.mediaorganiser.test.Mp4Builder.box;
+import static com.benjaminsproule.mediaorganiser.test.Mp4Builder.largeMovieHeader;
+import static com.benjaminsproule.mediaorganiser.test.Mp4Builder.movieHeader;
+import static com.benjaminsproule.mediaorganiser.test.Mp4Builder.track;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MovieHeaderReaderITest {
+    private static final Instant CREATION_TIME = Instant.parse("2023-05-19T22:38:49Z");
+    private static final Instant META_CREATION_TIME = Instant.parse("2023-05-19T21:38:49Z");
+    private static final Instant VIDEO_CREATION_TIME = Instant.parse("2023-05-19T20:38:49Z");
+    private static final Instant NO_CREATION_TIME = Instant.parse("1904-01-01T00:00:00Z");
+
+    @Test
+    public void testReadCreationTime_ReadsTheMovieHeaderAfterTheMediaData_mp4() throws Exception {
+        File file = Mp4Builder.mp4().mediaData(2 * 1024 * 1024).movie(CREATION_TIME)
+            .write(Files.createTempFile("test", ".mp4")).toFile();
+
+        FileDate fileDate = MovieHeaderReader.readCreationTime(file, false);
+
+        assertThat(fileDate.dateTime().toInstant(), is(CREATION_TIME));
+        assertThat(fileDate.source(), is(DateSource.MP4));
+        Metadata metadata = ImageMetadataReader.readMetadata(file);
+        assertThat(metadata.getFirstDirectoryOfType(Mp4Directory.class).getDate(Mp4Directory.TAG_CREATION_TIME)
+            .toInstant(), is(fileDate.dateTime().toInstant()));
+    }
+
+    @Test
+    public void testReadCreationTime_ReadsTheMovieHeaderAfterTheMediaData_mov() throws Exception {
+        File file = Mp4Builder.quickTime().mediaData(2 * 1024 * 1024).movie(CREATION_TIME)
+            .write(Files.createTempFile("test", ".mov")).toFile();
+
+        FileDate fileDate = MovieHeaderReader.readCreationTime(file, true);
+
+        assertThat(fileDate.dateTime().toInstant(), is(CREATION_TIME));
+        assertThat(fileDate.source(), is(DateSource.QUICKTIME));
+    }
+
+    @Test
+    public void testReadCreationTime_ReadsAVersionOneMovieHeader() throws Exception {
+        File file = Mp4Builder.mp4().movie(largeMovieHeader(CREATION_TIME))
+            .write(Files.createTempFile("test", ".mp4")).toFile();
+
+        FileDate fileDate = MovieHeaderReader.readCreationTime(file, false);
+
+        assertThat(fileDate.dateTime().toInstant(), is(CREATION_TIME));
+        assertThat(fileDate.source(), is(DateSource.MP4));
+    }
+
+    @Test
+    public void testReadCreationTime_GivesTheMetaTrackPrecedenceOverTheMovieHeader() throws Exception {
+        File file = Mp4Builder.mp4().movie(movieHeader(CREATION_TIME), track("vide", VIDEO_CREATION_TIME),
+            track("meta", META_CREATION_TIME)).write(Files.createTempFile("test", ".mp4")).toFile();
+
+        FileDate fileDate = MovieHeaderReader.readCreationTime(file, false);
+
+        assertThat(fileDate.dateTime().toInstant(), is(META_CREATION_TIME));
+        assertThat(fileDate.source(), is(DateSource.MP4_MEDIA));
+        Metadata metadata = ImageMetadataReader.readMetadata(file);
+        assertThat(metadata.getFirstDirectoryOfType(Mp4MetaDirectory.class)
+            .getDate(Mp4MetaDirectory.TAG_CREATION_TIME).toInstant(), is(fileDate.dateTime().toInstant()));
+    }
+
+    @Test
+    public void testReadCreationTime_IgnoresTracksWithoutAMetaHandler() throws Exception {
+        File file = Mp4Builder.mp4().movie(movieHeader(CREATION_TIME), track("vide", VIDEO_CREATION_TIME),
+            track("soun", VIDEO_CREATION_TIME)).write(Files.createTempFile("test", ".mp4")).toFile();
+
+        FileDate fileDate = MovieHeaderReader.readCreationTime(file, false);
+
+        assertThat(fileDate.dateTime().toInstant(), is(CREATION_TIME));
+        assertThat(fileDate.source(), is(DateSource.MP4));
+    }
+
+    @Test
+    public void testReadCreationTime_IgnoresTheTracksOfAQuickTimeFile() throws Exception {
+        File file = Mp4Builder.quickTime().movie(movieHeader(CREATION_TIME), track("meta", META_CREATION_TIME))
+            .write(Files.createTempFile("test", ".mov")).toFile();
+
+        FileDate fileDate = MovieHeaderReader.readCreationTime(file, true);
+
+        assertThat(fileDate.dateTime().toInstant(), is(CREATION_TIME));
+        assertThat(fileDate.source(), is(DateSource.QUICKTIME));
+    }
+
+    @Test
+    public void testReadCreationTime_ReturnsNull_CreationTimeIsZero() throws Exception {
+        File file = Mp4Builder.mp4().movie(NO_CREATION_TIME).write(Files.createTempFile("test", ".mp4")).toFile();
+
+        assertThat(MovieHeaderReader.readCreationTime(file, false), is(nullValue()));
+    }
+
+    @Test
+    public void testReadCreationTime_ReturnsNull_MetaTrackCreationTimeIsZero() throws Exception {
+        File file = Mp4Builder.mp4().movie(movieHeader(CREATION_TIME), track("meta", NO_CREATION_TIME))
+            .write(Files.createTempFile("test", ".mp4")).toFile();
+
+        assertThat(MovieHeaderReader.readCreationTime(file, false), is(nullValue()));
+    }
+
+    @Test
+    public void testReadCreationTime_ReturnsNull_NoMovieBox() throws Exception {
+        File file = Mp4Builder.mp4().mediaData(1024).write(Files.createTempFile("test", ".mp4")).toFile();
+
+        assertThat(MovieHeaderReader.readCreationTime(file, false), is(nullValue()));
+    }
+
+    @Test
+    public void testReadCreationTime_ReturnsNull_Truncated() throws Exception {
+        byte[] mp4 = Mp4Builder.mp4().mediaData(1024).movie(CREATION_TIME).toByteArray();
+        File file = Files.write(Files.createTempFile("test", ".mp4"), Arrays.copyOf(mp4, 512)).toFile();
+
+        assertThat(MovieHeaderReader.readCreationTime(file, false), is(nullValue()));
+    }
+
+    @Test
+    public void testReadCreationTime_JumpsOverMediaDataLargerThanTheMaximumInteger() throws Exception {
+        long mediaDataSize = 3L * 1024 * 1024 * 1024;
+        Path path = Files.createTempFile("test", ".mp4");
+        try (FileChannel channel = FileChannel.open(path, WRITE)) {
+            channel.write(ByteBuffer.wrap(Mp4Builder.mp4().toByteArray()));
+            ByteBuffer mediaDataHeader = ByteBuffer.allocate(16).putInt(1).put("mdat".getBytes()).putLong(mediaDataSize);
+            long movie = channel.position() + mediaDataSize;
+            channel.write(mediaDataHeader.flip());
+            channel.write(ByteBuffer.wrap(box("moov", box("mvhd", movieHeader(CREATION_TIME)))), movie);
+        }
+
+        try {
+            FileDate fileDate = MovieHeaderReader.readCreationTime(path.toFile(), false);
+
+            assertThat(fileDate.dateTime().toInstant(), is(CREATION_TIME));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
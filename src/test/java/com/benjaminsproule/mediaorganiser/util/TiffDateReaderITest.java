@@ -0,0 +1,94 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.benjaminsproule.mediaorganiser.test.FileResource.getFile;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.TAG_DATE_TIME_ORIGINAL;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.TAG_OFFSET_TIME_ORIGINAL;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.TAG_SUB_SEC_TIME_ORIGINAL;
+import static com.benjaminsproule.mediaorganiser.test.JpegBuilder.tiff;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TiffDateReaderITest {
+    private static final int MAX_BYTES = FileDateUtil.DEFAULT_MAX_METADATA_BYTES;
+
+    @ParameterizedTest
+    @ValueSource(strings = {".tif", ".cr2", ".nef", ".arw", ".dng"})
+    public void testReadDateOriginal_ReadsTheDateOfATiffOrRawFile(String extension) throws Exception {
+        File file = Files.write(Files.createTempFile("test", extension),
+            tiff(ByteOrder.LITTLE_ENDIAN, Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49"))).toFile();
+
+        Instant dateTime = TiffDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49Z")));
+        assertThat(dateTime, is(ImageMetadataReader.readMetadata(file)
+            .getFirstDirectoryOfType(ExifSubIFDDirectory.class).getDateOriginal().toInstant()));
+    }
+
+    @Test
+    public void testReadDateOriginal_AddsTheSubSecondsAndAppliesTheOffset() throws Exception {
+        File file = Files.write(Files.createTempFile("test", ".nef"), tiff(ByteOrder.BIG_ENDIAN,
+            Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49", TAG_SUB_SEC_TIME_ORIGINAL, "42",
+                TAG_OFFSET_TIME_ORIGINAL, "+01:00"))).toFile();
+
+        Instant dateTime = TiffDateReader.readDateOriginal(file, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T21:38:49.420Z")));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReadsTheDateFromTheHeaderWithoutTheFile() throws Exception {
+        Path path = Files.write(Files.createTempFile("test", ".cr2"),
+            tiff(ByteOrder.LITTLE_ENDIAN, Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49")));
+        FileHeader header = FileHeader.read(path, FileHeader.DEFAULT_HEADER_BYTES);
+        Files.delete(path);
+
+        Instant dateTime = TiffDateReader.readDateOriginal(path.toFile(), header, MAX_BYTES);
+
+        assertThat(dateTime, is(Instant.parse("2023-05-19T22:38:49Z")));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_NoDateTimeOriginal() throws Exception {
+        File file = Files.write(Files.createTempFile("test", ".dng"),
+            tiff(ByteOrder.LITTLE_ENDIAN, Map.of(TAG_SUB_SEC_TIME_ORIGINAL, "428"))).toFile();
+
+        assertThat(TiffDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_DateIsPastMaxBytes() throws Exception {
+        byte[] tiff = tiff(ByteOrder.LITTLE_ENDIAN, Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49"));
+        File file = Files.write(Files.createTempFile("test", ".arw"), tiff).toFile();
+
+        assertThat(TiffDateReader.readDateOriginal(file, tiff.length - 1), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_Truncated() throws Exception {
+        byte[] tiff = tiff(ByteOrder.BIG_ENDIAN, Map.of(TAG_DATE_TIME_ORIGINAL, "2023:05:19 22:38:49"));
+        File file = Files.write(Files.createTempFile("test", ".nef"), Arrays.copyOf(tiff, 30)).toFile();
+
+        assertThat(TiffDateReader.readDateOriginal(file, MAX_BYTES), is(nullValue()));
+    }
+
+    @Test
+    public void testReadDateOriginal_ReturnsNull_NotATiff() throws Exception {
+        assertThat(TiffDateReader.readDateOriginal(getFile("image.jpg"), MAX_BYTES), is(nullValue()));
+        assertThat(TiffDateReader.readDateOriginal(getFile("file"), MAX_BYTES), is(nullValue()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.benjaminsproule.mediaorganiser.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class XxHash64Test {
+
+    @ParameterizedTest
+    @CsvSource({
+        "'',ef46db3751d8e999",
+        "a,d24ec4f1a98c6e5b",
+        "abc,44bc2cf5ad770999",
+        "Nobody inspects the spammish repetition,fbcea83c8a378bf1"
+    })
+    public void testHashMatchesTheReferenceImplementation(String input, String expectedHash) {
+        long hash = XxHash64.hash(input.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(Long.toHexString(hash), is(expectedHash));
+    }
+
+    @Test
+    public void testUpdateGivesTheSameHashHoweverTheBytesAreSplit() {
+        byte[] bytes = new byte[1000];
+        new Random(1).nextBytes(bytes);
+        XxHash64 hash = new XxHash64();
+
+        int position = 0;
+        for (int length : new int[]{1, 3, 31, 32, 33, 7, 100, 0, 64}) {
+            hash.update(ByteBuffer.wrap(bytes, position, length));
+            position += length;
+        }
+        hash.update(ByteBuffer.wrap(bytes, position, bytes.length - position));
+
+        assertThat(hash.getValue(), is(XxHash64.hash(bytes)));
+    }
+
+    @Test
+    public void testUpdateLeavesTheBufferPositionWhereItWas() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3});
+
+        new XxHash64().update(buffer);
+
+        assertThat(buffer.position(), is(0));
+    }
+
+    @Test
+    public void testHashOfFileIsTheHashOfItsContents() throws Exception {
+        byte[] bytes = new byte[100_003];
+        new Random(2).nextBytes(bytes);
+        Path path = Files.write(Files.createTempFile("test", ".jpg"), bytes);
+
+        assertThat(XxHash64.hash(path), is(XxHash64.hash(bytes)));
+    }
+
+    @Test
+    public void testHashDiffersForDifferentContents() {
+        byte[] bytes = new byte[64];
+        long hash = XxHash64.hash(bytes);
+        bytes[63] = 1;
+
+        assertThat(XxHash64.hash(bytes), is(not(hash)));
+    }
+}